@@ -0,0 +1,246 @@
+package com.timetable.problem_solver.constraints;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntBiFunction;
+
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.LessonTraits;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+
+/**
+ * Compiles the rule definition of a custom constraint into the functions used by its constraint stream.
+ *
+ * <pre>
+ * rule      := [ "where" condition ( "and" condition )* ] [ "group" key ( "," key )* "count" "&gt;" number ]
+ * condition := [ "not" ] ( "practical" | "theory" ) | "difficulty" "=" ( LOW | MEDIUM | HIGH ) | "day" "=" MONDAY..SUNDAY
+ * key       := "teacher" | "section" | "subject" | "day"
+ * </pre>
+ *
+ * Without a group clause every matching lesson is penalized once. With a group clause every group
+ * holding more than {@code number} matching lessons is penalized by the excess. Examples:
+ * <ul>
+ *     <li>{@code where practical and day = SATURDAY}</li>
+ *     <li>{@code where difficulty = LOW group section, day count > 1}</li>
+ *     <li>{@code group teacher, day count > 5}</li>
+ * </ul>
+ *
+ * Rules of stored constraint settings are cached by their normalized text, so reloading the solver reuses
+ * the same function instances and the constraint network can share nodes between identical rules.
+ * Rules only being validated are never cached.
+ */
+public final class CustomRuleCompiler {
+
+    // Well above the custom constraints of a school; past it, rules of edited or deleted settings are dropped
+    private static final int MAX_CACHED_RULES = 256;
+    private static final Map<String, CompiledRule> COMPILED_RULES = new ConcurrentHashMap<>();
+
+    private CustomRuleCompiler() {
+    }
+
+    /**
+     * Compiled form of a rule. {@code groupKey} is null and {@code groupKeyNames} empty for rules without a group clause.
+     */
+    public record CompiledRule(String source,
+                               Predicate<TimeFoldLesson> filter,
+                               List<String> groupKeyNames,
+                               Function<TimeFoldLesson, Object> groupKey,
+                               BiPredicate<Object, Integer> overLimit,
+                               ToIntBiFunction<Object, Integer> excess) {
+
+        public boolean isGrouped() {
+            return groupKey != null;
+        }
+
+        /**
+         * Whether a group can hold lessons that share neither a teacher nor a section,
+         * because the rule groups by neither.
+         */
+        public boolean groupsAcrossTeachersAndSections() {
+            return isGrouped() && !groupKeyNames.contains("teacher") && !groupKeyNames.contains("section");
+        }
+    }
+
+    /**
+     * Compile the rule definition of a stored constraint setting, reusing the cached result for an identical rule.
+     *
+     * @throws IllegalArgumentException if the rule is empty or does not follow the grammar
+     */
+    public static CompiledRule compile(String ruleDefinition) {
+        String normalized = normalize(ruleDefinition);
+        CompiledRule cached = COMPILED_RULES.get(normalized);
+        if (cached != null) {
+            return cached;
+        }
+        // Parse outside computeIfAbsent so invalid rules are reported and never cached
+        CompiledRule compiled = new Parser(normalized).parse();
+        if (COMPILED_RULES.size() >= MAX_CACHED_RULES) {
+            COMPILED_RULES.clear();
+        }
+        return COMPILED_RULES.computeIfAbsent(normalized, key -> compiled);
+    }
+
+    /**
+     * Check that a rule definition compiles, without caching it, for rules submitted before they are stored.
+     *
+     * @throws IllegalArgumentException if the rule is empty or does not follow the grammar
+     */
+    public static void validate(String ruleDefinition) {
+        new Parser(normalize(ruleDefinition)).parse();
+    }
+
+    private static String normalize(String ruleDefinition) {
+        if (ruleDefinition == null || ruleDefinition.isBlank()) {
+            throw new IllegalArgumentException("Rule definition is empty");
+        }
+        return ruleDefinition.trim()
+                .toLowerCase(Locale.ROOT)
+                .replace(",", " , ")
+                .replace(">", " > ")
+                .replace("=", " = ")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private static final class Parser {
+
+        private final String source;
+        private final String[] tokens;
+        private int position;
+
+        private Parser(String source) {
+            this.source = source;
+            this.tokens = source.split(" ");
+        }
+
+        private CompiledRule parse() {
+            Predicate<TimeFoldLesson> filter = null;
+            if (accept("where")) {
+                filter = condition();
+                while (accept("and")) {
+                    filter = filter.and(condition());
+                }
+            }
+            if (!accept("group")) {
+                if (filter == null) {
+                    throw error("Expected 'where' or 'group'");
+                }
+                expectEnd();
+                return new CompiledRule(source, filter, List.of(), null, null, null);
+            }
+            List<String> keyNames = new ArrayList<>();
+            List<Function<TimeFoldLesson, Object>> keys = new ArrayList<>();
+            do {
+                keyNames.add(position < tokens.length ? tokens[position] : null);
+                keys.add(key());
+            } while (accept(","));
+            expect("count");
+            expect(">");
+            int maxCount = number();
+            expectEnd();
+            return new CompiledRule(source, filter, List.copyOf(keyNames), compositeKey(keys),
+                    (key, count) -> count > maxCount,
+                    (key, count) -> count - maxCount);
+        }
+
+        private Predicate<TimeFoldLesson> condition() {
+            boolean negated = accept("not");
+            String token = next("condition");
+            Predicate<TimeFoldLesson> condition = switch (token) {
+                case "practical" -> lesson -> lesson.hasTraits(LessonTraits.PRACTICAL);
+                case "theory" -> lesson -> lesson.hasTraits(LessonTraits.THEORY);
+                case "difficulty" -> {
+                    expect("=");
+                    DifficultyLevel level = enumValue(DifficultyLevel.class, next("difficulty level"));
+                    yield lesson -> lesson.getSubject() != null && lesson.getSubject().getDifficultyLevel() == level;
+                }
+                case "day" -> {
+                    expect("=");
+                    int dayIndex = enumValue(DayOfWeek.class, next("day of week")).ordinal();
+                    yield lesson -> lesson.getTimeslot().getDayIndex() == dayIndex;
+                }
+                default -> throw error("Unknown condition '" + token + "'");
+            };
+            return negated ? condition.negate() : condition;
+        }
+
+        private Function<TimeFoldLesson, Object> key() {
+            String token = next("group key");
+            return switch (token) {
+                case "teacher" -> lesson -> lesson.getTeacher() != null ? lesson.getTeacher().getId() : null;
+                case "section" -> lesson -> lesson.getSection() != null ? lesson.getSection().getId() : null;
+                case "subject" -> lesson -> lesson.getSubject() != null ? lesson.getSubject().getId() : null;
+                case "day" -> lesson -> lesson.getTimeslot().getDayIndex();
+                default -> throw error("Unknown group key '" + token + "'");
+            };
+        }
+
+        private static Function<TimeFoldLesson, Object> compositeKey(List<Function<TimeFoldLesson, Object>> keys) {
+            if (keys.size() == 1) {
+                return keys.get(0);
+            }
+            List<Function<TimeFoldLesson, Object>> keyList = List.copyOf(keys);
+            // Stream.toList() keeps null values, such as a lesson without a teacher
+            return lesson -> keyList.stream().map(key -> key.apply(lesson)).toList();
+        }
+
+        private int number() {
+            String token = next("number");
+            try {
+                int value = Integer.parseInt(token);
+                if (value < 0) {
+                    throw error("Count must not be negative");
+                }
+                return value;
+            } catch (NumberFormatException e) {
+                throw error("Expected a number but found '" + token + "'");
+            }
+        }
+
+        private <E extends Enum<E>> E enumValue(Class<E> type, String token) {
+            try {
+                return Enum.valueOf(type, token.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw error("Unknown " + type.getSimpleName() + " '" + token + "'");
+            }
+        }
+
+        private boolean accept(String expected) {
+            if (position < tokens.length && tokens[position].equals(expected)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String expected) {
+            if (!accept(expected)) {
+                throw error("Expected '" + expected + "'");
+            }
+        }
+
+        private String next(String description) {
+            if (position >= tokens.length) {
+                throw error("Expected " + description + " but the rule ended");
+            }
+            return tokens[position++];
+        }
+
+        private void expectEnd() {
+            if (position < tokens.length) {
+                throw error("Unexpected '" + tokens[position] + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " in rule '" + source + "'");
+        }
+    }
+}
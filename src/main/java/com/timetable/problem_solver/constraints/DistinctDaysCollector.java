@@ -0,0 +1,74 @@
+package com.timetable.problem_solver.constraints;
+
+import java.time.DayOfWeek;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import ai.timefold.solver.core.api.score.stream.uni.UniConstraintCollector;
+
+/**
+ * Collects the distinct days a group of facts falls on as a bitmask, bit {@code n} set for
+ * {@code DayOfWeek} ordinal {@code n}. Each group keeps one counter per day, so inserting or
+ * retracting a fact is O(1). Nothing is allocated per move once a group has seen a day: the undo
+ * of each day is created once per group and reused, and a mask of seven days always fits the
+ * {@code Integer} cache. Use {@link Integer#bitCount(int)} on the result for the number of days.
+ *
+ * @param dayIndexFunction maps a fact to its {@code DayOfWeek} ordinal
+ */
+public record DistinctDaysCollector<A>(ToIntFunction<A> dayIndexFunction)
+        implements UniConstraintCollector<A, DistinctDaysCollector.Days, Integer> {
+
+    private static final int DAYS_PER_WEEK = DayOfWeek.values().length;
+
+    public static <A> DistinctDaysCollector<A> distinctDays(ToIntFunction<A> dayIndexFunction) {
+        return new DistinctDaysCollector<>(dayIndexFunction);
+    }
+
+    @Override
+    public Supplier<Days> supplier() {
+        return Days::new;
+    }
+
+    @Override
+    public BiFunction<Days, A, Runnable> accumulator() {
+        return (days, fact) -> days.insert(dayIndexFunction.applyAsInt(fact));
+    }
+
+    @Override
+    public Function<Days, Integer> finisher() {
+        return days -> days.mask;
+    }
+
+    /**
+     * Mutable per-group state, only touched by the constraint network.
+     */
+    public static final class Days {
+
+        private final int[] counts = new int[DAYS_PER_WEEK];
+        private final Runnable[] retractions = new Runnable[DAYS_PER_WEEK];
+        private int mask;
+
+        /**
+         * @return the undo of this insert, shared by every insert on the same day
+         */
+        private Runnable insert(int day) {
+            if (counts[day]++ == 0) {
+                mask |= 1 << day;
+            }
+            Runnable retraction = retractions[day];
+            if (retraction == null) {
+                retraction = () -> retract(day);
+                retractions[day] = retraction;
+            }
+            return retraction;
+        }
+
+        private void retract(int day) {
+            if (--counts[day] == 0) {
+                mask &= ~(1 << day);
+            }
+        }
+    }
+}
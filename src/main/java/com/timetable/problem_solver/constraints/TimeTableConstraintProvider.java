@@ -1,24 +1,29 @@
 package com.timetable.problem_solver.constraints;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.DayOfWeek;
-import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 
 import org.jspecify.annotations.NonNull;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Component;
 
-import com.timetable.problem_solver.model.ConstraintSettings;
-import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.ConstraintSettingsSnapshot;
+import com.timetable.problem_solver.model.LessonTraits;
 import com.timetable.problem_solver.model.TimeFoldLesson;
-import com.timetable.problem_solver.repository.ConstraintSettingsRepository;
+import com.timetable.problem_solver.service.ConstraintSettingsCache;
 
 import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
 import ai.timefold.solver.core.api.score.stream.Constraint;
@@ -26,25 +31,27 @@ import ai.timefold.solver.core.api.score.stream.ConstraintCollectors;
 import ai.timefold.solver.core.api.score.stream.ConstraintFactory;
 import ai.timefold.solver.core.api.score.stream.ConstraintProvider;
 import ai.timefold.solver.core.api.score.stream.Joiners;
+import ai.timefold.solver.core.api.score.stream.bi.BiJoiner;
+import ai.timefold.solver.core.api.score.stream.common.Sequence;
+import ai.timefold.solver.core.api.score.stream.common.SequenceChain;
+import ai.timefold.solver.core.api.score.stream.uni.UniConstraintStream;
 
 /**
- * Dynamic constraint provider that reads constraint settings from the database.
- * This allows constraints to be enabled/disabled without application restart.
+ * Dynamic constraint provider that reads constraint settings from the in-memory
+ * ConstraintSettingsCache, which mirrors the database.
+ * This allows constraints to be enabled/disabled without application restart,
+ * and building a solver does not hit the database.
  */
 @Component
 public class TimeTableConstraintProvider implements ConstraintProvider, ApplicationContextAware {
 
+    private static final Logger logger = LoggerFactory.getLogger(TimeTableConstraintProvider.class);
+
     private static ApplicationContext applicationContext;
-    private ConstraintSettingsRepository constraintSettingsRepository;
 
     // Public no-arg constructor required by Timefold Solver
     public TimeTableConstraintProvider() {
-        // Repository will be injected by Spring context
-    }
-
-    @Autowired
-    public void setConstraintSettingsRepository(ConstraintSettingsRepository constraintSettingsRepository) {
-        this.constraintSettingsRepository = constraintSettingsRepository;
+        // Settings cache is looked up from the Spring context
     }
 
     @Override
@@ -53,72 +60,154 @@ public class TimeTableConstraintProvider implements ConstraintProvider, Applicat
     }
 
     /**
-     * Get the repository instance from Spring context
+     * Get the current constraint settings snapshot from the Spring-managed cache.
+     * Timefold instantiates this class itself, so the cache is resolved through the static context.
+     */
+    private static ConstraintSettingsSnapshot currentSettings() {
+        if (applicationContext == null) {
+            throw new IllegalStateException("Cannot access ConstraintSettingsCache - Spring context not available");
+        }
+        return applicationContext.getBean(ConstraintSettingsCache.class).current();
+    }
+
+    /**
+     * Lessons a teacher may give per day before the Teacher daily workload limit constraint penalizes each extra one.
+     */
+    public static final int TEACHER_DAILY_LESSON_LIMIT = 5;
+
+    /**
+     * Settings name of every built-in constraint, mapped to the name it is registered under
+     * (the key for per-solution constraint weight overrides).
+     */
+    public static final Map<String, String> BUILT_IN_CONSTRAINT_NAMES = Map.ofEntries(
+            Map.entry("teacherConflict", "Teacher conflict"),
+            Map.entry("studentGroupConflict", "Student group conflict"),
+            Map.entry("noFreeTimeslots", "Unassigned lesson"),
+            Map.entry("teacherDailyWorkloadLimit", "Teacher daily workload limit"),
+            Map.entry("noBackToBackSameSubject", "No back-to-back same subject"),
+            Map.entry("teacherNoThreeConsecutive", "Teacher no three consecutive periods"),
+            Map.entry("practicalSubjectConsecutivePeriods", "Practical subject consecutive periods"),
+            Map.entry("teacherTimeEfficiency", "Teacher time efficiency"),
+            Map.entry("practicalSubjectsWeekdaysOnly", "Practical subjects weekdays only"),
+            Map.entry("onePracticalPerDayPerSection", "One practical per day per section"),
+            Map.entry("practicalSubjectTwoDaysPerWeek", "Practical subject two days per week"),
+            Map.entry("lowDifficultySubjectWeeklyLimit", "Low difficulty subject weekly limit"),
+            Map.entry("lowDifficultyOncePerDay", "Low difficulty once per day"),
+            Map.entry("preferHighPriorityTheory", "Prefer high priority theory"));
+
+    /**
+     * Name under which the constraint for the given setting is registered.
+     */
+    public static String constraintNameOf(ConstraintSettingsSnapshot.Setting settings) {
+        String builtInName = BUILT_IN_CONSTRAINT_NAMES.get(settings.constraintName());
+        if (builtInName != null) {
+            return builtInName;
+        }
+        return (settings.isHard() ? "Custom Hard: " : "Custom Soft: ") + settings.constraintName();
+    }
+
+    /**
+     * Names of all constraints this provider defines for the given settings snapshot.
+     */
+    public static Set<String> constraintNamesOf(ConstraintSettingsSnapshot snapshot) {
+        Set<String> names = new HashSet<>(BUILT_IN_CONSTRAINT_NAMES.values());
+        snapshot.all().stream()
+                .filter(settings -> compiledRuleOf(settings) != null)
+                .forEach(settings -> names.add(constraintNameOf(settings)));
+        return names;
+    }
+
+    /**
+     * Fingerprint of the constraint network this provider defines for the given settings snapshot.
+     * Only custom rules shape the network; enablement and weights are applied per solution,
+     * so snapshots that differ only in those share a fingerprint.
      */
-    private ConstraintSettingsRepository getRepository() {
-        if (constraintSettingsRepository != null) {
-            return constraintSettingsRepository;
+    public static String networkFingerprintOf(ConstraintSettingsSnapshot snapshot) {
+        StringBuilder definition = new StringBuilder();
+        snapshot.all().stream()
+                .filter(settings -> compiledRuleOf(settings) != null)
+                .map(settings -> constraintNameOf(settings) + '\u0000' + settings.ruleDefinition())
+                .sorted()
+                .forEach(rule -> definition.append(rule).append('\n'));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(definition.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
-        if (applicationContext != null) {
-            return applicationContext.getBean(ConstraintSettingsRepository.class);
+    }
+
+    /**
+     * Names of the custom constraints whose groups can span lessons sharing neither a teacher nor a section.
+     * Every other constraint only relates lessons of the same teacher or section.
+     */
+    public static Set<String> teacherAndSectionSpanningConstraintNamesOf(ConstraintSettingsSnapshot snapshot) {
+        Set<String> names = new HashSet<>();
+        for (ConstraintSettingsSnapshot.Setting settings : snapshot.all()) {
+            CustomRuleCompiler.CompiledRule rule = compiledRuleOf(settings);
+            if (rule != null && rule.groupsAcrossTeachersAndSections()) {
+                names.add(constraintNameOf(settings));
+            }
         }
-        
-        throw new IllegalStateException("Cannot access ConstraintSettingsRepository - Spring context not available");
+        return names;
     }
-    
+
     /**
-     * Static method to get repository from Spring context
-     * This is used as a fallback when the instance doesn't have proper injection
+     * Compiled rule of a custom constraint, or null if the setting is built-in,
+     * has no rule or its rule does not compile. No rule means no constraint.
      */
-    private static ConstraintSettingsRepository getRepositoryFromContext() {
-        if (applicationContext != null) {
-            return applicationContext.getBean(ConstraintSettingsRepository.class);
+    private static CustomRuleCompiler.CompiledRule compiledRuleOf(ConstraintSettingsSnapshot.Setting settings) {
+        if (BUILT_IN_CONSTRAINT_NAMES.containsKey(settings.constraintName()) || !settings.hasRule()) {
+            return null;
+        }
+        try {
+            return CustomRuleCompiler.compile(settings.ruleDefinition());
+        } catch (IllegalArgumentException e) {
+            return null;
         }
-        throw new IllegalStateException("Cannot access ConstraintSettingsRepository - Spring context not available");
     }
 
+    /**
+     * Every built-in constraint is always part of the constraint network with a unit weight.
+     * Enablement and weights are applied per solution through constraint weight overrides
+     * (a zero weight removes the constraint), so changing them never requires a new solver.
+     * Only custom constraints depend on the settings snapshot, because they change the network.
+     */
     @Override
     public Constraint @NonNull [] defineConstraints(@NonNull ConstraintFactory factory) {
         List<Constraint> constraintList = new ArrayList<>();
+        BUILT_IN_CONSTRAINT_NAMES.keySet()
+                .forEach(constraintName -> constraintList.add(createBuiltInConstraint(factory, constraintName)));
 
-        // Load constraint settings from database dynamically
-        Map<String, ConstraintSettings> constraintSettingsMap = loadConstraintSettings();
-
-        System.out.println("=== DEFINING CONSTRAINTS ===");
-        System.out.println("Processing " + constraintSettingsMap.size() + " constraints from database");
-
-        // Process all constraints from database (both predefined and custom)
-        for (ConstraintSettings settings : constraintSettingsMap.values()) {
-            if (settings.isEnableFlag()) {
-                System.out.println("  ✓ Adding enabled constraint: " + settings.getConstraintName());
-                Constraint constraint = createConstraintByName(factory, settings);
-                if (constraint != null) {
-                    constraintList.add(constraint);
-                } else {
-                    System.out.println("  ✗ Failed to create constraint: " + settings.getConstraintName());
-                }
+        ConstraintSettingsSnapshot snapshot = currentSettings();
+        for (ConstraintSettingsSnapshot.Setting settings : snapshot.all()) {
+            if (BUILT_IN_CONSTRAINT_NAMES.containsKey(settings.constraintName())) {
+                continue;
+            }
+            CustomRuleCompiler.CompiledRule rule = compiledRuleOf(settings);
+            if (rule != null) {
+                constraintList.add(createCustomConstraint(factory, settings, rule));
+            } else if (settings.hasRule()) {
+                logger.warn("Failed to compile rule of constraint {}: {}", settings.constraintName(), settings.ruleDefinition());
             } else {
-                System.out.println("  - Skipping disabled constraint: " + settings.getConstraintName());
+                logger.debug("Custom constraint {} has no rule definition, skipping", settings.constraintName());
             }
         }
 
-        System.out.println("Total active constraints: " + constraintList.size());
-        System.out.println("=== END DEFINING CONSTRAINTS ===");
+        logger.info("Defined {} constraints from settings snapshot version {}",
+                constraintList.size(), snapshot.version());
 
         return constraintList.toArray(new Constraint[0]);
     }
 
     /**
-     * Create a constraint by name from the database settings.
-     * This method handles both predefined constraints and custom constraints.
+     * Create a predefined constraint by its settings name.
      */
-    private Constraint createConstraintByName(ConstraintFactory factory, ConstraintSettings settings) {
-        String constraintName = settings.getConstraintName();
-        int weight = settings.getConstraintWeight();
-
+    private Constraint createBuiltInConstraint(ConstraintFactory factory, String constraintName) {
         return switch (constraintName) {
             // Hard constraints (must never be violated)
-            case "teacherConflict" -> teacherConflict(factory, weight);
+            case "teacherConflict" -> teacherConflict(factory);
             case "studentGroupConflict" -> studentGroupConflict(factory);
             case "noFreeTimeslots" -> noFreeTimeslots(factory);
             case "teacherDailyWorkloadLimit" -> teacherDailyWorkloadLimit(factory);
@@ -136,99 +225,84 @@ public class TimeTableConstraintProvider implements ConstraintProvider, Applicat
             case "lowDifficultySubjectWeeklyLimit" -> lowDifficultySubjectWeeklyLimit(factory);
             case "lowDifficultyOncePerDay" -> lowDifficultyOncePerDay(factory);
             case "preferHighPriorityTheory" -> preferHighPriorityTheory(factory);
-
-            // Custom constraints - create generic constraint based on type
-            default -> createCustomConstraint(factory, settings);
+            default -> throw new IllegalArgumentException("Unknown built-in constraint: " + constraintName);
         };
     }
 
     /**
-     * Create a custom constraint based on the settings.
-     * This allows users to add constraints that don't have predefined implementations.
+     * Create a custom constraint from its compiled rule.
+     * The actual weight is applied per solution, see SolverService#applyConstraintWeights.
      */
-    private Constraint createCustomConstraint(ConstraintFactory factory, ConstraintSettings settings) {
-        String constraintName = settings.getConstraintName();
-        int weight = settings.getConstraintWeight();
-        String type = settings.getConstraintType();
-
-        // For custom constraints, we create a simple generic constraint
-        // In a real implementation, you might want to store constraint logic in the database
-        // or have a plugin system for custom constraints
-        
-        if ("Hard".equalsIgnoreCase(type)) {
-            // Create a hard constraint that penalizes unassigned lessons
-            return factory.forEach(TimeFoldLesson.class)
-                    .filter(lesson -> lesson.getTimeslot() == null)
-                    .penalize(HardSoftScore.ofHard(weight))
-                    .asConstraint("Custom Hard: " + constraintName);
-        } else {
-            // Create a soft constraint that rewards assigned lessons
-            return factory.forEach(TimeFoldLesson.class)
-                    .filter(lesson -> lesson.getTimeslot() != null)
-                    .reward(HardSoftScore.ofSoft(weight))
-                    .asConstraint("Custom Soft: " + constraintName);
+    private Constraint createCustomConstraint(ConstraintFactory factory, ConstraintSettingsSnapshot.Setting settings,
+                                              CustomRuleCompiler.CompiledRule rule) {
+        HardSoftScore unitWeight = settings.isHard() ? HardSoftScore.ONE_HARD : HardSoftScore.ONE_SOFT;
+        UniConstraintStream<TimeFoldLesson> lessons = factory.forEach(TimeFoldLesson.class);
+        if (rule.filter() != null) {
+            lessons = lessons.filter(rule.filter());
+        }
+        if (!rule.isGrouped()) {
+            return lessons.penalize(unitWeight)
+                    .asConstraint(constraintNameOf(settings));
         }
+        return lessons.groupBy(rule.groupKey(), ConstraintCollectors.count())
+                .filter(rule.overLimit())
+                .penalize(unitWeight, rule.excess())
+                .asConstraint(constraintNameOf(settings));
+    }
+
+    /*
+     * Trait filters are shared instances, so every constraint starting from the same trait stream
+     * reuses one filter node and lessons without the trait never reach the nodes behind it.
+     */
+    private static final Predicate<TimeFoldLesson> PRACTICAL =
+            l -> l.hasTraits(LessonTraits.PRACTICAL);
+    private static final Predicate<TimeFoldLesson> LOW_DIFFICULTY =
+            l -> l.hasTraits(LessonTraits.LOW_DIFFICULTY);
+    private static final Predicate<TimeFoldLesson> HIGH_DIFFICULTY_THEORY =
+            l -> l.hasTraits(LessonTraits.THEORY | LessonTraits.HIGH_DIFFICULTY);
+
+    private static final ToIntFunction<TimeFoldLesson> LESSON_DAY = l -> l.getTimeslot().getDayIndex();
+
+    // Lessons without a section are grouped together, like in the section conflict join
+    private static Object sectionIdOf(TimeFoldLesson lesson) {
+        return lesson.getSection() != null ? lesson.getSection().getId() : null;
+    }
+
+    private static UniConstraintStream<TimeFoldLesson> lessonsWith(ConstraintFactory factory,
+                                                                   Predicate<TimeFoldLesson> trait) {
+        return factory.forEach(TimeFoldLesson.class).filter(trait);
     }
 
     /**
-     * Load all constraint settings from database and create a map for quick lookup
+     * The day of a lesson's shift as one key, since sequence indexes restart every shift.
      */
-    private Map<String, ConstraintSettings> loadConstraintSettings() {
-        try {
-            ConstraintSettingsRepository repository;
-            try {
-                repository = getRepository();
-            } catch (IllegalStateException e) {
-                // Fallback to static context access
-                System.out.println("Falling back to static context access for repository");
-                repository = getRepositoryFromContext();
-            }
-            
-            List<ConstraintSettings> allSettings = repository.findAll();
-            
-            System.out.println("=== CONSTRAINT LOADING DEBUG ===");
-            System.out.println("Total constraints loaded from database: " + allSettings.size());
-            allSettings.forEach(settings -> 
-                System.out.println("  - " + settings.getConstraintName() + 
-                    " (enabled: " + settings.isEnableFlag() + 
-                    ", weight: " + settings.getConstraintWeight() + ")"));
-            System.out.println("=== END CONSTRAINT LOADING DEBUG ===");
-            
-            return allSettings.stream()
-                    .collect(Collectors.toMap(
-                            ConstraintSettings::getConstraintName,
-                            settings -> settings
-                    ));
-        } catch (Exception e) {
-            System.err.println("ERROR loading constraint settings: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Failed to load constraint settings from database", e);
-        }
+    private static int shiftDayOf(TimeFoldLesson lesson) {
+        return lesson.getTimeslot().getShiftIndex() * DayOfWeek.values().length + lesson.getTimeslot().getDayIndex();
     }
 
     /**
-     * Check if a constraint is enabled by name
+     * Matches lessons on the same day of the same shift.
      */
-    private boolean isConstraintEnabled(Map<String, ConstraintSettings> settingsMap, String constraintName) {
-        ConstraintSettings settings = settingsMap.get(constraintName);
-        return settings != null && settings.isEnableFlag();
+    private static BiJoiner<TimeFoldLesson, TimeFoldLesson> sameShiftDay() {
+        return Joiners.equal(TimeTableConstraintProvider::shiftDayOf);
     }
 
     /**
-     * Get constraint weight by name, defaulting to 1 if not found
+     * Matches only when the right lesson sits in the period directly after the left one,
+     * so back-to-back rules index on adjacency instead of filtering every same-day pair.
      */
-    private int getConstraintWeight(Map<String, ConstraintSettings> settingsMap, String constraintName) {
-        ConstraintSettings settings = settingsMap.get(constraintName);
-        return settings != null ? settings.getConstraintWeight() : 1;
+    private static BiJoiner<TimeFoldLesson, TimeFoldLesson> nextPeriod() {
+        return Joiners.equal(l -> l.getTimeslot().getSequenceIndex() + 1,
+                l -> l.getTimeslot().getSequenceIndex());
     }
 
     // --- HARD CONSTRAINTS ---
 
-    Constraint teacherConflict(ConstraintFactory factory, int weight) {
+    Constraint teacherConflict(ConstraintFactory factory) {
         return factory.forEachUniquePair(TimeFoldLesson.class,
                         Joiners.equal(TimeFoldLesson::getTimeslot),
                         Joiners.equal(l -> l.getTeacher() != null ? l.getTeacher().getId() : null))
-                .penalize(HardSoftScore.ofHard(weight))
+                .penalize(HardSoftScore.ONE_HARD)
                 .asConstraint("Teacher conflict");
     }
 
@@ -251,11 +325,11 @@ public class TimeTableConstraintProvider implements ConstraintProvider, Applicat
         return factory.forEach(TimeFoldLesson.class)
                 .filter(l -> l.getTimeslot() != null && l.getTeacher() != null)
                 .groupBy(l -> l.getTeacher().getId(),
-                        l -> l.getTimeslot().getDayOfWeek(),
+                        l -> l.getTimeslot().getDayIndex(),
                         ConstraintCollectors.count())
-                .filter((teacherId, day, count) -> count > 5)
+                .filter((teacherId, day, count) -> count > TEACHER_DAILY_LESSON_LIMIT)
                 .penalize(HardSoftScore.ONE_HARD,
-                        (teacherId, day, count) -> Math.toIntExact(count - 5))
+                        (teacherId, day, count) -> Math.toIntExact(count - TEACHER_DAILY_LESSON_LIMIT))
                 .asConstraint("Teacher daily workload limit");
     }
 
@@ -264,96 +338,76 @@ public class TimeTableConstraintProvider implements ConstraintProvider, Applicat
                 .join(TimeFoldLesson.class,
                         Joiners.equal(l -> l.getSubject() != null ? l.getSubject().getId() : null),
                         Joiners.equal(l -> l.getSection() != null ? l.getSection().getId() : null),
-                        Joiners.equal(l -> l.getTimeslot() != null ? l.getTimeslot().getDayOfWeek() : null))
-                .filter((l1, l2) -> {
-                    if (l1.getTimeslot() == null || l2.getTimeslot() == null) return false;
-                    if (l1.getTimeslot().equals(l2.getTimeslot())) return false;
-                    Duration gap = Duration.between(l1.getTimeslot().getEndTime(), l2.getTimeslot().getStartTime());
-                    return !gap.isNegative() && gap.compareTo(Duration.ofMinutes(30)) <= 0;
-                })
+                        sameShiftDay(),
+                        nextPeriod())
                 .penalize(HardSoftScore.ONE_HARD)
                 .asConstraint("No back-to-back same subject");
     }
 
     // --- SEMI-HARD / FLEXIBLE RULES ---
 
+    /**
+     * Penalizes every run of three or more back-to-back periods of a teacher within one shift-day,
+     * weighted by how far the run exceeds two periods. Runs are tracked incrementally by the
+     * consecutive-sequence collector, so a move only recomputes the run it touches.
+     */
     Constraint teacherNoThreeConsecutive(ConstraintFactory factory) {
         return factory.forEach(TimeFoldLesson.class)
-                .filter(l -> l.getTimeslot() != null && l.getTeacher() != null)
+                .filter(l -> l.getTeacher() != null)
                 .groupBy(l -> l.getTeacher().getId(),
-                        l -> l.getTimeslot().getDayOfWeek(),
-                        ConstraintCollectors.toList())
-                .filter((teacherId, day, lessons) -> {
-                    if (lessons.size() < 3) return false;
-                    lessons.sort(Comparator.comparing(l -> l.getTimeslot().getStartTime()));
-                    for (int i = 0; i < lessons.size() - 2; i++) {
-                        Duration gap1 = Duration.between(
-                                lessons.get(i).getTimeslot().getEndTime(),
-                                lessons.get(i + 1).getTimeslot().getStartTime());
-                        Duration gap2 = Duration.between(
-                                lessons.get(i + 1).getTimeslot().getEndTime(),
-                                lessons.get(i + 2).getTimeslot().getStartTime());
-                        if (gap1.compareTo(Duration.ofMinutes(30)) <= 0 &&
-                                gap2.compareTo(Duration.ofMinutes(30)) <= 0) {
-                            return true;
-                        }
-                    }
-                    return false;
-                })
-                .penalize(HardSoftScore.ONE_SOFT)
+                        l -> l.getTimeslot().getShiftIndex(),
+                        l -> l.getTimeslot().getDayIndex(),
+                        ConstraintCollectors.toConsecutiveSequences(l -> l.getTimeslot().getSequenceIndex()))
+                .flattenLast(SequenceChain::getConsecutiveSequences)
+                .filter((teacherId, shift, day, run) -> run.getLength() >= 3)
+                .penalize(HardSoftScore.ONE_SOFT,
+                        (teacherId, shift, day, run) -> run.getLength() - 2)
                 .asConstraint("Teacher no three consecutive periods");
     }
 
+    /**
+     * A practical subject should occupy exactly one block of two consecutive periods in a shift-day it is taught.
+     */
     Constraint practicalSubjectConsecutivePeriods(ConstraintFactory factory) {
-        return factory.forEach(TimeFoldLesson.class)
-                .filter(l -> l.getSubject() != null && Boolean.TRUE.equals(l.getSubject().getIsPractical()))
-                .groupBy(l -> l.getSubject().getId(),
-                        l -> l.getSection().getId(),
-                        l -> l.getTimeslot().getDayOfWeek(),
-                        ConstraintCollectors.toList())
-                .filter((subjectId, sectionId, day, lessons) -> {
-                    if (lessons.size() != 2) return true;
-                    lessons.sort(Comparator.comparing(l -> l.getTimeslot().getStartTime()));
-                    Duration gap = Duration.between(lessons.get(0).getTimeslot().getEndTime(),
-                            lessons.get(1).getTimeslot().getStartTime());
-                    return gap.compareTo(Duration.ofMinutes(30)) > 0;
-                })
+        return lessonsWith(factory, PRACTICAL)
+                .groupBy(TimeTableConstraintProvider::sectionIdOf,
+                        l -> l.getSubject().getId(),
+                        TimeTableConstraintProvider::shiftDayOf,
+                        ConstraintCollectors.toConsecutiveSequences(l -> l.getTimeslot().getSequenceIndex()))
+                .filter((sectionId, subjectId, shiftDay, runs) -> !isSingleDoublePeriod(runs))
                 .penalize(HardSoftScore.ONE_SOFT)
                 .asConstraint("Practical subject consecutive periods");
     }
 
+    private static boolean isSingleDoublePeriod(SequenceChain<TimeFoldLesson, Integer> runs) {
+        Sequence<TimeFoldLesson, Integer> first = runs.getFirstSequence();
+        return first == runs.getLastSequence() && first.getCount() == 2 && first.getLength() == 2;
+    }
+
     // --- SOFT CONSTRAINTS ---
 
     Constraint teacherTimeEfficiency(ConstraintFactory factory) {
         return factory.forEach(TimeFoldLesson.class)
                 .join(TimeFoldLesson.class,
                         Joiners.equal(l -> l.getTeacher() != null ? l.getTeacher().getId() : null),
-                        Joiners.equal(l -> l.getTimeslot() != null ? l.getTimeslot().getDayOfWeek() : null))
-                .filter((l1, l2) -> {
-                    if (l1.getTimeslot() == null || l2.getTimeslot() == null) return false;
-                    if (l1.getTimeslot().equals(l2.getTimeslot())) return false;
-                    Duration gap = Duration.between(l1.getTimeslot().getEndTime(), l2.getTimeslot().getStartTime());
-                    return !gap.isNegative() && gap.compareTo(Duration.ofMinutes(30)) <= 0;
-                })
+                        Joiners.equal(l -> l.getTimeslot().getShiftIndex()),
+                        Joiners.equal(l -> l.getTimeslot().getDayIndex()),
+                        nextPeriod())
                 .reward(HardSoftScore.ONE_SOFT)
                 .asConstraint("Teacher time efficiency");
     }
 
     Constraint practicalSubjectsWeekdaysOnly(ConstraintFactory factory) {
-        return factory.forEach(TimeFoldLesson.class)
-                .filter(l -> l.getSubject() != null &&
-                        Boolean.TRUE.equals(l.getSubject().getIsPractical()) &&
-                        l.getTimeslot() != null &&
-                        l.getTimeslot().getDayOfWeek() == DayOfWeek.SATURDAY)
+        return lessonsWith(factory, PRACTICAL)
+                .filter(l -> l.getTimeslot().getDayOfWeek() == DayOfWeek.SATURDAY)
                 .penalize(HardSoftScore.ONE_SOFT)
                 .asConstraint("Practical subjects weekdays only");
     }
 
     Constraint onePracticalPerDayPerSection(ConstraintFactory factory) {
-        return factory.forEach(TimeFoldLesson.class)
-                .filter(l -> l.getSubject() != null && Boolean.TRUE.equals(l.getSubject().getIsPractical()))
-                .groupBy(l -> l.getSection().getId(),
-                        l -> l.getTimeslot().getDayOfWeek(),
+        return lessonsWith(factory, PRACTICAL)
+                .groupBy(TimeTableConstraintProvider::sectionIdOf,
+                        l -> l.getTimeslot().getDayIndex(),
                         ConstraintCollectors.count())
                 .filter((sectionId, day, count) -> count > 1)
                 .penalize(HardSoftScore.ONE_SOFT,
@@ -362,26 +416,18 @@ public class TimeTableConstraintProvider implements ConstraintProvider, Applicat
     }
 
     Constraint practicalSubjectTwoDaysPerWeek(ConstraintFactory factory) {
-        return factory.forEach(TimeFoldLesson.class)
-                .filter(l -> l.getSubject() != null && Boolean.TRUE.equals(l.getSubject().getIsPractical()))
-                .groupBy(l -> l.getSection().getId(),
+        return lessonsWith(factory, PRACTICAL)
+                .groupBy(TimeTableConstraintProvider::sectionIdOf,
                         l -> l.getSubject().getId(),
-                        ConstraintCollectors.toList())
-                .filter((sectionId, subjectId, lessons) -> {
-                    Set<DayOfWeek> distinctDays = lessons.stream()
-                            .filter(l -> l.getTimeslot() != null)
-                            .map(l -> l.getTimeslot().getDayOfWeek())
-                            .collect(Collectors.toSet());
-                    return distinctDays.size() > 2;
-                })
+                        DistinctDaysCollector.distinctDays(LESSON_DAY))
+                .filter((sectionId, subjectId, dayMask) -> Integer.bitCount(dayMask) > 2)
                 .penalize(HardSoftScore.ONE_SOFT)
                 .asConstraint("Practical subject two days per week");
     }
 
     Constraint lowDifficultySubjectWeeklyLimit(ConstraintFactory factory) {
-        return factory.forEach(TimeFoldLesson.class)
-                .filter(l -> l.getSubject() != null && l.getSubject().getDifficultyLevel() == DifficultyLevel.LOW)
-                .groupBy(l -> l.getSection().getId(),
+        return lessonsWith(factory, LOW_DIFFICULTY)
+                .groupBy(TimeTableConstraintProvider::sectionIdOf,
                         l -> l.getSubject().getId(),
                         ConstraintCollectors.count())
                 .filter((sectionId, subjectId, count) -> count > 2)
@@ -391,11 +437,10 @@ public class TimeTableConstraintProvider implements ConstraintProvider, Applicat
     }
 
     Constraint lowDifficultyOncePerDay(ConstraintFactory factory) {
-        return factory.forEach(TimeFoldLesson.class)
-                .filter(l -> l.getSubject() != null && l.getSubject().getDifficultyLevel() == DifficultyLevel.LOW)
-                .groupBy(l -> l.getSection().getId(),
+        return lessonsWith(factory, LOW_DIFFICULTY)
+                .groupBy(TimeTableConstraintProvider::sectionIdOf,
                         l -> l.getSubject().getId(),
-                        l -> l.getTimeslot().getDayOfWeek(),
+                        l -> l.getTimeslot().getDayIndex(),
                         ConstraintCollectors.count())
                 .filter((sectionId, subjectId, day, count) -> count > 1)
                 .penalize(HardSoftScore.ONE_SOFT,
@@ -404,10 +449,7 @@ public class TimeTableConstraintProvider implements ConstraintProvider, Applicat
     }
 
     Constraint preferHighPriorityTheory(ConstraintFactory factory) {
-        return factory.forEach(TimeFoldLesson.class)
-                .filter(l -> l.getSubject() != null &&
-                        Boolean.TRUE.equals(l.getSubject().getIsTheory()) &&
-                        l.getSubject().getDifficultyLevel() == DifficultyLevel.HIGH)
+        return lessonsWith(factory, HIGH_DIFFICULTY_THEORY)
                 .reward(HardSoftScore.ONE_SOFT)
                 .asConstraint("Prefer high priority theory");
     }
@@ -0,0 +1,399 @@
+package com.timetable.problem_solver.constraints;
+
+import java.time.DayOfWeek;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jspecify.annotations.NonNull;
+
+import com.timetable.problem_solver.model.LessonTraits;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.domain.solution.ConstraintWeightOverrides;
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.score.calculator.IncrementalScoreCalculator;
+
+/**
+ * Hand-written incremental equivalent of the built-in constraints of {@link TimeTableConstraintProvider}.
+ * Teachers, sections, subjects and timeslots are mapped to dense indexes when the working solution is set,
+ * and every rule is kept as occupancy counters in flat int arrays, so a move only touches a few cells.
+ * The match weight of each constraint is accumulated separately and multiplied by the constraint weight
+ * (from the solution's ConstraintWeightOverrides) when the score is calculated.
+ * Custom rule constraints are not covered.
+ */
+public class TimeTableIncrementalScoreCalculator implements IncrementalScoreCalculator<TimeFoldTimetable, HardSoftScore> {
+
+    // Settings names of the covered constraints, the index is the constraint ordinal
+    private static final List<String> CONSTRAINTS = List.of(
+            "teacherConflict", "studentGroupConflict", "noFreeTimeslots", "teacherDailyWorkloadLimit",
+            "noBackToBackSameSubject", "teacherNoThreeConsecutive", "practicalSubjectConsecutivePeriods",
+            "teacherTimeEfficiency", "practicalSubjectsWeekdaysOnly", "onePracticalPerDayPerSection",
+            "practicalSubjectTwoDaysPerWeek", "lowDifficultySubjectWeeklyLimit", "lowDifficultyOncePerDay",
+            "preferHighPriorityTheory");
+    private static final int TEACHER_CONFLICT = 0;
+    private static final int STUDENT_GROUP_CONFLICT = 1;
+    private static final int TEACHER_DAILY_WORKLOAD = 3;
+    private static final int NO_BACK_TO_BACK = 4;
+    private static final int TEACHER_NO_THREE_CONSECUTIVE = 5;
+    private static final int PRACTICAL_CONSECUTIVE = 6;
+    private static final int TEACHER_TIME_EFFICIENCY = 7;
+    private static final int PRACTICAL_WEEKDAYS_ONLY = 8;
+    private static final int ONE_PRACTICAL_PER_DAY = 9;
+    private static final int PRACTICAL_TWO_DAYS = 10;
+    private static final int LOW_DIFFICULTY_WEEKLY = 11;
+    private static final int LOW_DIFFICULTY_ONCE_PER_DAY = 12;
+    private static final int PREFER_HIGH_PRIORITY_THEORY = 13;
+    // Number of hard constraints at the start of CONSTRAINTS
+    private static final int HARD_CONSTRAINT_COUNT = 5;
+
+    private static final int DAYS = 7;
+    private static final int SATURDAY = DayOfWeek.SATURDAY.ordinal();
+
+    /**
+     * Dense indexes of a lesson's problem facts, fixed for the lifetime of the working solution.
+     */
+    private record LessonFacts(int teacher, boolean hasTeacher, int section, int sectionSubject,
+                               boolean practical, boolean theoryHigh, boolean low) {
+    }
+
+    private final Map<TimeFoldLesson, LessonFacts> lessonFacts = new IdentityHashMap<>();
+    // By identity, every lesson references the timeslot instances of the working solution
+    private final Map<TimeFoldTimeslot, Integer> slotIndexes = new IdentityHashMap<>();
+    private final Map<Object, Integer> teacherIndexes = new HashMap<>();
+    private final Map<Object, Integer> sectionIndexes = new HashMap<>();
+    private final Map<List<Object>, Integer> sectionSubjectIndexes = new HashMap<>();
+
+    private int[] slotDay;
+    private int[] slotShift;
+    private int[] slotSeq;
+    private int slotCount;
+    private int shiftCount;
+    // Sequence indexes are stored shifted by one, so seq - 1 and seq + 1 are always in bounds
+    private int seqSpan;
+
+    private int[] teacherSlot;
+    private int[] sectionSlot;
+    private int[] teacherDay;
+    private int[] sectionSubjectShiftDaySeq;
+    private int[] teacherShiftDaySeq;
+    // Sum of the sequence indexes of the practical lessons and of their squares, to tell a double period apart
+    private int[] practicalShiftDaySeqSum;
+    private int[] practicalShiftDaySeqSquares;
+    private int[] practicalShiftDayCount;
+    private int[] practicalShiftDayPenalty;
+    private int[] practicalDayCount;
+    private int[] practicalDistinctDays;
+    private int[] practicalSectionDay;
+    private int[] lowSectionSubject;
+    private int[] lowSectionSubjectDay;
+
+    // Match weight per constraint: negative for penalties, positive for rewards
+    private final long[] matchWeights = new long[CONSTRAINTS.size()];
+    private final int[] hardWeights = new int[CONSTRAINTS.size()];
+    private final int[] softWeights = new int[CONSTRAINTS.size()];
+
+    @Override
+    public void resetWorkingSolution(@NonNull TimeFoldTimetable workingSolution) {
+        readWeights(workingSolution.getConstraintWeightOverrides());
+        indexTimeslots(workingSolution.getTimeslots());
+
+        lessonFacts.clear();
+        teacherIndexes.clear();
+        sectionIndexes.clear();
+        sectionSubjectIndexes.clear();
+        for (TimeFoldLesson lesson : workingSolution.getLessons()) {
+            lessonFacts.put(lesson, factsOf(lesson));
+        }
+        allocate();
+
+        Arrays.fill(matchWeights, 0L);
+        for (TimeFoldLesson lesson : workingSolution.getLessons()) {
+            insert(lesson);
+        }
+    }
+
+    @Override
+    public void beforeEntityAdded(@NonNull Object entity) {
+        // Nothing to do
+    }
+
+    @Override
+    public void afterEntityAdded(@NonNull Object entity) {
+        TimeFoldLesson lesson = (TimeFoldLesson) entity;
+        LessonFacts facts = factsOf(lesson);
+        if (facts.teacher() >= teacherCapacity() || facts.section() >= sectionCapacity()
+                || facts.sectionSubject() >= sectionSubjectCapacity()) {
+            // A new teacher, section or subject does not fit the arrays, rebuild them
+            lessonFacts.put(lesson, facts);
+            rebuild();
+            return;
+        }
+        lessonFacts.put(lesson, facts);
+        insert(lesson);
+    }
+
+    @Override
+    public void beforeVariableChanged(@NonNull Object entity, @NonNull String variableName) {
+        retract((TimeFoldLesson) entity);
+    }
+
+    @Override
+    public void afterVariableChanged(@NonNull Object entity, @NonNull String variableName) {
+        insert((TimeFoldLesson) entity);
+    }
+
+    @Override
+    public void beforeEntityRemoved(@NonNull Object entity) {
+        retract((TimeFoldLesson) entity);
+    }
+
+    @Override
+    public void afterEntityRemoved(@NonNull Object entity) {
+        lessonFacts.remove((TimeFoldLesson) entity);
+    }
+
+    @Override
+    public @NonNull HardSoftScore calculateScore() {
+        long hardScore = 0;
+        long softScore = 0;
+        for (int i = 0; i < matchWeights.length; i++) {
+            hardScore += matchWeights[i] * hardWeights[i];
+            softScore += matchWeights[i] * softWeights[i];
+        }
+        return HardSoftScore.of(Math.toIntExact(hardScore), Math.toIntExact(softScore));
+    }
+
+    private void readWeights(ConstraintWeightOverrides<HardSoftScore> overrides) {
+        for (int i = 0; i < CONSTRAINTS.size(); i++) {
+            HardSoftScore weight = overrides != null
+                    ? overrides.getConstraintWeight(TimeTableConstraintProvider.BUILT_IN_CONSTRAINT_NAMES.get(CONSTRAINTS.get(i)))
+                    : null;
+            if (weight == null) {
+                weight = i < HARD_CONSTRAINT_COUNT ? HardSoftScore.ONE_HARD : HardSoftScore.ONE_SOFT;
+            }
+            hardWeights[i] = weight.hardScore();
+            softWeights[i] = weight.softScore();
+        }
+    }
+
+    private void indexTimeslots(List<TimeFoldTimeslot> timeslots) {
+        slotIndexes.clear();
+        slotCount = timeslots.size();
+        slotDay = new int[slotCount];
+        slotShift = new int[slotCount];
+        slotSeq = new int[slotCount];
+        int maxShift = 0;
+        int maxSeq = 0;
+        for (int i = 0; i < slotCount; i++) {
+            TimeFoldTimeslot timeslot = timeslots.get(i);
+            slotIndexes.put(timeslot, i);
+            slotDay[i] = timeslot.getDayIndex();
+            slotShift[i] = timeslot.getShiftIndex();
+            slotSeq[i] = timeslot.getSequenceIndex() + 1;
+            maxShift = Math.max(maxShift, timeslot.getShiftIndex());
+            maxSeq = Math.max(maxSeq, timeslot.getSequenceIndex());
+        }
+        shiftCount = maxShift + 1;
+        seqSpan = maxSeq + 3;
+    }
+
+    private LessonFacts factsOf(TimeFoldLesson lesson) {
+        Object teacherId = lesson.getTeacher() != null ? lesson.getTeacher().getId() : null;
+        Object sectionId = lesson.getSection() != null ? lesson.getSection().getId() : null;
+        Object subjectId = lesson.getSubject() != null ? lesson.getSubject().getId() : null;
+        int teacher = teacherIndexes.computeIfAbsent(teacherId, key -> teacherIndexes.size());
+        int section = sectionIndexes.computeIfAbsent(sectionId, key -> sectionIndexes.size());
+        int sectionSubject = sectionSubjectIndexes.computeIfAbsent(Arrays.asList(sectionId, subjectId),
+                key -> sectionSubjectIndexes.size());
+        boolean practical = lesson.hasTraits(LessonTraits.PRACTICAL);
+        boolean theoryHigh = lesson.hasTraits(LessonTraits.THEORY | LessonTraits.HIGH_DIFFICULTY);
+        boolean low = lesson.hasTraits(LessonTraits.LOW_DIFFICULTY);
+        return new LessonFacts(teacher, teacherId != null, section, sectionSubject, practical, theoryHigh, low);
+    }
+
+    private int teacherCapacity() {
+        return teacherDay.length / DAYS;
+    }
+
+    private int sectionCapacity() {
+        return sectionSlot.length / Math.max(1, slotCount);
+    }
+
+    private int sectionSubjectCapacity() {
+        return lowSectionSubject.length;
+    }
+
+    private void allocate() {
+        int teachers = Math.max(1, teacherIndexes.size());
+        int sections = Math.max(1, sectionIndexes.size());
+        int sectionSubjects = Math.max(1, sectionSubjectIndexes.size());
+        teacherSlot = new int[teachers * slotCount];
+        sectionSlot = new int[sections * slotCount];
+        teacherDay = new int[teachers * DAYS];
+        sectionSubjectShiftDaySeq = new int[sectionSubjects * shiftCount * DAYS * seqSpan];
+        teacherShiftDaySeq = new int[teachers * shiftCount * DAYS * seqSpan];
+        practicalShiftDaySeqSum = new int[sectionSubjects * shiftCount * DAYS];
+        practicalShiftDaySeqSquares = new int[sectionSubjects * shiftCount * DAYS];
+        practicalShiftDayCount = new int[sectionSubjects * shiftCount * DAYS];
+        practicalShiftDayPenalty = new int[sectionSubjects * shiftCount * DAYS];
+        practicalDayCount = new int[sectionSubjects * DAYS];
+        practicalDistinctDays = new int[sectionSubjects];
+        practicalSectionDay = new int[sections * DAYS];
+        lowSectionSubject = new int[sectionSubjects];
+        lowSectionSubjectDay = new int[sectionSubjects * DAYS];
+    }
+
+    private void rebuild() {
+        allocate();
+        Arrays.fill(matchWeights, 0L);
+        for (TimeFoldLesson lesson : lessonFacts.keySet()) {
+            insert(lesson);
+        }
+    }
+
+    private void insert(TimeFoldLesson lesson) {
+        update(lesson, 1);
+    }
+
+    private void retract(TimeFoldLesson lesson) {
+        update(lesson, -1);
+    }
+
+    /**
+     * Add (delta = 1) or remove (delta = -1) an assigned lesson from every counter.
+     * Unassigned lessons are not matched by any built-in constraint.
+     */
+    private void update(TimeFoldLesson lesson, int delta) {
+        if (lesson.getTimeslot() == null) {
+            return;
+        }
+        LessonFacts facts = lessonFacts.get(lesson);
+        int slot = slotIndexes.get(lesson.getTimeslot());
+        int day = slotDay[slot];
+        int seq = slotSeq[slot];
+
+        // Pairs sharing a timeslot: adding a lesson creates one pair with each lesson already there
+        matchWeights[TEACHER_CONFLICT] -= delta * pairsWith(teacherSlot, facts.teacher() * slotCount + slot, delta);
+        matchWeights[STUDENT_GROUP_CONFLICT] -= delta * pairsWith(sectionSlot, facts.section() * slotCount + slot, delta);
+
+        if (facts.hasTeacher()) {
+            matchWeights[TEACHER_DAILY_WORKLOAD] -= excessDelta(teacherDay, facts.teacher() * DAYS + day, delta,
+                    TimeTableConstraintProvider.TEACHER_DAILY_LESSON_LIMIT);
+        }
+
+        int sectionSubjectDay = facts.sectionSubject() * DAYS + day;
+        int sectionSubjectShiftDay = (facts.sectionSubject() * shiftCount + slotShift[slot]) * DAYS + day;
+        matchWeights[NO_BACK_TO_BACK] -= delta * neighboursOf(sectionSubjectShiftDaySeq,
+                sectionSubjectShiftDay * seqSpan + seq, delta);
+
+        int teacherShiftDay = (facts.teacher() * shiftCount + slotShift[slot]) * DAYS + day;
+        matchWeights[TEACHER_TIME_EFFICIENCY] += delta * neighboursOf(teacherShiftDaySeq, teacherShiftDay * seqSpan + seq, delta);
+        if (facts.hasTeacher()) {
+            matchWeights[TEACHER_NO_THREE_CONSECUTIVE] -= runPenaltyDelta(teacherShiftDaySeq,
+                    teacherShiftDay * seqSpan + seq, delta);
+        }
+
+        if (facts.practical()) {
+            if (day == SATURDAY) {
+                matchWeights[PRACTICAL_WEEKDAYS_ONLY] -= delta;
+            }
+            matchWeights[ONE_PRACTICAL_PER_DAY] -= excessDelta(practicalSectionDay, facts.section() * DAYS + day, delta, 1);
+
+            practicalShiftDaySeqSum[sectionSubjectShiftDay] += delta * seq;
+            practicalShiftDaySeqSquares[sectionSubjectShiftDay] += delta * seq * seq;
+            int shiftDayCount = practicalShiftDayCount[sectionSubjectShiftDay] += delta;
+            int penalty = shiftDayCount == 0 ? 0 : doublePeriodPenalty(sectionSubjectShiftDay, shiftDayCount);
+            matchWeights[PRACTICAL_CONSECUTIVE] -= penalty - practicalShiftDayPenalty[sectionSubjectShiftDay];
+            practicalShiftDayPenalty[sectionSubjectShiftDay] = penalty;
+
+            int dayCount = practicalDayCount[sectionSubjectDay] += delta;
+            if ((delta > 0 && dayCount == 1) || (delta < 0 && dayCount == 0)) {
+                int before = practicalDistinctDays[facts.sectionSubject()];
+                int after = practicalDistinctDays[facts.sectionSubject()] += delta;
+                matchWeights[PRACTICAL_TWO_DAYS] -= (after > 2 ? 1 : 0) - (before > 2 ? 1 : 0);
+            }
+        }
+
+        if (facts.low()) {
+            matchWeights[LOW_DIFFICULTY_WEEKLY] -= excessDelta(lowSectionSubject, facts.sectionSubject(), delta, 2);
+            matchWeights[LOW_DIFFICULTY_ONCE_PER_DAY] -= excessDelta(lowSectionSubjectDay, sectionSubjectDay, delta, 1);
+        }
+
+        if (facts.theoryHigh()) {
+            matchWeights[PREFER_HIGH_PRIORITY_THEORY] += delta;
+        }
+    }
+
+    /**
+     * Update a cell counter and return the number of other lessons in the cell.
+     */
+    private static int pairsWith(int[] counts, int index, int delta) {
+        if (delta > 0) {
+            return counts[index]++;
+        }
+        return --counts[index];
+    }
+
+    /**
+     * Update a sequence counter and return the number of lessons in the periods directly before and after.
+     */
+    private static int neighboursOf(int[] counts, int index, int delta) {
+        counts[index] += delta;
+        return counts[index - 1] + counts[index + 1];
+    }
+
+    /**
+     * Update a group counter and return the change of its penalty {@code max(0, count - limit)}.
+     */
+    private static int excessDelta(int[] counts, int index, int delta, int limit) {
+        int before = counts[index];
+        int after = counts[index] += delta;
+        return Math.max(0, after - limit) - Math.max(0, before - limit);
+    }
+
+    /**
+     * Change of the sum of {@code length - 2} over all runs of three or more consecutive occupied periods,
+     * after a sequence counter was updated. Only the runs reaching the updated period change, so this scans
+     * those runs and never the rest of the day; the empty periods around every shift-day bound the scan.
+     */
+    private static int runPenaltyDelta(int[] counts, int index, int delta) {
+        boolean occupied = counts[index] > 0;
+        boolean wasOccupied = counts[index] - delta > 0;
+        if (occupied == wasOccupied) {
+            return 0;
+        }
+        int before = 0;
+        while (counts[index - before - 1] > 0) {
+            before++;
+        }
+        int after = 0;
+        while (counts[index + after + 1] > 0) {
+            after++;
+        }
+        int joined = runPenaltyOf(before + 1 + after);
+        int split = runPenaltyOf(before) + runPenaltyOf(after);
+        return occupied ? joined - split : split - joined;
+    }
+
+    private static int runPenaltyOf(int runLength) {
+        return Math.max(0, runLength - 2);
+    }
+
+    /**
+     * 0 when the lessons form exactly one block of two consecutive periods, otherwise 1.
+     * Two lessons at sequence indexes a and b are consecutive when {@code (a - b)^2 = 2(a^2 + b^2) - (a + b)^2} is 1.
+     */
+    private int doublePeriodPenalty(int shiftDay, int lessonCount) {
+        if (lessonCount != 2) {
+            return 1;
+        }
+        int sum = practicalShiftDaySeqSum[shiftDay];
+        int squaredDistance = 2 * practicalShiftDaySeqSquares[shiftDay] - sum * sum;
+        return squaredDistance == 1 ? 0 : 1;
+    }
+}
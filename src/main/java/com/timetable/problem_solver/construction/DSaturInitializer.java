@@ -0,0 +1,444 @@
+package com.timetable.problem_solver.construction;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.timetable.problem_solver.constraints.TimeTableConstraintProvider;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.score.director.ScoreDirector;
+import ai.timefold.solver.core.api.solver.phase.PhaseCommand;
+
+/**
+ * Assigns every lesson without a timeslot by greedy graph colouring (DSatur): lessons sharing a teacher
+ * or section are adjacent, timeslots are the colours. It repeatedly picks the unassigned lesson whose
+ * neighbours already occupy the most distinct timeslots of its range, ties broken by the most neighbours,
+ * and gives it the timeslot of its range with the fewest neighbours, so a conflict is only created when
+ * every timeslot is taken. Among those timeslots it avoids the other hard constraints a placement decides
+ * on its own, the teacher daily workload limit and the same subject back to back, and then prefers periods
+ * next to another lesson of the teacher, without making a run of three, on a day the section does not have
+ * the subject yet. Lessons that already have a timeslot keep it and count as assigned neighbours.
+ * The construction heuristic and local search that follow handle everything else.
+ */
+public class DSaturInitializer implements PhaseCommand<TimeFoldTimetable> {
+
+    private static final Logger logger = LoggerFactory.getLogger(DSaturInitializer.class);
+
+    private static final String TIMESLOT_VARIABLE = "timeslot";
+    // Saturation, degree and reversed lesson index are packed into one long heap key
+    private static final int KEY_BITS = 21;
+    private static final long KEY_MASK = (1L << KEY_BITS) - 1;
+    private static final int DAY_COUNT = 7;
+    // Keeps the soft part of a timeslot cost positive
+    private static final int SOFT_COST_OFFSET = 1 << 10;
+
+    @Override
+    public void changeWorkingSolution(ScoreDirector<TimeFoldTimetable> scoreDirector, BooleanSupplier isPhaseTerminated) {
+        long start = System.nanoTime();
+        TimeFoldTimetable solution = scoreDirector.getWorkingSolution();
+        ConflictGraph graph = new ConflictGraph(solution);
+        if (graph.lessonCount >= KEY_MASK) {
+            logger.warn("Skipping DSatur construction of {} lessons, more than {} are not supported",
+                    graph.lessonCount, KEY_MASK);
+            return;
+        }
+        int assigned = 0;
+        int conflicting = 0;
+        int lesson;
+        while (!isPhaseTerminated.getAsBoolean() && (lesson = graph.pollMostSaturated()) >= 0) {
+            int timeslot = graph.leastConflictingTimeslot(lesson);
+            if (timeslot < 0) {
+                // Empty range, the construction heuristic reports it
+                continue;
+            }
+            if (graph.neighbourCount(lesson, timeslot) > 0) {
+                conflicting++;
+            }
+            graph.assign(lesson, timeslot);
+            TimeFoldLesson entity = graph.lessons.get(lesson);
+            scoreDirector.beforeVariableChanged(entity, TIMESLOT_VARIABLE);
+            entity.setTimeslot(graph.timeslots.get(timeslot));
+            scoreDirector.afterVariableChanged(entity, TIMESLOT_VARIABLE);
+            assigned++;
+        }
+        scoreDirector.triggerVariableListeners();
+        logger.debug("DSatur assigned {} of {} lessons in {} ms, {} with a teacher or section conflict",
+                assigned, graph.lessonCount, (System.nanoTime() - start) / 1_000_000, conflicting);
+    }
+
+    /**
+     * Lessons and timeslots as indexes into the solution's lists, the adjacency in compressed rows,
+     * and per lesson how many neighbours hold each timeslot.
+     */
+    private static final class ConflictGraph {
+
+        private final List<TimeFoldLesson> lessons;
+        private final List<TimeFoldTimeslot> timeslots;
+        private final int lessonCount;
+        private final int timeslotCount;
+        // Neighbours of lesson i are adjacency[adjacencyStart[i]] up to adjacency[adjacencyStart[i + 1]]
+        private final int[] adjacencyStart;
+        private final int[] adjacency;
+        // Timeslot indexes of each distinct range, lessons of a shift share theirs
+        private final int[][] ranges;
+        private final boolean[][] inRange;
+        private final int[] rangeOf;
+        // Timeslot index per lesson, -1 while unassigned
+        private final int[] assignedTimeslot;
+        // neighbourCounts[i * timeslotCount + t] neighbours of lesson i hold timeslot t
+        private final int[] neighbourCounts;
+        // Distinct timeslots of its range that neighbours hold
+        private final int[] saturation;
+        private final int[] teacherGroup;
+        private final int[] sectionGroup;
+        private final int[] subjectGroup;
+        private final int[] dayOf;
+        private final int[] sequenceOf;
+        // Timeslot of the previous and next period in the same shift-day, -1 for none
+        private final int[] previousPeriod;
+        private final int[] nextPeriod;
+        private final int sequenceCount;
+        // Lessons per teacher and day, at teacherGroup * DAY_COUNT + day
+        private final int[] teacherDayLessons;
+        // Lessons per teacher and timeslot, at teacherGroup * timeslotCount + timeslot
+        private final int[] teacherLessons;
+        // Lessons per section, subject and day, at (sectionGroup * subjectGroupCount + subjectGroup) * DAY_COUNT + day
+        private final int subjectGroupCount;
+        private final int[] sectionSubjectDayLessons;
+        // Subject group per section, day and sequence index, -1 when free
+        private final int[] sectionSubjects;
+        private final LongMaxHeap queue;
+
+        private ConflictGraph(TimeFoldTimetable solution) {
+            lessons = solution.getLessons();
+            timeslots = solution.getTimeslots();
+            lessonCount = lessons.size();
+            timeslotCount = timeslots.size();
+            Map<TimeFoldTimeslot, Integer> timeslotIndexes = new IdentityHashMap<>();
+            for (int t = 0; t < timeslotCount; t++) {
+                timeslotIndexes.put(timeslots.get(t), t);
+            }
+
+            Map<List<TimeFoldTimeslot>, Integer> rangeIndexes = new IdentityHashMap<>();
+            rangeOf = new int[lessonCount];
+            assignedTimeslot = new int[lessonCount];
+            teacherGroup = new int[lessonCount];
+            sectionGroup = new int[lessonCount];
+            subjectGroup = new int[lessonCount];
+            Map<Object, Integer> teacherGroups = new HashMap<>();
+            Map<Object, Integer> sectionGroups = new HashMap<>();
+            Map<Object, Integer> subjectGroups = new HashMap<>();
+            for (int i = 0; i < lessonCount; i++) {
+                TimeFoldLesson lesson = lessons.get(i);
+                List<TimeFoldTimeslot> range = lesson.getTimeslotRange() != null ? lesson.getTimeslotRange() : timeslots;
+                rangeOf[i] = rangeIndexes.computeIfAbsent(range, key -> rangeIndexes.size());
+                assignedTimeslot[i] = lesson.getTimeslot() != null
+                        ? timeslotIndexes.getOrDefault(lesson.getTimeslot(), -1)
+                        : -1;
+                teacherGroup[i] = groupOf(teacherGroups, lesson.getTeacher() != null ? lesson.getTeacher().getId() : null);
+                sectionGroup[i] = groupOf(sectionGroups, lesson.getSection() != null ? lesson.getSection().getId() : null);
+                subjectGroup[i] = groupOf(subjectGroups, lesson.getSubject() != null ? lesson.getSubject().getId() : null);
+            }
+            dayOf = new int[timeslotCount];
+            sequenceOf = new int[timeslotCount];
+            int maxSequence = 0;
+            Map<List<Integer>, Integer> periods = new HashMap<>();
+            for (int t = 0; t < timeslotCount; t++) {
+                TimeFoldTimeslot timeslot = timeslots.get(t);
+                dayOf[t] = timeslot.getDayIndex();
+                sequenceOf[t] = timeslot.getSequenceIndex();
+                maxSequence = Math.max(maxSequence, sequenceOf[t]);
+                periods.put(List.of(timeslot.getShiftIndex(), dayOf[t], sequenceOf[t]), t);
+            }
+            previousPeriod = new int[timeslotCount];
+            nextPeriod = new int[timeslotCount];
+            for (int t = 0; t < timeslotCount; t++) {
+                int shift = timeslots.get(t).getShiftIndex();
+                previousPeriod[t] = periods.getOrDefault(List.of(shift, dayOf[t], sequenceOf[t] - 1), -1);
+                nextPeriod[t] = periods.getOrDefault(List.of(shift, dayOf[t], sequenceOf[t] + 1), -1);
+            }
+            // One spare on each side, so the previous and next period of any timeslot have an index
+            sequenceCount = maxSequence + 3;
+            teacherDayLessons = new int[teacherGroups.size() * DAY_COUNT];
+            teacherLessons = new int[teacherGroups.size() * timeslotCount];
+            subjectGroupCount = subjectGroups.size();
+            sectionSubjectDayLessons = new int[sectionGroups.size() * subjectGroupCount * DAY_COUNT];
+            sectionSubjects = new int[sectionGroups.size() * DAY_COUNT * sequenceCount];
+            Arrays.fill(sectionSubjects, -1);
+            ranges = new int[rangeIndexes.size()][];
+            inRange = new boolean[rangeIndexes.size()][timeslotCount];
+            rangeIndexes.forEach((range, index) -> {
+                ranges[index] = range.stream().mapToInt(timeslot -> timeslotIndexes.getOrDefault(timeslot, -1))
+                        .filter(t -> t >= 0).toArray();
+                for (int t : ranges[index]) {
+                    inRange[index][t] = true;
+                }
+            });
+
+            int[][] teacherMembers = members(teacherGroup, teacherGroups.size());
+            int[][] sectionMembers = members(sectionGroup, sectionGroups.size());
+            adjacencyStart = new int[lessonCount + 1];
+            int[] stamp = new int[lessonCount];
+            Arrays.fill(stamp, -1);
+            int[] edges = new int[Math.max(16, lessonCount)];
+            int edgeCount = 0;
+            for (int i = 0; i < lessonCount; i++) {
+                adjacencyStart[i] = edgeCount;
+                stamp[i] = i;
+                int maxDegree = (teacherGroup[i] >= 0 ? teacherMembers[teacherGroup[i]].length : 0)
+                        + (sectionGroup[i] >= 0 ? sectionMembers[sectionGroup[i]].length : 0);
+                if (edgeCount + maxDegree > edges.length) {
+                    edges = Arrays.copyOf(edges, Math.max(edges.length * 2, edgeCount + maxDegree));
+                }
+                edgeCount = collect(teacherGroup[i] >= 0 ? teacherMembers[teacherGroup[i]] : null, i, stamp, edges, edgeCount);
+                edgeCount = collect(sectionGroup[i] >= 0 ? sectionMembers[sectionGroup[i]] : null, i, stamp, edges, edgeCount);
+            }
+            adjacencyStart[lessonCount] = edgeCount;
+            adjacency = Arrays.copyOf(edges, edgeCount);
+
+            neighbourCounts = new int[lessonCount * timeslotCount];
+            saturation = new int[lessonCount];
+            for (int i = 0; i < lessonCount; i++) {
+                if (assignedTimeslot[i] >= 0) {
+                    occupy(i, assignedTimeslot[i]);
+                    for (int e = adjacencyStart[i]; e < adjacencyStart[i + 1]; e++) {
+                        addNeighbour(adjacency[e], assignedTimeslot[i], false);
+                    }
+                }
+            }
+            queue = new LongMaxHeap(lessonCount);
+            for (int i = 0; i < lessonCount; i++) {
+                if (assignedTimeslot[i] < 0) {
+                    queue.push(key(i));
+                }
+            }
+        }
+
+        private static int groupOf(Map<Object, Integer> groups, Object ownerId) {
+            return ownerId != null ? groups.computeIfAbsent(ownerId, key -> groups.size()) : -1;
+        }
+
+        private static int[][] members(int[] groupOfLesson, int groupCount) {
+            int[] sizes = new int[groupCount];
+            for (int group : groupOfLesson) {
+                if (group >= 0) {
+                    sizes[group]++;
+                }
+            }
+            int[][] members = new int[groupCount][];
+            for (int group = 0; group < groupCount; group++) {
+                members[group] = new int[sizes[group]];
+                sizes[group] = 0;
+            }
+            for (int i = 0; i < groupOfLesson.length; i++) {
+                if (groupOfLesson[i] >= 0) {
+                    members[groupOfLesson[i]][sizes[groupOfLesson[i]]++] = i;
+                }
+            }
+            return members;
+        }
+
+        /**
+         * Append the group members not yet stamped for lesson i, so a neighbour sharing both teacher
+         * and section is listed once.
+         */
+        private static int collect(int[] members, int i, int[] stamp, int[] edges, int edgeCount) {
+            if (members == null) {
+                return edgeCount;
+            }
+            for (int member : members) {
+                if (stamp[member] != i) {
+                    stamp[member] = i;
+                    edges[edgeCount++] = member;
+                }
+            }
+            return edgeCount;
+        }
+
+        int neighbourCount(int lesson, int timeslot) {
+            return neighbourCounts[lesson * timeslotCount + timeslot];
+        }
+
+        private long key(int lesson) {
+            long degree = Math.min(adjacencyStart[lesson + 1] - adjacencyStart[lesson], KEY_MASK);
+            return ((long) saturation[lesson] << (2 * KEY_BITS)) | (degree << KEY_BITS) | (KEY_MASK - lesson);
+        }
+
+        /**
+         * The unassigned lesson with the highest saturation, then degree, then the lowest index; -1 when none is left.
+         * Stale entries, pushed before the lesson's saturation last grew or before it was assigned, are skipped.
+         */
+        int pollMostSaturated() {
+            while (!queue.isEmpty()) {
+                long entry = queue.pop();
+                int lesson = (int) (KEY_MASK - (entry & KEY_MASK));
+                if (assignedTimeslot[lesson] < 0 && entry == key(lesson)) {
+                    return lesson;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * The timeslot of the lesson's range that the fewest neighbours hold, then breaking the fewest other
+         * hard constraints, then with the lowest soft cost, the first one on a tie; -1 for an empty range.
+         */
+        int leastConflictingTimeslot(int lesson) {
+            int best = -1;
+            long bestCost = Long.MAX_VALUE;
+            for (int t : ranges[rangeOf[lesson]]) {
+                long cost = ((long) neighbourCount(lesson, t) << 40)
+                        | ((long) brokenHardConstraints(lesson, t) << 20)
+                        | Math.max(0, Math.min(SOFT_COST_OFFSET + softCost(lesson, t), 2 * SOFT_COST_OFFSET - 1));
+                if (cost < bestCost) {
+                    best = t;
+                    bestCost = cost;
+                }
+            }
+            return best;
+        }
+
+        private int brokenHardConstraints(int lesson, int timeslot) {
+            int broken = 0;
+            if (teacherGroup[lesson] >= 0
+                    && teacherDayLessons[teacherGroup[lesson] * DAY_COUNT + dayOf[timeslot]]
+                            >= TimeTableConstraintProvider.TEACHER_DAILY_LESSON_LIMIT) {
+                broken++;
+            }
+            if (subjectGroup[lesson] >= 0 && sectionGroup[lesson] >= 0) {
+                broken += (subjectAt(lesson, timeslot, -1) == subjectGroup[lesson] ? 1 : 0)
+                        + (subjectAt(lesson, timeslot, 1) == subjectGroup[lesson] ? 1 : 0);
+            }
+            return broken;
+        }
+
+        /**
+         * Periods of the same subject the section already has that day, plus how much longer than two
+         * periods the teacher's runs grow, minus the teacher's lessons right before and after.
+         */
+        private int softCost(int lesson, int timeslot) {
+            int cost = 0;
+            if (sectionGroup[lesson] >= 0 && subjectGroup[lesson] >= 0) {
+                cost += sectionSubjectDayLessons[sectionSubjectDay(lesson, timeslot)];
+            }
+            if (teacherGroup[lesson] >= 0) {
+                int before = teacherRun(lesson, timeslot, previousPeriod);
+                int after = teacherRun(lesson, timeslot, nextPeriod);
+                cost += Math.max(0, before + after - 1) - Math.max(0, before - 2) - Math.max(0, after - 2);
+                cost -= (before > 0 ? 1 : 0) + (after > 0 ? 1 : 0);
+            }
+            return cost;
+        }
+
+        /**
+         * Consecutive periods the lesson's teacher teaches right before or after the timeslot.
+         */
+        private int teacherRun(int lesson, int timeslot, int[] step) {
+            int run = 0;
+            int base = teacherGroup[lesson] * timeslotCount;
+            for (int t = step[timeslot]; t >= 0 && teacherLessons[base + t] > 0; t = step[t]) {
+                run++;
+            }
+            return run;
+        }
+
+        private int sectionSubjectDay(int lesson, int timeslot) {
+            return (sectionGroup[lesson] * subjectGroupCount + subjectGroup[lesson]) * DAY_COUNT + dayOf[timeslot];
+        }
+
+        private int subjectAt(int lesson, int timeslot, int sequenceOffset) {
+            return sectionSubjects[sectionSlot(sectionGroup[lesson], timeslot) + sequenceOffset];
+        }
+
+        private int sectionSlot(int section, int timeslot) {
+            return (section * DAY_COUNT + dayOf[timeslot]) * sequenceCount + sequenceOf[timeslot] + 1;
+        }
+
+        private void occupy(int lesson, int timeslot) {
+            if (teacherGroup[lesson] >= 0) {
+                teacherDayLessons[teacherGroup[lesson] * DAY_COUNT + dayOf[timeslot]]++;
+                teacherLessons[teacherGroup[lesson] * timeslotCount + timeslot]++;
+            }
+            if (sectionGroup[lesson] >= 0) {
+                sectionSubjects[sectionSlot(sectionGroup[lesson], timeslot)] = subjectGroup[lesson];
+                if (subjectGroup[lesson] >= 0) {
+                    sectionSubjectDayLessons[sectionSubjectDay(lesson, timeslot)]++;
+                }
+            }
+        }
+
+        void assign(int lesson, int timeslot) {
+            assignedTimeslot[lesson] = timeslot;
+            occupy(lesson, timeslot);
+            for (int e = adjacencyStart[lesson]; e < adjacencyStart[lesson + 1]; e++) {
+                addNeighbour(adjacency[e], timeslot, true);
+            }
+        }
+
+        private void addNeighbour(int lesson, int timeslot, boolean requeue) {
+            if (neighbourCounts[lesson * timeslotCount + timeslot]++ == 0 && inRange[rangeOf[lesson]][timeslot]) {
+                saturation[lesson]++;
+                if (requeue && assignedTimeslot[lesson] < 0) {
+                    queue.push(key(lesson));
+                }
+            }
+        }
+    }
+
+    /**
+     * Binary max-heap of primitive longs, growing as needed.
+     */
+    private static final class LongMaxHeap {
+
+        private long[] heap;
+        private int size;
+
+        private LongMaxHeap(int initialCapacity) {
+            heap = new long[Math.max(16, initialCapacity)];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(long value) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int i = size++;
+            while (i > 0 && heap[(i - 1) / 2] < value) {
+                heap[i] = heap[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heap[i] = value;
+        }
+
+        long pop() {
+            long top = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heap[child + 1] > heap[child]) {
+                    child++;
+                }
+                if (heap[child] <= last) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+    }
+}
@@ -19,13 +19,14 @@ import org.springframework.web.bind.annotation.RestController;
 import com.timetable.problem_solver.debug.ConstraintDebugService;
 import com.timetable.problem_solver.model.ConstraintSettings;
 import com.timetable.problem_solver.repository.ConstraintSettingsRepository;
+import com.timetable.problem_solver.service.ConstraintSettingsCache;
 import com.timetable.problem_solver.service.SolverService;
 import com.timetable.problem_solver.validation.ConstraintValidationService;
 
 /**
  * Controller for managing constraint settings.
- * Automatically triggers solver reload when constraints are updated to ensure
- * the new constraint configuration takes effect immediately.
+ * Toggles and weight changes take effect on the next solve through per-solution
+ * constraint weights; creating, renaming or deleting a constraint reloads the solver.
  */
 @RequestMapping("/api/constraint")
 @RestController
@@ -34,21 +35,23 @@ public class ConstraintController {
     private static final Logger logger = LoggerFactory.getLogger(ConstraintController.class);
 
     private final ConstraintSettingsRepository constraintSettingsRepository;
+    private final ConstraintSettingsCache constraintSettingsCache;
     private final SolverService solverService;
     private final ConstraintValidationService validationService;
     private final ConstraintDebugService debugService;
 
     @Autowired
-    public ConstraintController(ConstraintSettingsRepository repository, SolverService solverService, ConstraintValidationService validationService, ConstraintDebugService debugService) {
+    public ConstraintController(ConstraintSettingsRepository repository, ConstraintSettingsCache constraintSettingsCache, SolverService solverService, ConstraintValidationService validationService, ConstraintDebugService debugService) {
         this.constraintSettingsRepository = repository;
+        this.constraintSettingsCache = constraintSettingsCache;
         this.solverService = solverService;
         this.validationService = validationService;
         this.debugService = debugService;
     }
 
-    public record ConstraintRecord(Long id, String constraintName, int constraintWeight, String constraintType, boolean enableFlag, String description){}
+    public record ConstraintRecord(Long id, String constraintName, int constraintWeight, String constraintType, boolean enableFlag, String description, String ruleDefinition){}
     public record ToggleRequest(boolean enabled) {}
-    public record CreateConstraintRequest(String constraintName, int constraintWeight, String constraintType, boolean enableFlag, String description) {}
+    public record CreateConstraintRequest(String constraintName, int constraintWeight, String constraintType, boolean enableFlag, String description, String ruleDefinition) {}
 
     /**
      * Get all constraint settings from the database.
@@ -67,7 +70,8 @@ public class ConstraintController {
                                 constraintSettings.getConstraintWeight(),
                                 constraintSettings.getConstraintType(),
                                 constraintSettings.isEnableFlag(),
-                                    constraintSettings.getDescription()))
+                                    constraintSettings.getDescription(),
+                                    constraintSettings.getRuleDefinition()))
                     .toList();
             
             return ResponseEntity.ok(constraints);
@@ -79,8 +83,8 @@ public class ConstraintController {
     }
 
     /**
-     * Toggle a constraint's enabled state and automatically reload the solver.
-     * This ensures that constraint changes take effect immediately for the next solve operation.
+     * Toggle a constraint's enabled state.
+     * The next solve picks up the change through its constraint weights, no solver reload needed.
      * 
      * @param id The constraint ID to toggle
      * @param request The toggle request containing the new enabled state
@@ -98,26 +102,19 @@ public class ConstraintController {
             boolean previousState = entity.isEnableFlag();
         entity.setEnableFlag(request.enabled());
         var saved = constraintSettingsRepository.save(entity);
+            constraintSettingsCache.put(saved);
             
             logger.info("Constraint '{}' toggled from {} to {}", 
                     saved.getConstraintName(), previousState, request.enabled());
             
-            // Automatically reload the solver to apply the new constraint configuration
-            try {
-                solverService.reloadSolver();
-                logger.info("Solver reloaded successfully after constraint toggle");
-            } catch (Exception e) {
-                logger.error("Failed to reload solver after constraint toggle: {}", e.getMessage(), e);
-                // Don't fail the request if solver reload fails, but log the error
-            }
-            
             ConstraintRecord result = new ConstraintRecord(
                     saved.getId(),
                     saved.getConstraintName(),
                     saved.getConstraintWeight(),
                     saved.getConstraintType(),
                     saved.isEnableFlag(),
-                    saved.getDescription());
+                    saved.getDescription(),
+                    saved.getRuleDefinition());
             
             return ResponseEntity.ok(result);
             
@@ -128,7 +125,8 @@ public class ConstraintController {
     }
 
     /**
-     * Update constraint weight and automatically reload the solver.
+     * Update constraint weight.
+     * The next solve picks up the new weight through its constraint weights, no solver reload needed.
      * 
      * @param id The constraint ID to update
      * @param weight The new weight value
@@ -144,14 +142,7 @@ public class ConstraintController {
             
             entity.setConstraintWeight(weight);
             var saved = constraintSettingsRepository.save(entity);
-            
-            // Reload solver to apply new weight
-            try {
-                solverService.reloadSolver();
-                logger.info("Solver reloaded successfully after weight update");
-            } catch (Exception e) {
-                logger.error("Failed to reload solver after weight update: {}", e.getMessage(), e);
-            }
+            constraintSettingsCache.put(saved);
             
             ConstraintRecord result = new ConstraintRecord(
                     saved.getId(),
@@ -159,7 +150,8 @@ public class ConstraintController {
                     saved.getConstraintWeight(),
                     saved.getConstraintType(),
                     saved.isEnableFlag(),
-                    saved.getDescription());
+                    saved.getDescription(),
+                    saved.getRuleDefinition());
             
             return ResponseEntity.ok(result);
             
@@ -188,6 +180,7 @@ public class ConstraintController {
             newConstraint.setConstraintType(request.constraintType());
             newConstraint.setEnableFlag(request.enableFlag());
             newConstraint.setDescription(request.description());
+            newConstraint.setRuleDefinition(request.ruleDefinition());
             
             // Validate constraint
             ConstraintValidationService.ValidationResult validation = validationService.validateConstraint(newConstraint);
@@ -203,6 +196,7 @@ public class ConstraintController {
             }
             
             var saved = constraintSettingsRepository.save(newConstraint);
+            constraintSettingsCache.put(saved);
             
             logger.info("Created new constraint: {} with ID: {}", saved.getConstraintName(), saved.getId());
             
@@ -221,7 +215,8 @@ public class ConstraintController {
                     saved.getConstraintWeight(),
                     saved.getConstraintType(),
                     saved.isEnableFlag(),
-                    saved.getDescription());
+                    saved.getDescription(),
+                    saved.getRuleDefinition());
             
             return ResponseEntity.ok(result);
             
@@ -260,6 +255,7 @@ public class ConstraintController {
             
             // Delete the constraint
             constraintSettingsRepository.deleteById(id);
+            constraintSettingsCache.remove(constraintName);
             
             logger.info("Deleted constraint: {} with ID: {}", constraintName, id);
             
@@ -306,14 +302,26 @@ public class ConstraintController {
                 }
             }
             
+            ConstraintValidationService.ValidationResult ruleValidation = validationService.validateRuleDefinition(request.ruleDefinition());
+            if (!ruleValidation.isValid()) {
+                logger.warn("Constraint validation failed: {}", ruleValidation.getErrorMessage());
+                return ResponseEntity.badRequest().build();
+            }
+            
             // Update constraint details
+            String previousName = entity.getConstraintName();
             entity.setConstraintName(request.constraintName());
             entity.setConstraintWeight(request.constraintWeight());
             entity.setConstraintType(request.constraintType());
             entity.setEnableFlag(request.enableFlag());
             entity.setDescription(request.description());
+            entity.setRuleDefinition(request.ruleDefinition());
             
             var saved = constraintSettingsRepository.save(entity);
+            if (!previousName.equals(saved.getConstraintName())) {
+                constraintSettingsCache.remove(previousName);
+            }
+            constraintSettingsCache.put(saved);
             
             logger.info("Updated constraint: {} with ID: {}", saved.getConstraintName(), saved.getId());
             
@@ -331,7 +339,8 @@ public class ConstraintController {
                 saved.getConstraintWeight(),
                 saved.getConstraintType(),
                 saved.isEnableFlag(),
-                saved.getDescription());
+                saved.getDescription(),
+                saved.getRuleDefinition());
             
             return ResponseEntity.ok(result);
             
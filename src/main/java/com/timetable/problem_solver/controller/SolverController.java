@@ -1,8 +1,8 @@
 package com.timetable.problem_solver.controller;
 
-import ai.timefold.solver.core.api.solver.SolverManager;
 import ai.timefold.solver.core.api.solver.SolverStatus;
 import com.timetable.problem_solver.model.TimeFoldTimetable;
+import com.timetable.problem_solver.service.SolveOptions;
 import com.timetable.problem_solver.service.SolverService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +12,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -42,10 +43,26 @@ public class SolverController {
      * The solver will use the latest constraint settings from the database.
      * 
      * @param problem The timetable problem to solve
+     * @param scoreMode STREAMS (default), INCREMENTAL or INCREMENTAL_VERIFIED, see {@link SolveOptions.ScoreCalculation}
+     * @param profiling Profile the cost of every constraint once solving ends, see {@link #getProfile}
+     * @param partitioned Solve every shift as a separate partition in parallel, then repair the merged timetable
+     * @param moveThreadCount Move threads for this job, by default the profile's
+     * @param profile fast (previews within 5 seconds), balanced (default, 30 seconds) or thorough (up to 2 hours)
      * @return Job ID for tracking the solving progress
      */
     @PostMapping(value = "/solve", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.TEXT_PLAIN_VALUE)
-    public ResponseEntity<String> solve(@RequestBody TimeFoldTimetable problem) {
+    public ResponseEntity<String> solve(@RequestBody TimeFoldTimetable problem,
+                                        @RequestParam(name = "scoreMode", required = false) SolveOptions.ScoreCalculation scoreMode,
+                                        @RequestParam(name = "profiling", defaultValue = "false") boolean profiling,
+                                        @RequestParam(name = "partitioned", defaultValue = "false") boolean partitioned,
+                                        @RequestParam(name = "moveThreadCount", required = false) Integer moveThreadCount,
+                                        @RequestParam(name = "profile", required = false) String profile) {
+        SolveOptions.SolverProfile solverProfile;
+        try {
+            solverProfile = SolveOptions.SolverProfile.of(profile);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
         try {
             logger.info("Starting timetable solving with current constraint configuration...");
             
@@ -55,18 +72,11 @@ public class SolverController {
             // Store the problem for tracking
             activeJobs.put(jobId, problem);
             
-            // Get the current solver manager (with latest constraint settings)
-            SolverManager<TimeFoldTimetable, String> solverManager = solverService.getSolverManager();
-            
-            // Start solving with callback to update the stored solution
-            solverManager.solveAndListen(
-                jobId,
-                problem,
-                solution -> {
-                    logger.debug("Solution updated for job {}: score = {}", jobId, solution.getScore());
-                    activeJobs.put(jobId, solution);
-                }
-            );
+            // Start solving with the latest constraint settings and update the stored solution
+            solverService.solve(jobId, problem, new SolveOptions(scoreMode, profiling, partitioned, moveThreadCount, solverProfile), solution -> {
+                logger.debug("Solution updated for job {}: score = {}", jobId, solution.getScore());
+                activeJobs.put(jobId, solution);
+            });
             
             logger.info("Solving started successfully for job ID: {}", jobId);
             return ResponseEntity.ok(jobId);
@@ -93,8 +103,7 @@ public class SolverController {
             }
             
             // Get current solver status
-            SolverManager<TimeFoldTimetable, String> solverManager = solverService.getSolverManager();
-            SolverStatus status = solverManager.getSolverStatus(jobId);
+            SolverStatus status = solverService.getSolverStatus(jobId);
             solution.setSolverStatus(status);
             
             return ResponseEntity.ok(solution);
@@ -109,20 +118,24 @@ public class SolverController {
      * Get the solver status for a specific job.
      * 
      * @param jobId The job ID to check
-     * @return The current solver status
+     * @return The current solver status, with the solver version and decomposition stats of jobs started here
      */
     @GetMapping(value = "/{jobId}/status", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Map<String, Object>> getStatus(@PathVariable String jobId) {
         try {
-            SolverManager<TimeFoldTimetable, String> solverManager = solverService.getSolverManager();
-            SolverStatus status = solverManager.getSolverStatus(jobId);
+            SolverStatus status = solverService.getSolverStatus(jobId);
             
-            Map<String, Object> response = Map.of(
-                "jobId", jobId,
-                "status", status.toString(),
-                "isSolving", status == SolverStatus.SOLVING_ACTIVE,
-                "isFinished", status == SolverStatus.NOT_SOLVING
-            );
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("jobId", jobId);
+            response.put("status", status.toString());
+            response.put("isSolving", status == SolverStatus.SOLVING_ACTIVE);
+            response.put("isFinished", status == SolverStatus.NOT_SOLVING);
+            // Configuration the job solves with, it keeps the version it started on across reloads
+            solverService.getSolverVersion(jobId)
+                    .ifPresent(version -> response.put("solverVersion", version));
+            // Components and partitions the job was split into before solving
+            solverService.getDecompositionStats(jobId)
+                    .ifPresent(stats -> response.put("decomposition", stats));
             
             return ResponseEntity.ok(response);
             
@@ -132,6 +145,37 @@ public class SolverController {
         }
     }
 
+    /**
+     * Get the per-constraint cost profile of a job started with {@code profiling=true}.
+     * The profile is computed once solving ends, until then the status is returned.
+     * 
+     * @param jobId The job ID to get the profile for
+     * @return The constraint profile, ordered from the most to the least expensive constraint
+     */
+    @GetMapping(value = "/{jobId}/profile", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getProfile(@PathVariable String jobId) {
+        try {
+            var profile = solverService.getConstraintProfile(jobId);
+            if (profile.isPresent()) {
+                return ResponseEntity.ok(profile.get());
+            }
+            if (!solverService.isProfiling(jobId)) {
+                return ResponseEntity.notFound().build();
+            }
+            SolverStatus status = solverService.getSolverStatus(jobId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(Map.of(
+                        "jobId", jobId,
+                        "status", status.toString(),
+                        "message", "Profile is computed when solving ends"
+                    ));
+            
+        } catch (Exception e) {
+            logger.error("Failed to get profile for job {}: {}", jobId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * Terminate a running solving job.
      * 
@@ -143,13 +187,12 @@ public class SolverController {
         try {
             logger.info("Terminating solving job: {}", jobId);
             
-            SolverManager<TimeFoldTimetable, String> solverManager = solverService.getSolverManager();
-            solverManager.terminateEarly(jobId);
+            solverService.terminateEarly(jobId);
             
             // Return the current solution
             TimeFoldTimetable solution = activeJobs.get(jobId);
             if (solution != null) {
-                SolverStatus status = solverManager.getSolverStatus(jobId);
+                SolverStatus status = solverService.getSolverStatus(jobId);
                 solution.setSolverStatus(status);
                 return ResponseEntity.ok(solution);
             } else {
@@ -199,7 +242,8 @@ public class SolverController {
     /**
      * Get information about the current solver configuration.
      * 
-     * @return Solver information including constraint provider details
+     * @return Solver information including constraint provider details, whether the newest
+     *         solver version is ready and its warm-up state and duration
      */
     @GetMapping("/info")
     public ResponseEntity<Map<String, String>> getSolverInfo() {
@@ -210,7 +254,12 @@ public class SolverController {
             Map<String, String> response = Map.of(
                 "solverInfo", solverInfo,
                 "isBusy", String.valueOf(isBusy),
-                "activeJobs", String.valueOf(activeJobs.size())
+                "activeJobs", String.valueOf(activeJobs.size()),
+                "ready", String.valueOf(solverService.isSolverReady()),
+                "warmUpState", solverService.getWarmUpState().name(),
+                "warmUpDurationMs", solverService.getWarmUpDuration()
+                        .map(duration -> String.valueOf(duration.toMillis()))
+                        .orElse("")
             );
             
             return ResponseEntity.ok(response);
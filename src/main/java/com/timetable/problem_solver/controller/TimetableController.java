@@ -4,11 +4,11 @@ import ai.timefold.solver.core.api.score.analysis.ScoreAnalysis;
 import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
 import ai.timefold.solver.core.api.solver.ScoreAnalysisFetchPolicy;
 import ai.timefold.solver.core.api.solver.SolutionManager;
-import ai.timefold.solver.core.api.solver.SolverManager;
 import ai.timefold.solver.core.api.solver.SolverStatus;
 import com.timetable.problem_solver.controller.exception.TimetableSolverException;
 import com.timetable.problem_solver.model.*;
 import com.timetable.problem_solver.repository.*;
+import com.timetable.problem_solver.service.SolveOptions;
 import com.timetable.problem_solver.service.SolverService;
 import lombok.Getter;
 import org.slf4j.Logger;
@@ -31,9 +31,8 @@ public class TimetableController {
 
     private static final Logger logger = LoggerFactory.getLogger(TimetableController.class);
 
-    public TimetableController(SolverService solverService, SolutionManager<TimeFoldTimetable, HardSoftScore> solutionManager, PeriodTimingsRepository timeSlotRepository, SubjectRepository subjectRepository, StaffRepository teacherRepository, StaffWorkRepository staffWorkRepository, SectionRepository groupRepository, SchoolTimingRepository schoolTimingRepository, SectionSubjectMappingRepository sectionSubjectMappingRepository) {
+    public TimetableController(SolverService solverService, PeriodTimingsRepository timeSlotRepository, SubjectRepository subjectRepository, StaffRepository teacherRepository, StaffWorkRepository staffWorkRepository, SectionRepository groupRepository, SchoolTimingRepository schoolTimingRepository, SectionSubjectMappingRepository sectionSubjectMappingRepository) {
         this.solverService = solverService;
-        this.solutionManager = solutionManager;
         this.timeSlotRepository = timeSlotRepository;
         this.subjectRepository = subjectRepository;
         this.teacherRepository = teacherRepository;
@@ -45,7 +44,6 @@ public class TimetableController {
 
 //    private final TimetableService timetableService;
     private final SolverService solverService;
-    private final SolutionManager<TimeFoldTimetable, HardSoftScore> solutionManager;
 
     private final PeriodTimingsRepository timeSlotRepository;
     private final SubjectRepository subjectRepository;
@@ -60,19 +58,24 @@ public class TimetableController {
     private final ConcurrentMap<String, Job> jobIdToJob = new ConcurrentHashMap<>();
 
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.TEXT_PLAIN_VALUE)
-    public String solve(@RequestBody TimeFoldTimetable problem) {
+    public String solve(@RequestBody TimeFoldTimetable problem,
+                        @RequestParam(name = "scoreMode", required = false) SolveOptions.ScoreCalculation scoreMode,
+                        @RequestParam(name = "partitioned", defaultValue = "false") boolean partitioned,
+                        @RequestParam(name = "moveThreadCount", required = false) Integer moveThreadCount,
+                        @RequestParam(name = "profile", required = false) String profile) {
+        SolveOptions.SolverProfile solverProfile;
+        try {
+            solverProfile = SolveOptions.SolverProfile.of(profile);
+        } catch (IllegalArgumentException e) {
+            throw new TimetableSolverException(null, HttpStatus.BAD_REQUEST, e.getMessage());
+        }
         try {
 //        problem.fillFreePeriods();
             String jobId = UUID.randomUUID().toString();
             jobIdToJob.put(jobId, Job.ofTimetable(problem));
             
-            // Get the current solver manager (with latest constraint settings)
-            SolverManager<TimeFoldTimetable, String> solverManager = solverService.getSolverManager();
-            if (solverManager == null) {
-                throw new RuntimeException("Solver manager is not initialized. Please check the application logs.");
-            }
-            
-            solverManager.solveAndListen(jobId, problem, solution -> {
+            // Solve with the latest constraint settings
+            solverService.solve(jobId, problem, new SolveOptions(scoreMode, false, partitioned, moveThreadCount, solverProfile), solution -> {
                 try {
                     jobIdToJob.put(jobId, Job.ofTimetable(solution));
                 } catch (Exception e) {
@@ -97,8 +100,7 @@ public class TimetableController {
     @GetMapping(value = "/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public TimeFoldTimetable getTimeTable(@PathVariable("jobId") String jobId) {
         TimeFoldTimetable timetable = getTimetableAndCheckForExceptions(jobId);
-        SolverManager<TimeFoldTimetable, String> solverManager = solverService.getSolverManager();
-        SolverStatus solverStatus = solverManager.getSolverStatus(jobId);
+        SolverStatus solverStatus = solverService.getSolverStatus(jobId);
         timetable.setSolverStatus(solverStatus);
         return timetable;
     }
@@ -106,8 +108,7 @@ public class TimetableController {
     @GetMapping(value = "/{jobId}/status", produces = MediaType.APPLICATION_JSON_VALUE)
     public TimeFoldTimetable getStatus(@PathVariable("jobId") String jobId) {
         TimeFoldTimetable timetable = getTimetableAndCheckForExceptions(jobId);
-        SolverManager<TimeFoldTimetable, String> solverManager = solverService.getSolverManager();
-        SolverStatus solverStatus = solverManager.getSolverStatus(jobId);
+        SolverStatus solverStatus = solverService.getSolverStatus(jobId);
         return new TimeFoldTimetable(timetable.getScore());
     }
 
@@ -175,24 +176,30 @@ public class TimetableController {
                     staff.setFirstName(teacher.getFirstName());
                     staff.setLastName(teacher.getLastName());
 
-                    lessons.add(new TimeFoldLesson(lessonIdCounter.getAndIncrement(), subject, staff, section));
+                    TimeFoldLesson lesson = new TimeFoldLesson(lessonIdCounter.getAndIncrement(), subject, staff, section);
+                    lesson.setTimeslotRange(currentPeriodsTimeSlots);
+                    lessons.add(lesson);
                 }
             }
             allTimeSlots.addAll(currentPeriodsTimeSlots);
         }
 
-        return new TimeFoldTimetable(
+        TimeFoldTimetable problem = new TimeFoldTimetable(
                 allTimeSlots,
                 lessons,
                 null
         );
+        problem.indexTimeslots();
+        return problem;
     }
 
-
     @PutMapping(value = "/analyze", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     @RegisterReflectionForBinding()
     public ScoreAnalysis<HardSoftScore> analyze(@RequestBody TimeFoldTimetable problem,
                                                 @RequestParam(name = "fetchPolicy", required = false) ScoreAnalysisFetchPolicy fetchPolicy) {
+        SolutionManager<TimeFoldTimetable, HardSoftScore> solutionManager = solverService.getSolutionManager();
+        problem.indexTimeslots();
+        solverService.applyConstraintWeights(problem);
         return fetchPolicy == null ? solutionManager.analyze(problem) : solutionManager.analyze(problem, fetchPolicy);
     }
 
@@ -246,8 +253,7 @@ public class TimetableController {
     public TimeFoldTimetable terminateSolving(
             @PathVariable("jobId") String jobId) {
         // TODO: Replace with .terminateEarlyAndWait(... [, timeout]); see https://github.com/TimefoldAI/timefold-solver/issues/77
-        SolverManager<TimeFoldTimetable, String> solverManager = solverService.getSolverManager();
-        solverManager.terminateEarly(jobId);
+        solverService.terminateEarly(jobId);
         return getTimeTable(jobId);
     }
 
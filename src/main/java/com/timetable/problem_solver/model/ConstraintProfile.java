@@ -0,0 +1,25 @@
+package com.timetable.problem_solver.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Per-constraint cost of a solved timetable, produced when a job is solved with profiling on.
+ * Constraints are ordered from the most to the least expensive.
+ */
+public record ConstraintProfile(String jobId,
+                                Instant profiledAt,
+                                long scoreCalculationsPerSample,
+                                double baselineMicrosPerCalculation,
+                                List<Entry> constraints) {
+
+    /**
+     * Cost of a single constraint.
+     *
+     * @param matchCount number of matches (tuples reaching the penalty) in the final solution
+     * @param microsPerCalculation score calculation time added by this constraint alone
+     * @param share fraction of the summed constraint cost, between 0 and 1
+     */
+    public record Entry(String constraintName, int matchCount, double microsPerCalculation, double share) {
+    }
+}
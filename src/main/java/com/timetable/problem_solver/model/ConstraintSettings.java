@@ -34,4 +34,8 @@ public class ConstraintSettings {
 
     @Column(name = "description")
     private String description;
+
+    // Rule in the custom constraint language (see CustomRuleCompiler), null for built-in constraints
+    @Column(name = "rule_definition", length = 500)
+    private String ruleDefinition;
 }
@@ -0,0 +1,58 @@
+package com.timetable.problem_solver.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable, versioned view of all constraint settings.
+ * Published by ConstraintSettingsCache and read by the constraint provider
+ * so that building a solver never needs a database round-trip.
+ */
+public record ConstraintSettingsSnapshot(long version, Map<String, Setting> settings) {
+
+    public ConstraintSettingsSnapshot {
+        settings = Collections.unmodifiableMap(new TreeMap<>(settings));
+    }
+
+    /**
+     * Immutable copy of a single ConstraintSettings row.
+     */
+    public record Setting(String constraintName, int constraintWeight, String constraintType, boolean enableFlag,
+                          String ruleDefinition) {
+
+        public static Setting of(ConstraintSettings entity) {
+            return new Setting(entity.getConstraintName(), entity.getConstraintWeight(),
+                    entity.getConstraintType(), entity.isEnableFlag(), entity.getRuleDefinition());
+        }
+
+        public boolean hasRule() {
+            return ruleDefinition != null && !ruleDefinition.isBlank();
+        }
+
+        public boolean isHard() {
+            return "Hard".equalsIgnoreCase(constraintType);
+        }
+    }
+
+    public Collection<Setting> all() {
+        return settings.values();
+    }
+
+    /**
+     * Check if a constraint is enabled by name
+     */
+    public boolean isEnabled(String constraintName) {
+        Setting setting = settings.get(constraintName);
+        return setting != null && setting.enableFlag();
+    }
+
+    /**
+     * Get constraint weight by name, defaulting to 1 if not found
+     */
+    public int weightOf(String constraintName) {
+        Setting setting = settings.get(constraintName);
+        return setting != null ? setting.constraintWeight() : 1;
+    }
+}
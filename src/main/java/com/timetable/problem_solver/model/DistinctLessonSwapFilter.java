@@ -0,0 +1,18 @@
+package com.timetable.problem_solver.model;
+
+import ai.timefold.solver.core.api.score.director.ScoreDirector;
+import ai.timefold.solver.core.impl.heuristic.selector.common.decorator.SelectionFilter;
+import ai.timefold.solver.core.impl.heuristic.selector.move.generic.SwapMove;
+
+/**
+ * Skips swaps between interchangeable lessons: with the same subject, teacher, section and
+ * timeslot range, the swapped timetable is the same one, yet the solver would still score it.
+ * Nearby selection ranks these lessons closest of all, so without it they make up many swaps.
+ */
+public class DistinctLessonSwapFilter implements SelectionFilter<TimeFoldTimetable, SwapMove<TimeFoldTimetable>> {
+
+    @Override
+    public boolean accept(ScoreDirector<TimeFoldTimetable> scoreDirector, SwapMove<TimeFoldTimetable> move) {
+        return !((TimeFoldLesson) move.getLeftEntity()).isInterchangeableWith((TimeFoldLesson) move.getRightEntity());
+    }
+}
@@ -0,0 +1,57 @@
+package com.timetable.problem_solver.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import ai.timefold.solver.core.impl.heuristic.selector.common.decorator.SelectionSorterWeightFactory;
+
+/**
+ * Orders lessons for first fit decreasing construction: practical lessons first, since they need
+ * adjacent periods, then lessons of the teachers with the most lessons, whose timeslots run out first.
+ * The lesson id breaks ties so construction is deterministic.
+ */
+public class LessonDifficultyWeightFactory implements SelectionSorterWeightFactory<TimeFoldTimetable, TimeFoldLesson> {
+
+    // Lesson count per teacher of the last solution sorted, all its lessons are weighed in one go
+    private TimeFoldTimetable countedSolution;
+    private Map<Object, Integer> teacherLessonCounts;
+
+    @Override
+    public synchronized LessonDifficulty createSorterWeight(TimeFoldTimetable solution, TimeFoldLesson lesson) {
+        if (solution != countedSolution) {
+            teacherLessonCounts = new HashMap<>();
+            for (TimeFoldLesson other : solution.getLessons()) {
+                teacherLessonCounts.merge(teacherIdOf(other), 1, Integer::sum);
+            }
+            countedSolution = solution;
+        }
+        return new LessonDifficulty(lesson.hasTraits(LessonTraits.PRACTICAL),
+                teacherLessonCounts.getOrDefault(teacherIdOf(lesson), 0),
+                lesson.getId() != null ? lesson.getId() : 0);
+    }
+
+    private static Object teacherIdOf(TimeFoldLesson lesson) {
+        return lesson.getTeacher() != null ? lesson.getTeacher().getId() : null;
+    }
+
+    /**
+     * Greater is more difficult.
+     */
+    public record LessonDifficulty(boolean practical, int teacherLessonCount, int lessonId)
+            implements Comparable<LessonDifficulty> {
+
+        @Override
+        public int compareTo(LessonDifficulty other) {
+            int comparison = Boolean.compare(practical, other.practical);
+            if (comparison != 0) {
+                return comparison;
+            }
+            comparison = Integer.compare(teacherLessonCount, other.teacherLessonCount);
+            if (comparison != 0) {
+                return comparison;
+            }
+            // Lower ids first within equal difficulty
+            return Integer.compare(other.lessonId, lessonId);
+        }
+    }
+}
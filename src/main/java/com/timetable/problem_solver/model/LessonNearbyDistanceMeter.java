@@ -0,0 +1,37 @@
+package com.timetable.problem_solver.model;
+
+import java.util.Objects;
+
+import ai.timefold.solver.core.impl.heuristic.selector.common.nearby.NearbyDistanceMeter;
+
+/**
+ * Distance between two lessons for nearby swap selection: 0 when they share both their teacher
+ * and section, 1 when they share one of them, 2 when they share neither. Swapping the timeslots of
+ * lessons that share nothing rarely resolves a conflict.
+ * Nearby selection caches distances per solve, so only problem facts count here; the shared day,
+ * which changes with every move, is checked by {@link RelatedLessonSwapFilter} instead.
+ */
+public class LessonNearbyDistanceMeter implements NearbyDistanceMeter<TimeFoldLesson, TimeFoldLesson> {
+
+    @Override
+    public double getNearbyDistance(TimeFoldLesson origin, TimeFoldLesson destination) {
+        int distance = 2;
+        if (sameTeacher(origin, destination)) {
+            distance--;
+        }
+        if (sameSection(origin, destination)) {
+            distance--;
+        }
+        return distance;
+    }
+
+    static boolean sameTeacher(TimeFoldLesson lesson, TimeFoldLesson other) {
+        return lesson.getTeacher() != null && other.getTeacher() != null
+                && Objects.equals(lesson.getTeacher().getId(), other.getTeacher().getId());
+    }
+
+    static boolean sameSection(TimeFoldLesson lesson, TimeFoldLesson other) {
+        return lesson.getSection() != null && other.getSection() != null
+                && Objects.equals(lesson.getSection().getId(), other.getSection().getId());
+    }
+}
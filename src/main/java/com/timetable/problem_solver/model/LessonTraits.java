@@ -0,0 +1,35 @@
+package com.timetable.problem_solver.model;
+
+/**
+ * Bit flags of the subject properties constraints filter on, stamped on each TimeFoldLesson
+ * so filters test an int instead of unboxing Subject fields.
+ */
+public final class LessonTraits {
+
+    public static final int PRACTICAL = 1;
+    public static final int THEORY = 1 << 1;
+    public static final int LOW_DIFFICULTY = 1 << 2;
+    public static final int HIGH_DIFFICULTY = 1 << 3;
+
+    private LessonTraits() {
+    }
+
+    public static int of(Subject subject) {
+        if (subject == null) {
+            return 0;
+        }
+        int traits = 0;
+        if (Boolean.TRUE.equals(subject.getIsPractical())) {
+            traits |= PRACTICAL;
+        }
+        if (Boolean.TRUE.equals(subject.getIsTheory())) {
+            traits |= THEORY;
+        }
+        if (subject.getDifficultyLevel() == DifficultyLevel.LOW) {
+            traits |= LOW_DIFFICULTY;
+        } else if (subject.getDifficultyLevel() == DifficultyLevel.HIGH) {
+            traits |= HIGH_DIFFICULTY;
+        }
+        return traits;
+    }
+}
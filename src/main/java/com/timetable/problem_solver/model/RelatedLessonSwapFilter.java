@@ -0,0 +1,29 @@
+package com.timetable.problem_solver.model;
+
+import ai.timefold.solver.core.api.score.director.ScoreDirector;
+import ai.timefold.solver.core.impl.heuristic.selector.common.decorator.SelectionFilter;
+import ai.timefold.solver.core.impl.heuristic.selector.move.generic.SwapMove;
+
+/**
+ * Only swaps lessons that share a teacher, a section or a day, the swaps that can move a conflict.
+ * Swapping unrelated lessons on different days is just two independent changes, which change
+ * moves already cover. Interchangeable lessons share all three but swapping them changes nothing,
+ * see {@link DistinctLessonSwapFilter}.
+ */
+public class RelatedLessonSwapFilter implements SelectionFilter<TimeFoldTimetable, SwapMove<TimeFoldTimetable>> {
+
+    @Override
+    public boolean accept(ScoreDirector<TimeFoldTimetable> scoreDirector, SwapMove<TimeFoldTimetable> move) {
+        TimeFoldLesson left = (TimeFoldLesson) move.getLeftEntity();
+        TimeFoldLesson right = (TimeFoldLesson) move.getRightEntity();
+        return !left.isInterchangeableWith(right)
+                && (LessonNearbyDistanceMeter.sameTeacher(left, right)
+                || LessonNearbyDistanceMeter.sameSection(left, right)
+                || sameDay(left, right));
+    }
+
+    private static boolean sameDay(TimeFoldLesson left, TimeFoldLesson right) {
+        return left.getTimeslot() != null && right.getTimeslot() != null
+                && left.getTimeslot().getDayIndex() == right.getTimeslot().getDayIndex();
+    }
+}
@@ -3,14 +3,17 @@ package com.timetable.problem_solver.model;
 
 import ai.timefold.solver.core.api.domain.entity.PlanningEntity;
 import ai.timefold.solver.core.api.domain.lookup.PlanningId;
+import ai.timefold.solver.core.api.domain.valuerange.ValueRangeProvider;
 import ai.timefold.solver.core.api.domain.variable.PlanningVariable;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
 import java.time.DayOfWeek;
+import java.util.List;
 
 @Setter
 @Getter
-@PlanningEntity
+@PlanningEntity(difficultyWeightFactoryClass = LessonDifficultyWeightFactory.class)
 public class TimeFoldLesson {
 
     @PlanningId
@@ -18,23 +21,39 @@ public class TimeFoldLesson {
 
     private Subject subject;
 
+    // LessonTraits flags of the subject, kept in sync by the constructors and setSubject
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private int traits;
+
     private Staff teacher;
 
     private Section section;
 
-    @PlanningVariable(valueRangeProviderRefs = "timeslotRange")
+    // Timeslots of the shift the section attends, shared by all lessons of that shift.
+    // Set when the problem is prepared, or by TimeFoldTimetable.restrictTimeslotRanges().
+    @JsonIgnore
+    @ValueRangeProvider(id = "lessonTimeslotRange")
+    private List<TimeFoldTimeslot> timeslotRange;
+
+    @PlanningVariable(valueRangeProviderRefs = "lessonTimeslotRange")
     private TimeFoldTimeslot timeslot;
 
+    // Shared by lessons with the same subject, teacher, section and timeslot range, 0 for a lesson
+    // without such a twin. Set by TimeFoldTimetable.groupInterchangeableLessons().
+    @JsonIgnore
+    private int interchangeableGroup;
+
     public TimeFoldLesson(Integer id, Subject subject, Staff teacher, Section studentGroup) {
         this.id = id;
-        this.subject = subject;
+        setSubject(subject);
         this.teacher = teacher;
         this.section = studentGroup;
     }
 
     public TimeFoldLesson(Integer id, Subject subject, Staff teacher, Section section, TimeFoldTimeslot timeFoldTimeslots) {
         this.id = id;
-        this.subject = subject;
+        setSubject(subject);
         this.teacher = teacher;
         this.section = section;
         this.timeslot = timeFoldTimeslots;
@@ -42,4 +61,20 @@ public class TimeFoldLesson {
 
     public TimeFoldLesson() {
     }
+
+    public void setSubject(Subject subject) {
+        this.subject = subject;
+        this.traits = LessonTraits.of(subject);
+    }
+
+    public boolean hasTraits(int traitMask) {
+        return (traits & traitMask) == traitMask;
+    }
+
+    /**
+     * Whether swapping the timeslots of both lessons would leave an equivalent timetable.
+     */
+    public boolean isInterchangeableWith(TimeFoldLesson other) {
+        return interchangeableGroup != 0 && interchangeableGroup == other.interchangeableGroup;
+    }
 }
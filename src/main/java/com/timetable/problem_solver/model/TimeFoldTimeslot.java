@@ -1,8 +1,12 @@
 package com.timetable.problem_solver.model;
 
+import ai.timefold.solver.core.api.domain.lookup.PlanningId;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 import java.time.DayOfWeek;
 import java.time.LocalTime;
@@ -14,12 +18,41 @@ import java.util.Objects;
 @AllArgsConstructor
 public class TimeFoldTimeslot {
 
+    // Lets moves be rebased onto the working solution of another move thread
+    @PlanningId
     private Integer id;
     private DayOfWeek dayOfWeek;
     private LocalTime startTime;
     private LocalTime endTime;
     private SchoolTiming timing;
 
+    // Primitive indexes precomputed by TimeFoldTimetable.indexTimeslots() before solving, so
+    // constraints compare ints instead of doing Duration/LocalTime math on every move.
+
+    // Position of the shift (SchoolTiming) this timeslot belongs to
+    private int shiftIndex;
+    // DayOfWeek ordinal (MONDAY = 0), kept in sync by the constructor and setDayOfWeek
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private int dayIndex;
+    // Position of the period within its shift's day, by start time
+    private int periodIndex;
+    // Adjacent periods differ by exactly 1, periods separated by a long break by more
+    private int sequenceIndex;
+
+    public TimeFoldTimeslot(Integer id, DayOfWeek dayOfWeek, LocalTime startTime, LocalTime endTime, SchoolTiming timing) {
+        this.id = id;
+        setDayOfWeek(dayOfWeek);
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.timing = timing;
+    }
+
+    public void setDayOfWeek(DayOfWeek dayOfWeek) {
+        this.dayOfWeek = dayOfWeek;
+        this.dayIndex = dayOfWeek != null ? dayOfWeek.ordinal() : 0;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
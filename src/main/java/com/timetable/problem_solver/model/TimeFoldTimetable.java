@@ -1,17 +1,26 @@
 package com.timetable.problem_solver.model;
 
+import ai.timefold.solver.core.api.domain.solution.ConstraintWeightOverrides;
 import ai.timefold.solver.core.api.domain.solution.PlanningEntityCollectionProperty;
 import ai.timefold.solver.core.api.domain.solution.PlanningScore;
 import ai.timefold.solver.core.api.domain.solution.PlanningSolution;
 import ai.timefold.solver.core.api.domain.solution.ProblemFactCollectionProperty;
-import ai.timefold.solver.core.api.domain.valuerange.ValueRangeProvider;
 import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
 import ai.timefold.solver.core.api.solver.SolverStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @PlanningSolution
 @AllArgsConstructor
@@ -19,7 +28,10 @@ import java.util.List;
 @Data
 public class TimeFoldTimetable {
 
-    @ValueRangeProvider(id = "timeslotRange")
+    // A longer gap between two periods (a lunch or long break) means they are not consecutive
+    public static final Duration MAX_CONSECUTIVE_GAP = Duration.ofMinutes(30);
+
+    // Lessons take their values from their own timeslotRange, a subset of these
     @ProblemFactCollectionProperty
     private List<TimeFoldTimeslot> timeslots;
 
@@ -32,6 +44,11 @@ public class TimeFoldTimetable {
     @PlanningScore
     private HardSoftScore score;
 
+    // Weights of the current constraint settings, applied by SolverService before solving.
+    // A zero weight disables a constraint without rebuilding the solver.
+    @JsonIgnore
+    private ConstraintWeightOverrides<HardSoftScore> constraintWeightOverrides;
+
     public TimeFoldTimetable(HardSoftScore score) {
         this.score = score;
     }
@@ -41,4 +58,95 @@ public class TimeFoldTimetable {
         this.lessons = lessons;
         this.score = score;
     }
+
+    /**
+     * Compute the shift, period and sequence indexes of every timeslot from its timing and times,
+     * so they hold for problems posted as JSON as well as for prepared ones. Shifts are numbered in
+     * the order their first timeslot appears, periods by start time within their shift's day, and a
+     * period starting more than {@link #MAX_CONSECUTIVE_GAP} after the previous one ends skips a
+     * sequence index, so "consecutive" becomes an int comparison.
+     */
+    public void indexTimeslots() {
+        Map<Long, Integer> shiftIndexes = new HashMap<>();
+        Map<List<Integer>, List<TimeFoldTimeslot>> shiftDays = new HashMap<>();
+        for (TimeFoldTimeslot timeslot : timeslots) {
+            Long timingId = timeslot.getTiming() != null ? timeslot.getTiming().getId() : null;
+            int shiftIndex = shiftIndexes.computeIfAbsent(timingId, id -> shiftIndexes.size());
+            timeslot.setShiftIndex(shiftIndex);
+            shiftDays.computeIfAbsent(List.of(shiftIndex, timeslot.getDayIndex()), key -> new ArrayList<>())
+                    .add(timeslot);
+        }
+        Comparator<TimeFoldTimeslot> byStartTime = Comparator.comparing(TimeFoldTimeslot::getStartTime,
+                Comparator.nullsLast(Comparator.naturalOrder()));
+        for (List<TimeFoldTimeslot> periods : shiftDays.values()) {
+            periods.sort(byStartTime);
+            int sequenceIndex = 0;
+            for (int periodIndex = 0; periodIndex < periods.size(); periodIndex++) {
+                TimeFoldTimeslot period = periods.get(periodIndex);
+                if (periodIndex > 0) {
+                    sequenceIndex += isConsecutive(periods.get(periodIndex - 1), period) ? 1 : 2;
+                }
+                period.setPeriodIndex(periodIndex);
+                period.setSequenceIndex(sequenceIndex);
+            }
+        }
+    }
+
+    private static boolean isConsecutive(TimeFoldTimeslot previous, TimeFoldTimeslot next) {
+        if (previous.getEndTime() == null || next.getStartTime() == null) {
+            return false;
+        }
+        Duration gap = Duration.between(previous.getEndTime(), next.getStartTime());
+        return !gap.isNegative() && gap.compareTo(MAX_CONSECUTIVE_GAP) <= 0;
+    }
+
+    /**
+     * Limit every lesson without a value range to the timeslots of its section's shift,
+     * so the solver never tries a timeslot the section does not attend.
+     * Lessons whose section has no matching shift can take any timeslot.
+     */
+    public void restrictTimeslotRanges() {
+        Map<Long, List<TimeFoldTimeslot>> timeslotsByTiming = timeslots.stream()
+                .filter(timeslot -> timeslot.getTiming() != null)
+                .collect(Collectors.groupingBy(timeslot -> timeslot.getTiming().getId()));
+        for (TimeFoldLesson lesson : lessons) {
+            if (lesson.getTimeslotRange() != null) {
+                continue;
+            }
+            SchoolTiming timing = lesson.getSection() != null ? lesson.getSection().getSchoolTimings() : null;
+            List<TimeFoldTimeslot> range = timing != null ? timeslotsByTiming.get(timing.getId()) : null;
+            lesson.setTimeslotRange(range != null ? range : timeslots);
+        }
+    }
+
+    /**
+     * Give lessons with the same subject, teacher, section and timeslot range a shared interchangeable
+     * group, so move selection can skip swapping them, and every other lesson group 0, including
+     * every lesson without a teacher.
+     * Call after restrictTimeslotRanges(). Returns the number of groups.
+     */
+    public int groupInterchangeableLessons() {
+        Map<List<TimeFoldTimeslot>, Integer> rangeIndexes = new IdentityHashMap<>();
+        Map<List<Object>, List<TimeFoldLesson>> twins = new HashMap<>();
+        for (TimeFoldLesson lesson : lessons) {
+            if (lesson.getTeacher() == null) {
+                lesson.setInterchangeableGroup(0);
+                continue;
+            }
+            Integer rangeIndex = rangeIndexes.computeIfAbsent(lesson.getTimeslotRange(), range -> rangeIndexes.size());
+            // Arrays.asList accepts the null id of a missing subject or section
+            List<Object> key = Arrays.asList(
+                    lesson.getSubject() != null ? lesson.getSubject().getId() : null,
+                    lesson.getTeacher().getId(),
+                    lesson.getSection() != null ? lesson.getSection().getId() : null,
+                    rangeIndex);
+            twins.computeIfAbsent(key, k -> new ArrayList<>()).add(lesson);
+        }
+        int groupCount = 0;
+        for (List<TimeFoldLesson> group : twins.values()) {
+            int interchangeableGroup = group.size() > 1 ? ++groupCount : 0;
+            group.forEach(lesson -> lesson.setInterchangeableGroup(interchangeableGroup));
+        }
+        return groupCount;
+    }
 }
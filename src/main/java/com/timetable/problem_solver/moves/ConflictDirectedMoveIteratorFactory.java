@@ -0,0 +1,252 @@
+package com.timetable.problem_solver.moves;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.score.director.ScoreDirector;
+import ai.timefold.solver.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+
+/**
+ * Generates only moves that address a teacher or section conflict, read from the current occupancy
+ * of every teacher and section: a conflicting lesson either moves to a timeslot where both its teacher
+ * and its section are free, or swaps a Kempe chain with another timeslot. The chain is the set of
+ * lessons in both timeslots connected to it through a shared teacher or section; swapping it as a
+ * whole never creates a new teacher or section conflict between these two timeslots.
+ * Once no lesson conflicts, it generates no moves and the other move selectors take over.
+ */
+public class ConflictDirectedMoveIteratorFactory
+        implements MoveIteratorFactory<TimeFoldTimetable, LessonReassignmentMove> {
+
+    // Longer chains are rarely accepted and cost a lot to score
+    static final int MAX_CHAIN_SIZE = 24;
+    // Timeslots tried for a short enough chain before falling back to a plain change
+    private static final int MAX_CHAIN_ATTEMPTS = 4;
+
+    @Override
+    public long getSize(ScoreDirector<TimeFoldTimetable> scoreDirector) {
+        Occupancy occupancy = new Occupancy(scoreDirector.getWorkingSolution());
+        long size = 0;
+        for (TimeFoldLesson lesson : occupancy.conflictingLessons) {
+            size += rangeOf(lesson, occupancy).size() - 1;
+        }
+        return size;
+    }
+
+    @Override
+    public Iterator<LessonReassignmentMove> createOriginalMoveIterator(ScoreDirector<TimeFoldTimetable> scoreDirector) {
+        Occupancy occupancy = new Occupancy(scoreDirector.getWorkingSolution());
+        List<LessonReassignmentMove> moves = new ArrayList<>();
+        for (TimeFoldLesson lesson : occupancy.conflictingLessons) {
+            for (TimeFoldTimeslot timeslot : rangeOf(lesson, occupancy)) {
+                if (timeslot == lesson.getTimeslot()) {
+                    continue;
+                }
+                LessonReassignmentMove move = occupancy.isFree(lesson, timeslot)
+                        ? relocation(lesson, timeslot)
+                        : occupancy.kempeChainSwap(lesson, timeslot);
+                if (move != null) {
+                    moves.add(move);
+                }
+            }
+        }
+        return moves.iterator();
+    }
+
+    @Override
+    public Iterator<LessonReassignmentMove> createRandomMoveIterator(ScoreDirector<TimeFoldTimetable> scoreDirector,
+                                                                     Random workingRandom) {
+        Occupancy occupancy = new Occupancy(scoreDirector.getWorkingSolution());
+        if (occupancy.conflictingLessons.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public LessonReassignmentMove next() {
+                TimeFoldLesson lesson = occupancy.conflictingLessons.get(workingRandom.nextInt(occupancy.conflictingLessons.size()));
+                List<TimeFoldTimeslot> range = rangeOf(lesson, occupancy);
+                // Half relocations, half chain swaps, so chains also get tried when free timeslots exist
+                boolean relocationFirst = workingRandom.nextBoolean();
+                if (relocationFirst) {
+                    TimeFoldTimeslot free = occupancy.findFreeTimeslot(lesson, range, workingRandom);
+                    if (free != null) {
+                        return relocation(lesson, free);
+                    }
+                }
+                for (int attempt = 0; attempt < MAX_CHAIN_ATTEMPTS; attempt++) {
+                    TimeFoldTimeslot timeslot = range.get(workingRandom.nextInt(range.size()));
+                    if (timeslot != lesson.getTimeslot()) {
+                        LessonReassignmentMove swap = occupancy.kempeChainSwap(lesson, timeslot);
+                        if (swap != null) {
+                            return swap;
+                        }
+                    }
+                }
+                if (!relocationFirst) {
+                    TimeFoldTimeslot free = occupancy.findFreeTimeslot(lesson, range, workingRandom);
+                    if (free != null) {
+                        return relocation(lesson, free);
+                    }
+                }
+                // Neither a free timeslot nor a short enough chain: staying put is not doable, the solver skips it
+                return relocation(lesson, lesson.getTimeslot());
+            }
+        };
+    }
+
+    private static LessonReassignmentMove relocation(TimeFoldLesson lesson, TimeFoldTimeslot timeslot) {
+        return new LessonReassignmentMove("ConflictRelocation", List.of(lesson), List.of(timeslot));
+    }
+
+    private static List<TimeFoldTimeslot> rangeOf(TimeFoldLesson lesson, Occupancy occupancy) {
+        return lesson.getTimeslotRange() != null ? lesson.getTimeslotRange() : occupancy.timeslots;
+    }
+
+    private static Object teacherIdOf(TimeFoldLesson lesson) {
+        return lesson.getTeacher() != null ? lesson.getTeacher().getId() : null;
+    }
+
+    private static Object sectionIdOf(TimeFoldLesson lesson) {
+        return lesson.getSection() != null ? lesson.getSection().getId() : null;
+    }
+
+    /**
+     * Lessons of every timeslot, teacher and section in the working solution when the step started.
+     * Lessons without a teacher share one, as do lessons without a section, like in the conflict constraints.
+     */
+    private static final class Occupancy {
+
+        private record Slot(Object ownerId, TimeFoldTimeslot timeslot) {
+        }
+
+        private final List<TimeFoldTimeslot> timeslots;
+        private final Map<Slot, List<TimeFoldLesson>> teacherSlots = new HashMap<>();
+        private final Map<Slot, List<TimeFoldLesson>> sectionSlots = new HashMap<>();
+        // Lessons sharing their timeslot with another lesson of their teacher or section, and somewhere to go
+        private final List<TimeFoldLesson> conflictingLessons = new ArrayList<>();
+
+        private Occupancy(TimeFoldTimetable solution) {
+            timeslots = solution.getTimeslots();
+            for (TimeFoldLesson lesson : solution.getLessons()) {
+                TimeFoldTimeslot timeslot = lesson.getTimeslot();
+                if (timeslot == null) {
+                    continue;
+                }
+                teacherSlots.computeIfAbsent(new Slot(teacherIdOf(lesson), timeslot), key -> new ArrayList<>()).add(lesson);
+                sectionSlots.computeIfAbsent(new Slot(sectionIdOf(lesson), timeslot), key -> new ArrayList<>()).add(lesson);
+            }
+            for (TimeFoldLesson lesson : solution.getLessons()) {
+                if (lesson.getTimeslot() != null && rangeOf(lesson, this).size() > 1
+                        && (lessonCount(teacherSlots, teacherIdOf(lesson), lesson.getTimeslot()) > 1
+                        || lessonCount(sectionSlots, sectionIdOf(lesson), lesson.getTimeslot()) > 1)) {
+                    conflictingLessons.add(lesson);
+                }
+            }
+        }
+
+        private static int lessonCount(Map<Slot, List<TimeFoldLesson>> slots, Object ownerId, TimeFoldTimeslot timeslot) {
+            List<TimeFoldLesson> lessons = slots.get(new Slot(ownerId, timeslot));
+            return lessons != null ? lessons.size() : 0;
+        }
+
+        boolean isFree(TimeFoldLesson lesson, TimeFoldTimeslot timeslot) {
+            return lessonCount(teacherSlots, teacherIdOf(lesson), timeslot) == 0
+                    && lessonCount(sectionSlots, sectionIdOf(lesson), timeslot) == 0;
+        }
+
+        /**
+         * A timeslot of the range where both the lesson's teacher and section are free, scanning from a random one.
+         */
+        TimeFoldTimeslot findFreeTimeslot(TimeFoldLesson lesson, List<TimeFoldTimeslot> range, Random random) {
+            int offset = random.nextInt(range.size());
+            for (int i = 0; i < range.size(); i++) {
+                TimeFoldTimeslot timeslot = range.get((offset + i) % range.size());
+                if (timeslot != lesson.getTimeslot() && isFree(lesson, timeslot)) {
+                    return timeslot;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Swap the lessons of the lesson's timeslot and the other timeslot that are connected to it
+         * through shared teachers and sections. Null when the chain is too long, or when it only trades
+         * interchangeable lessons, which would leave the same timetable.
+         */
+        LessonReassignmentMove kempeChainSwap(TimeFoldLesson lesson, TimeFoldTimeslot otherTimeslot) {
+            TimeFoldTimeslot timeslot = lesson.getTimeslot();
+            Set<TimeFoldLesson> chain = new LinkedHashSet<>();
+            Deque<TimeFoldLesson> pending = new ArrayDeque<>();
+            chain.add(lesson);
+            pending.add(lesson);
+            while (!pending.isEmpty()) {
+                TimeFoldLesson current = pending.poll();
+                for (TimeFoldTimeslot side : List.of(timeslot, otherTimeslot)) {
+                    for (TimeFoldLesson neighbour : neighbours(current, side)) {
+                        if (chain.add(neighbour)) {
+                            if (chain.size() > MAX_CHAIN_SIZE) {
+                                return null;
+                            }
+                            pending.add(neighbour);
+                        }
+                    }
+                }
+            }
+            if (onlyTradesInterchangeableLessons(chain, timeslot)) {
+                return null;
+            }
+            List<TimeFoldLesson> lessons = new ArrayList<>(chain);
+            List<TimeFoldTimeslot> toTimeslots = new ArrayList<>(chain.size());
+            for (TimeFoldLesson chained : lessons) {
+                toTimeslots.add(chained.getTimeslot() == timeslot ? otherTimeslot : timeslot);
+            }
+            return new LessonReassignmentMove("KempeChainSwap", lessons, toTimeslots);
+        }
+
+        /**
+         * Whether each interchangeable group has as many lessons on either side of the chain, and every
+         * lesson is in one.
+         */
+        private static boolean onlyTradesInterchangeableLessons(Set<TimeFoldLesson> chain, TimeFoldTimeslot timeslot) {
+            Map<Integer, Integer> balances = new HashMap<>();
+            for (TimeFoldLesson lesson : chain) {
+                if (lesson.getInterchangeableGroup() == 0) {
+                    return false;
+                }
+                balances.merge(lesson.getInterchangeableGroup(), lesson.getTimeslot() == timeslot ? 1 : -1, Integer::sum);
+            }
+            return balances.values().stream().allMatch(balance -> balance == 0);
+        }
+
+        private List<TimeFoldLesson> neighbours(TimeFoldLesson lesson, TimeFoldTimeslot timeslot) {
+            List<TimeFoldLesson> teacherLessons = teacherSlots.getOrDefault(new Slot(teacherIdOf(lesson), timeslot), List.of());
+            List<TimeFoldLesson> sectionLessons = sectionSlots.getOrDefault(new Slot(sectionIdOf(lesson), timeslot), List.of());
+            if (sectionLessons.isEmpty()) {
+                return teacherLessons;
+            }
+            if (teacherLessons.isEmpty()) {
+                return sectionLessons;
+            }
+            List<TimeFoldLesson> neighbours = new ArrayList<>(teacherLessons);
+            neighbours.addAll(sectionLessons);
+            return neighbours;
+        }
+    }
+}
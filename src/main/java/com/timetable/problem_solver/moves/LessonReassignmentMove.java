@@ -0,0 +1,110 @@
+package com.timetable.problem_solver.moves;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.score.director.ScoreDirector;
+import ai.timefold.solver.core.impl.heuristic.move.AbstractMove;
+
+/**
+ * Moves each of its lessons to its own timeslot in one step: a single lesson for a relocation,
+ * the two sides of a chain for a Kempe chain swap. The solver undoes it from the recorded changes.
+ */
+public class LessonReassignmentMove extends AbstractMove<TimeFoldTimetable> {
+
+    private static final String TIMESLOT_VARIABLE = "timeslot";
+
+    private final String description;
+    private final List<TimeFoldLesson> lessons;
+    // Same order as lessons
+    private final List<TimeFoldTimeslot> toTimeslots;
+
+    public LessonReassignmentMove(String description, List<TimeFoldLesson> lessons, List<TimeFoldTimeslot> toTimeslots) {
+        if (lessons.size() != toTimeslots.size()) {
+            throw new IllegalArgumentException("Got " + lessons.size() + " lessons but "
+                    + toTimeslots.size() + " timeslots");
+        }
+        this.description = description;
+        this.lessons = lessons;
+        this.toTimeslots = toTimeslots;
+    }
+
+    public List<TimeFoldLesson> getLessons() {
+        return lessons;
+    }
+
+    public List<TimeFoldTimeslot> getToTimeslots() {
+        return toTimeslots;
+    }
+
+    /**
+     * Doable when it changes some timeslot and every target is in its lesson's timeslot range.
+     */
+    @Override
+    public boolean isMoveDoable(ScoreDirector<TimeFoldTimetable> scoreDirector) {
+        boolean changes = false;
+        for (int i = 0; i < lessons.size(); i++) {
+            TimeFoldLesson lesson = lessons.get(i);
+            TimeFoldTimeslot toTimeslot = toTimeslots.get(i);
+            if (lesson.getTimeslotRange() != null && !lesson.getTimeslotRange().contains(toTimeslot)) {
+                return false;
+            }
+            changes |= lesson.getTimeslot() != toTimeslot;
+        }
+        return changes;
+    }
+
+    @Override
+    protected void doMoveOnGenuineVariables(ScoreDirector<TimeFoldTimetable> scoreDirector) {
+        for (int i = 0; i < lessons.size(); i++) {
+            TimeFoldLesson lesson = lessons.get(i);
+            scoreDirector.beforeVariableChanged(lesson, TIMESLOT_VARIABLE);
+            lesson.setTimeslot(toTimeslots.get(i));
+            scoreDirector.afterVariableChanged(lesson, TIMESLOT_VARIABLE);
+        }
+    }
+
+    @Override
+    public LessonReassignmentMove rebase(ScoreDirector<TimeFoldTimetable> destinationScoreDirector) {
+        List<TimeFoldLesson> rebasedLessons = new ArrayList<>(lessons.size());
+        List<TimeFoldTimeslot> rebasedTimeslots = new ArrayList<>(toTimeslots.size());
+        for (int i = 0; i < lessons.size(); i++) {
+            rebasedLessons.add(destinationScoreDirector.lookUpWorkingObject(lessons.get(i)));
+            rebasedTimeslots.add(destinationScoreDirector.lookUpWorkingObject(toTimeslots.get(i)));
+        }
+        return new LessonReassignmentMove(description, rebasedLessons, rebasedTimeslots);
+    }
+
+    @Override
+    public String getSimpleMoveTypeDescription() {
+        return description;
+    }
+
+    @Override
+    public Collection<? extends Object> getPlanningEntities() {
+        return lessons;
+    }
+
+    @Override
+    public Collection<? extends Object> getPlanningValues() {
+        return new LinkedHashSet<>(toTimeslots);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(description).append(" {");
+        for (int i = 0; i < lessons.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(lessons.get(i).getId()).append(" -> ").append(toTimeslots.get(i).getId());
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,321 @@
+package com.timetable.problem_solver.moves;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+import com.timetable.problem_solver.model.LessonTraits;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.score.director.ScoreDirector;
+import ai.timefold.solver.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+
+/**
+ * Large neighbourhood moves: clear every lesson of a section on one day, or of the sections a teacher
+ * teaches on one day, and put them back greedily into the timeslots they freed. Each lesson goes to the
+ * freed timeslot of its section that costs least: a clash with its teacher's other lessons, then a run of
+ * three or more consecutive periods for its teacher, while a practical lesson prefers a timeslot next to
+ * the lesson of the same subject placed before it. Ties are broken at random, so ruining the same
+ * section-day again rebuilds it differently. The solver scores the rebuilt day as one move.
+ */
+public class RuinRecreateMoveIteratorFactory
+        implements MoveIteratorFactory<TimeFoldTimetable, LessonReassignmentMove> {
+
+    private static final int TEACHER_CLASH_COST = 100;
+    private static final int TEACHER_RUN_COST = 10;
+    private static final int PRACTICAL_PAIR_COST = -5;
+
+    // Most section-days a teacher-day ruin clears, 1 only ruins single section-days
+    private int maxSectionDays = 3;
+
+    public void setMaxSectionDays(int maxSectionDays) {
+        if (maxSectionDays < 1) {
+            throw new IllegalArgumentException("The maxSectionDays (" + maxSectionDays + ") must be at least 1");
+        }
+        this.maxSectionDays = maxSectionDays;
+    }
+
+    @Override
+    public long getSize(ScoreDirector<TimeFoldTimetable> scoreDirector) {
+        Set<SectionDay> sectionDays = new HashSet<>();
+        for (TimeFoldLesson lesson : scoreDirector.getWorkingSolution().getLessons()) {
+            if (lesson.getTimeslot() != null) {
+                sectionDays.add(SectionDay.of(lesson));
+            }
+        }
+        return sectionDays.size();
+    }
+
+    /**
+     * Every section-day once, rebuilt with a fixed seed.
+     */
+    @Override
+    public Iterator<LessonReassignmentMove> createOriginalMoveIterator(ScoreDirector<TimeFoldTimetable> scoreDirector) {
+        Schedule schedule = new Schedule(scoreDirector.getWorkingSolution());
+        Random random = new Random(0);
+        List<LessonReassignmentMove> moves = new ArrayList<>();
+        for (SectionDay sectionDay : schedule.sectionDayLessons.keySet()) {
+            moves.add(schedule.ruinAndRecreate("SectionDayRuinRecreate", List.of(sectionDay), random));
+        }
+        return moves.iterator();
+    }
+
+    @Override
+    public Iterator<LessonReassignmentMove> createRandomMoveIterator(ScoreDirector<TimeFoldTimetable> scoreDirector,
+                                                                     Random workingRandom) {
+        Schedule schedule = new Schedule(scoreDirector.getWorkingSolution());
+        if (schedule.lessons.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public LessonReassignmentMove next() {
+                TimeFoldLesson lesson = schedule.lessons.get(workingRandom.nextInt(schedule.lessons.size()));
+                if (maxSectionDays > 1 && workingRandom.nextBoolean()) {
+                    return schedule.ruinAndRecreate("TeacherDayRuinRecreate",
+                            schedule.teacherSectionDays(lesson, maxSectionDays, workingRandom), workingRandom);
+                }
+                return schedule.ruinAndRecreate("SectionDayRuinRecreate", List.of(SectionDay.of(lesson)), workingRandom);
+            }
+        };
+    }
+
+    private static Object teacherIdOf(TimeFoldLesson lesson) {
+        return lesson.getTeacher() != null ? lesson.getTeacher().getId() : null;
+    }
+
+    private static Object subjectIdOf(TimeFoldLesson lesson) {
+        return lesson.getSubject() != null ? lesson.getSubject().getId() : null;
+    }
+
+    private record SectionDay(Object sectionId, int dayIndex) {
+
+        static SectionDay of(TimeFoldLesson lesson) {
+            return new SectionDay(lesson.getSection() != null ? lesson.getSection().getId() : null,
+                    lesson.getTimeslot().getDayIndex());
+        }
+    }
+
+    private record TeacherDay(Object teacherId, int dayIndex) {
+    }
+
+    private record Period(int shiftIndex, int dayIndex, int sequenceIndex) {
+
+        static Period of(TimeFoldTimeslot timeslot) {
+            return new Period(timeslot.getShiftIndex(), timeslot.getDayIndex(), timeslot.getSequenceIndex());
+        }
+
+        Period plus(int offset) {
+            return new Period(shiftIndex, dayIndex, sequenceIndex + offset);
+        }
+    }
+
+    /**
+     * Lessons of the working solution by section-day and teacher-day, and the lesson count of each
+     * teacher per timeslot, when the step started. Recreating a move updates the counts and restores them.
+     * Teachers and timeslots get dense indexes, so probing a timeslot in the greedy loop allocates nothing.
+     */
+    private static final class Schedule {
+
+        private final List<TimeFoldLesson> lessons = new ArrayList<>();
+        private final Map<SectionDay, List<TimeFoldLesson>> sectionDayLessons = new LinkedHashMap<>();
+        private final Map<TeacherDay, List<TimeFoldLesson>> teacherDayLessons = new HashMap<>();
+        private final Map<TimeFoldTimeslot, Integer> slotIndexes = new IdentityHashMap<>();
+        private final Map<Object, Integer> teacherIndexes = new HashMap<>();
+        private final TimeFoldTimeslot[] timeslots;
+        // Slot of the period directly before and after each slot in its shift-day, -1 at either end
+        private final int[] previousSlots;
+        private final int[] nextSlots;
+        // Lessons of each teacher per slot, at teacher * slot count + slot
+        private final int[] teacherLoads;
+
+        private Schedule(TimeFoldTimetable solution) {
+            timeslots = solution.getTimeslots().toArray(new TimeFoldTimeslot[0]);
+            Map<Period, Integer> periodSlots = new HashMap<>();
+            for (int slot = 0; slot < timeslots.length; slot++) {
+                slotIndexes.put(timeslots[slot], slot);
+                periodSlots.put(Period.of(timeslots[slot]), slot);
+            }
+            previousSlots = new int[timeslots.length];
+            nextSlots = new int[timeslots.length];
+            for (int slot = 0; slot < timeslots.length; slot++) {
+                Period period = Period.of(timeslots[slot]);
+                previousSlots[slot] = periodSlots.getOrDefault(period.plus(-1), -1);
+                nextSlots[slot] = periodSlots.getOrDefault(period.plus(1), -1);
+            }
+            for (TimeFoldLesson lesson : solution.getLessons()) {
+                if (lesson.getTimeslot() == null) {
+                    continue;
+                }
+                lessons.add(lesson);
+                sectionDayLessons.computeIfAbsent(SectionDay.of(lesson), key -> new ArrayList<>()).add(lesson);
+                if (teacherIdOf(lesson) != null) {
+                    teacherDayLessons.computeIfAbsent(new TeacherDay(teacherIdOf(lesson), lesson.getTimeslot().getDayIndex()),
+                            key -> new ArrayList<>()).add(lesson);
+                    teacherIndexes.computeIfAbsent(teacherIdOf(lesson), key -> teacherIndexes.size());
+                }
+            }
+            teacherLoads = new int[teacherIndexes.size() * timeslots.length];
+            for (TimeFoldLesson lesson : lessons) {
+                load(teacherIndexOf(lesson), slotOf(lesson.getTimeslot()), 1);
+            }
+        }
+
+        /**
+         * The section-days of the lesson's teacher on the lesson's day, the lesson's own first,
+         * at most the given number of them.
+         */
+        List<SectionDay> teacherSectionDays(TimeFoldLesson lesson, int maxSectionDays, Random random) {
+            List<TimeFoldLesson> teacherLessons = teacherIdOf(lesson) != null
+                    ? teacherDayLessons.get(new TeacherDay(teacherIdOf(lesson), lesson.getTimeslot().getDayIndex()))
+                    : List.of(lesson);
+            Set<SectionDay> others = new LinkedHashSet<>();
+            for (TimeFoldLesson teacherLesson : teacherLessons) {
+                others.add(SectionDay.of(teacherLesson));
+            }
+            SectionDay own = SectionDay.of(lesson);
+            others.remove(own);
+            List<SectionDay> shuffled = new ArrayList<>(others);
+            Collections.shuffle(shuffled, random);
+            List<SectionDay> sectionDays = new ArrayList<>();
+            sectionDays.add(own);
+            sectionDays.addAll(shuffled.subList(0, Math.min(shuffled.size(), maxSectionDays - 1)));
+            return sectionDays;
+        }
+
+        LessonReassignmentMove ruinAndRecreate(String description, List<SectionDay> sectionDays, Random random) {
+            List<TimeFoldLesson> ruined = new ArrayList<>();
+            Map<SectionDay, List<TimeFoldTimeslot>> freeTimeslots = new HashMap<>();
+            for (SectionDay sectionDay : sectionDays) {
+                for (TimeFoldLesson lesson : sectionDayLessons.get(sectionDay)) {
+                    ruined.add(lesson);
+                    freeTimeslots.computeIfAbsent(sectionDay, key -> new ArrayList<>()).add(lesson.getTimeslot());
+                    load(teacherIndexOf(lesson), slotOf(lesson.getTimeslot()), -1);
+                }
+            }
+
+            // Practical lessons first, they need a neighbour; then the teachers busiest that day
+            List<TimeFoldLesson> order = new ArrayList<>(ruined);
+            Collections.shuffle(order, random);
+            order.sort(Comparator.comparing((TimeFoldLesson lesson) -> !lesson.hasTraits(LessonTraits.PRACTICAL))
+                    .thenComparing(lesson -> -teacherDayLessonCount(lesson)));
+            Map<TimeFoldLesson, TimeFoldTimeslot> placed = new HashMap<>();
+            // Lessons recreated so far per section-day, by their new timeslot
+            Map<SectionDay, Map<TimeFoldTimeslot, TimeFoldLesson>> placedTimeslots = new HashMap<>();
+            for (TimeFoldLesson lesson : order) {
+                SectionDay sectionDay = SectionDay.of(lesson);
+                List<TimeFoldTimeslot> candidates = freeTimeslots.get(sectionDay);
+                Map<TimeFoldTimeslot, TimeFoldLesson> sectionDayPlaced =
+                        placedTimeslots.computeIfAbsent(sectionDay, key -> new IdentityHashMap<>());
+                int teacher = teacherIndexOf(lesson);
+                int best = -1;
+                int bestCost = Integer.MAX_VALUE;
+                int ties = 0;
+                for (int i = 0; i < candidates.size(); i++) {
+                    int cost = cost(lesson, teacher, slotOf(candidates.get(i)), sectionDayPlaced);
+                    if (cost < bestCost) {
+                        best = i;
+                        bestCost = cost;
+                        ties = 1;
+                    } else if (cost == bestCost && random.nextInt(++ties) == 0) {
+                        best = i;
+                    }
+                }
+                TimeFoldTimeslot timeslot = candidates.remove(best);
+                placed.put(lesson, timeslot);
+                sectionDayPlaced.put(timeslot, lesson);
+                load(teacher, slotOf(timeslot), 1);
+            }
+
+            List<TimeFoldTimeslot> toTimeslots = new ArrayList<>(ruined.size());
+            for (TimeFoldLesson lesson : ruined) {
+                TimeFoldTimeslot timeslot = placed.get(lesson);
+                toTimeslots.add(timeslot);
+                int teacher = teacherIndexOf(lesson);
+                load(teacher, slotOf(timeslot), -1);
+                load(teacher, slotOf(lesson.getTimeslot()), 1);
+            }
+            return new LessonReassignmentMove(description, ruined, toTimeslots);
+        }
+
+        /**
+         * @param teacher index of the lesson's teacher, -1 without one
+         * @param sectionDayPlaced lessons already recreated in the lesson's section-day, by timeslot
+         */
+        private int cost(TimeFoldLesson lesson, int teacher, int slot,
+                         Map<TimeFoldTimeslot, TimeFoldLesson> sectionDayPlaced) {
+            int cost = 0;
+            if (teacher >= 0) {
+                cost += TEACHER_CLASH_COST * teacherLoads[teacher * timeslots.length + slot];
+                int run = 1 + busyPeriods(teacher, slot, previousSlots) + busyPeriods(teacher, slot, nextSlots);
+                cost += TEACHER_RUN_COST * Math.max(0, run - 2);
+            }
+            if (lesson.hasTraits(LessonTraits.PRACTICAL)
+                    && (placedWithSameSubject(lesson, previousSlots[slot], sectionDayPlaced)
+                    || placedWithSameSubject(lesson, nextSlots[slot], sectionDayPlaced))) {
+                cost += PRACTICAL_PAIR_COST;
+            }
+            return cost;
+        }
+
+        /**
+         * Consecutive periods next to the given slot, following the given adjacent slots, in which the teacher has a lesson.
+         */
+        private int busyPeriods(int teacher, int slot, int[] adjacentSlots) {
+            int count = 0;
+            for (int next = adjacentSlots[slot]; next >= 0 && teacherLoads[teacher * timeslots.length + next] > 0;
+                 next = adjacentSlots[next]) {
+                count++;
+            }
+            return count;
+        }
+
+        private boolean placedWithSameSubject(TimeFoldLesson lesson, int slot,
+                                              Map<TimeFoldTimeslot, TimeFoldLesson> sectionDayPlaced) {
+            if (slot < 0) {
+                return false;
+            }
+            TimeFoldLesson neighbour = sectionDayPlaced.get(timeslots[slot]);
+            return neighbour != null && Objects.equals(subjectIdOf(neighbour), subjectIdOf(lesson));
+        }
+
+        private int teacherDayLessonCount(TimeFoldLesson lesson) {
+            List<TimeFoldLesson> teacherLessons = teacherIdOf(lesson) != null
+                    ? teacherDayLessons.get(new TeacherDay(teacherIdOf(lesson), lesson.getTimeslot().getDayIndex()))
+                    : null;
+            return teacherLessons != null ? teacherLessons.size() : 0;
+        }
+
+        private int slotOf(TimeFoldTimeslot timeslot) {
+            return slotIndexes.get(timeslot);
+        }
+
+        private int teacherIndexOf(TimeFoldLesson lesson) {
+            return teacherIdOf(lesson) != null ? teacherIndexes.get(teacherIdOf(lesson)) : -1;
+        }
+
+        private void load(int teacher, int slot, int delta) {
+            if (teacher >= 0) {
+                teacherLoads[teacher * timeslots.length + slot] += delta;
+            }
+        }
+    }
+}
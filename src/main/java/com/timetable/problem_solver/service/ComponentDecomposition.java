@@ -0,0 +1,103 @@
+package com.timetable.problem_solver.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.timetable.problem_solver.model.TimeFoldLesson;
+
+/**
+ * Splits lessons into the connected components of the teacher-section graph: a lesson links its
+ * teacher to its section. The built-in constraints only relate lessons sharing a teacher or a section,
+ * so components can be solved independently and their solutions simply merged.
+ * Lessons without a teacher all share one teacher node, since the teacher conflict matches them with each other.
+ */
+final class ComponentDecomposition {
+
+    private ComponentDecomposition() {
+    }
+
+    /**
+     * @return components in order of their first lesson, each in the lesson order of the input
+     */
+    static List<List<TimeFoldLesson>> components(List<TimeFoldLesson> lessons) {
+        Map<Object, Integer> teacherNodes = new HashMap<>();
+        Map<Object, Integer> sectionNodes = new HashMap<>();
+        int[] lessonNodes = new int[lessons.size()];
+        UnionFind unionFind = new UnionFind(2 * lessons.size());
+        for (int i = 0; i < lessons.size(); i++) {
+            TimeFoldLesson lesson = lessons.get(i);
+            Object teacherId = lesson.getTeacher() != null ? lesson.getTeacher().getId() : null;
+            Object sectionId = lesson.getSection() != null ? lesson.getSection().getId() : null;
+            int teacher = teacherNodes.computeIfAbsent(teacherId, key -> unionFind.add());
+            int section = sectionNodes.computeIfAbsent(sectionId, key -> unionFind.add());
+            unionFind.union(teacher, section);
+            lessonNodes[i] = section;
+        }
+        Map<Integer, List<TimeFoldLesson>> components = new LinkedHashMap<>();
+        for (int i = 0; i < lessons.size(); i++) {
+            components.computeIfAbsent(unionFind.find(lessonNodes[i]), key -> new ArrayList<>()).add(lessons.get(i));
+        }
+        return new ArrayList<>(components.values());
+    }
+
+    /**
+     * Pack components into at most {@code binCount} groups of similar size, largest component first
+     * into the smallest group, so a job never needs more solver threads than there are.
+     */
+    static List<List<TimeFoldLesson>> pack(List<List<TimeFoldLesson>> components, int binCount) {
+        if (components.size() <= binCount) {
+            return components;
+        }
+        List<List<TimeFoldLesson>> bins = new ArrayList<>(binCount);
+        for (int i = 0; i < binCount; i++) {
+            bins.add(new ArrayList<>());
+        }
+        components.stream()
+                .sorted(Comparator.comparingInt((List<TimeFoldLesson> component) -> component.size()).reversed())
+                .forEach(component -> bins.stream()
+                        .min(Comparator.comparingInt(List::size))
+                        .orElseThrow()
+                        .addAll(component));
+        return bins;
+    }
+
+    private static final class UnionFind {
+
+        private final int[] parents;
+        private int size;
+
+        private UnionFind(int capacity) {
+            this.parents = new int[capacity];
+        }
+
+        private int add() {
+            parents[size] = size;
+            return size++;
+        }
+
+        private int find(int node) {
+            int root = node;
+            while (parents[root] != root) {
+                root = parents[root];
+            }
+            while (parents[node] != root) {
+                int next = parents[node];
+                parents[node] = root;
+                node = next;
+            }
+            return root;
+        }
+
+        private void union(int left, int right) {
+            int leftRoot = find(left);
+            int rightRoot = find(right);
+            if (leftRoot != rightRoot) {
+                parents[leftRoot] = rightRoot;
+            }
+        }
+    }
+}
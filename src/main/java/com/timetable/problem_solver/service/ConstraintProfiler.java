@@ -0,0 +1,156 @@
+package com.timetable.problem_solver.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.timetable.problem_solver.constraints.TimeTableConstraintProvider;
+import com.timetable.problem_solver.model.ConstraintProfile;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.domain.solution.ConstraintWeightOverrides;
+import ai.timefold.solver.core.api.score.analysis.ConstraintAnalysis;
+import ai.timefold.solver.core.api.score.analysis.ScoreAnalysis;
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.SolutionManager;
+import ai.timefold.solver.core.api.solver.SolverConfigOverride;
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.solver.core.config.solver.termination.TerminationConfig;
+
+/**
+ * Measures what each active constraint costs on a given solution.
+ * Zero-weighted constraints are left out of the constraint network, so running local search
+ * with only one constraint weighted isolates its incremental score calculation cost.
+ * Each sample runs a fixed number of score calculations. The unassigned lesson constraint,
+ * a single filter, is kept in every sample so the network is never empty, and its own sample
+ * is subtracted as the cost of moves and score director overhead.
+ */
+class ConstraintProfiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConstraintProfiler.class);
+
+    static final long SCORE_CALCULATIONS_PER_SAMPLE = 20_000L;
+    // The first round mostly warms up the JIT, the fastest sample of each constraint is kept
+    private static final int ROUNDS = 2;
+    private static final String BASELINE_CONSTRAINT_NAME =
+            TimeTableConstraintProvider.BUILT_IN_CONSTRAINT_NAMES.get("noFreeTimeslots");
+
+    private final SolverFactory<TimeFoldTimetable> solverFactory;
+    private final SolutionManager<TimeFoldTimetable, HardSoftScore> solutionManager;
+    private final Set<String> constraintNames;
+
+    ConstraintProfiler(SolverFactory<TimeFoldTimetable> solverFactory,
+                       SolutionManager<TimeFoldTimetable, HardSoftScore> solutionManager,
+                       Set<String> constraintNames) {
+        this.solverFactory = solverFactory;
+        this.solutionManager = solutionManager;
+        this.constraintNames = constraintNames;
+    }
+
+    ConstraintProfile profile(String jobId, TimeFoldTimetable solution) {
+        ConstraintWeightOverrides<HardSoftScore> weights = solution.getConstraintWeightOverrides();
+        List<String> activeNames = constraintNames.stream()
+                .filter(name -> weightOf(weights, name) == null || !weightOf(weights, name).isZero())
+                .sorted()
+                .toList();
+
+        ScoreAnalysis<HardSoftScore> analysis = solutionManager.analyze(solution);
+        Map<String, Integer> matchCounts = new HashMap<>();
+        for (ConstraintAnalysis<HardSoftScore> constraintAnalysis : analysis.constraintMap().values()) {
+            matchCounts.put(constraintAnalysis.constraintName(), constraintAnalysis.matchCount());
+        }
+
+        Map<String, Double> samples = new HashMap<>();
+        double baselineMicros = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            baselineMicros = Math.min(baselineMicros, sample(solution, isolatedWeights(weights, null)));
+            for (String constraintName : activeNames) {
+                samples.merge(constraintName, sample(solution, isolatedWeights(weights, constraintName)), Math::min);
+            }
+        }
+
+        Map<String, Double> costs = new HashMap<>();
+        double totalMicros = 0;
+        for (String constraintName : activeNames) {
+            double micros = Math.max(0, samples.get(constraintName) - baselineMicros);
+            costs.put(constraintName, micros);
+            totalMicros += micros;
+        }
+
+        List<ConstraintProfile.Entry> entries = new ArrayList<>();
+        for (String constraintName : activeNames) {
+            double micros = costs.get(constraintName);
+            entries.add(new ConstraintProfile.Entry(constraintName,
+                    matchCounts.getOrDefault(constraintName, 0),
+                    micros,
+                    totalMicros > 0 ? micros / totalMicros : 0));
+        }
+        entries.sort(Comparator.comparingDouble(ConstraintProfile.Entry::microsPerCalculation).reversed());
+
+        logger.info("Profiled {} constraints for job {}, baseline {} us per score calculation",
+                entries.size(), jobId, String.format("%.2f", baselineMicros));
+        return new ConstraintProfile(jobId, Instant.now(), SCORE_CALCULATIONS_PER_SAMPLE, baselineMicros, entries);
+    }
+
+    /**
+     * Run local search from the given solution for a fixed number of score calculations.
+     *
+     * @return average wall time per score calculation in microseconds
+     */
+    private double sample(TimeFoldTimetable solution, ConstraintWeightOverrides<HardSoftScore> weights) {
+        TimeFoldTimetable copy = copyOf(solution);
+        copy.setConstraintWeightOverrides(weights);
+        SolverConfigOverride<TimeFoldTimetable> override = new SolverConfigOverride<TimeFoldTimetable>()
+                .withTerminationConfig(new TerminationConfig().withScoreCalculationCountLimit(SCORE_CALCULATIONS_PER_SAMPLE));
+        long start = System.nanoTime();
+        solverFactory.buildSolver(override).solve(copy);
+        return (System.nanoTime() - start) / 1000.0 / SCORE_CALCULATIONS_PER_SAMPLE;
+    }
+
+    /**
+     * Keep the configured weight of the given constraint and disable every other one,
+     * except the baseline constraint which keeps the weight it was defined with.
+     */
+    private ConstraintWeightOverrides<HardSoftScore> isolatedWeights(ConstraintWeightOverrides<HardSoftScore> weights,
+                                                                     String keptName) {
+        Map<String, HardSoftScore> isolated = new HashMap<>();
+        for (String constraintName : constraintNames) {
+            if (constraintName.equals(BASELINE_CONSTRAINT_NAME)) {
+                continue;
+            }
+            if (!constraintName.equals(keptName)) {
+                isolated.put(constraintName, HardSoftScore.ZERO);
+            } else if (weightOf(weights, constraintName) != null) {
+                isolated.put(constraintName, weightOf(weights, constraintName));
+            }
+        }
+        return ConstraintWeightOverrides.of(isolated);
+    }
+
+    private static HardSoftScore weightOf(ConstraintWeightOverrides<HardSoftScore> weights, String constraintName) {
+        return weights != null ? weights.getConstraintWeight(constraintName) : null;
+    }
+
+    /**
+     * The solver plans on the instance it is given, so every sample starts from its own copy.
+     */
+    private static TimeFoldTimetable copyOf(TimeFoldTimetable solution) {
+        List<TimeFoldLesson> lessons = solution.getLessons().stream()
+                .map(lesson -> {
+                    TimeFoldLesson copy = new TimeFoldLesson(lesson.getId(), lesson.getSubject(), lesson.getTeacher(),
+                            lesson.getSection(), lesson.getTimeslot());
+                    copy.setTimeslotRange(lesson.getTimeslotRange());
+                    return copy;
+                })
+                .toList();
+        return new TimeFoldTimetable(solution.getTimeslots(), new ArrayList<>(lessons), null);
+    }
+}
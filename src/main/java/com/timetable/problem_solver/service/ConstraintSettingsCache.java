@@ -0,0 +1,83 @@
+package com.timetable.problem_solver.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.timetable.problem_solver.model.ConstraintSettings;
+import com.timetable.problem_solver.model.ConstraintSettingsSnapshot;
+import com.timetable.problem_solver.repository.ConstraintSettingsRepository;
+
+/**
+ * In-memory cache of the constraint settings table.
+ * The database is read once (lazily, or on an explicit refresh); after that, writes made
+ * through ConstraintController are applied here directly and published as a new
+ * immutable snapshot with an incremented version.
+ */
+@Service
+public class ConstraintSettingsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConstraintSettingsCache.class);
+
+    private final ConstraintSettingsRepository constraintSettingsRepository;
+    private final AtomicReference<ConstraintSettingsSnapshot> snapshot = new AtomicReference<>();
+
+    @Autowired
+    public ConstraintSettingsCache(ConstraintSettingsRepository constraintSettingsRepository) {
+        this.constraintSettingsRepository = constraintSettingsRepository;
+    }
+
+    /**
+     * Get the current snapshot, loading it from the database on first access.
+     */
+    public ConstraintSettingsSnapshot current() {
+        ConstraintSettingsSnapshot current = snapshot.get();
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Reload all constraint settings from the database and publish them as a new snapshot.
+     */
+    public synchronized ConstraintSettingsSnapshot refresh() {
+        List<ConstraintSettings> allSettings = constraintSettingsRepository.findAll();
+        Map<String, ConstraintSettingsSnapshot.Setting> settings = new HashMap<>();
+        allSettings.forEach(entity -> settings.put(entity.getConstraintName(), ConstraintSettingsSnapshot.Setting.of(entity)));
+        ConstraintSettingsSnapshot refreshed = publish(settings);
+        logger.info("Loaded {} constraint settings from database (snapshot version {})",
+                settings.size(), refreshed.version());
+        return refreshed;
+    }
+
+    /**
+     * Apply a saved constraint setting to the cache.
+     */
+    public synchronized ConstraintSettingsSnapshot put(ConstraintSettings saved) {
+        Map<String, ConstraintSettingsSnapshot.Setting> settings = new HashMap<>(current().settings());
+        settings.put(saved.getConstraintName(), ConstraintSettingsSnapshot.Setting.of(saved));
+        return publish(settings);
+    }
+
+    /**
+     * Remove a deleted constraint setting from the cache.
+     */
+    public synchronized ConstraintSettingsSnapshot remove(String constraintName) {
+        Map<String, ConstraintSettingsSnapshot.Setting> settings = new HashMap<>(current().settings());
+        settings.remove(constraintName);
+        return publish(settings);
+    }
+
+    private ConstraintSettingsSnapshot publish(Map<String, ConstraintSettingsSnapshot.Setting> settings) {
+        ConstraintSettingsSnapshot previous = snapshot.get();
+        long version = previous != null ? previous.version() + 1 : 1L;
+        ConstraintSettingsSnapshot next = new ConstraintSettingsSnapshot(version, settings);
+        snapshot.set(next);
+        logger.debug("Published constraint settings snapshot version {}", version);
+        return next;
+    }
+}
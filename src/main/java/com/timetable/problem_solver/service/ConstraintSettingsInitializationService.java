@@ -22,10 +22,13 @@ public class ConstraintSettingsInitializationService implements CommandLineRunne
     private static final Logger logger = LoggerFactory.getLogger(ConstraintSettingsInitializationService.class);
 
     private final ConstraintSettingsRepository constraintSettingsRepository;
+    private final ConstraintSettingsCache constraintSettingsCache;
 
     @Autowired
-    public ConstraintSettingsInitializationService(ConstraintSettingsRepository constraintSettingsRepository) {
+    public ConstraintSettingsInitializationService(ConstraintSettingsRepository constraintSettingsRepository,
+                                                   ConstraintSettingsCache constraintSettingsCache) {
         this.constraintSettingsRepository = constraintSettingsRepository;
+        this.constraintSettingsCache = constraintSettingsCache;
     }
 
     @Override
@@ -92,6 +95,11 @@ public class ConstraintSettingsInitializationService implements CommandLineRunne
 
         logger.info("Constraint settings initialization completed. Created: {}, Existing: {}", 
                 createdCount, existingCount);
+
+        if (createdCount > 0) {
+            // Make the newly seeded rows visible to the in-memory settings snapshot
+            constraintSettingsCache.refresh();
+        }
     }
 
     /**
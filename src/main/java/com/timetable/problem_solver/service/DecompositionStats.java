@@ -0,0 +1,19 @@
+package com.timetable.problem_solver.service;
+
+/**
+ * How a job was split before solving, reported in the job status.
+ *
+ * @param lessonCount lessons in the problem
+ * @param componentCount groups of lessons connected through shared teachers or sections,
+ *                       no constraint relates lessons of different components
+ * @param largestComponentSize lessons in the largest component, which bounds the speed-up
+ * @param partitionCount jobs the problem was solved as, components packed per solver thread
+ *                       and, when partitioned, split per shift
+ * @param repaired whether the merged partitions get a repair solve for penalties spanning shifts
+ */
+public record DecompositionStats(int lessonCount,
+                                 int componentCount,
+                                 int largestComponentSize,
+                                 int partitionCount,
+                                 boolean repaired) {
+}
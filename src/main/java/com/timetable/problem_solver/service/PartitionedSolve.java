@@ -0,0 +1,311 @@
+package com.timetable.problem_solver.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.SolutionManager;
+import ai.timefold.solver.core.api.solver.SolutionUpdatePolicy;
+import ai.timefold.solver.core.api.solver.SolverConfigOverride;
+import ai.timefold.solver.core.api.solver.SolverManager;
+import ai.timefold.solver.core.api.solver.SolverStatus;
+import ai.timefold.solver.core.config.solver.termination.TerminationConfig;
+
+/**
+ * Solves a timetable as separate partitions, each as its own job on the solver manager's threads,
+ * and merges their best solutions into one timetable.
+ * Partitions made of independent components (see {@link ComponentDecomposition}) share no constraint
+ * and are solved under the configured termination, like a single job. Partitions split per shift only miss the
+ * penalties spanning shifts, such as a teacher's daily workload, since lessons of different shifts
+ * never share a timeslot. They are solved for a fixed time set by the solver profile, after which
+ * the merged timetable gets a short repair solve under the original job id to resolve those.
+ * Until then their merged timetables are published without a score, since the sum of the partition
+ * scores would overstate them.
+ */
+class PartitionedSolve {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedSolve.class);
+
+    enum Phase {
+        PARTITIONS,
+        REPAIR,
+        DONE
+    }
+
+    private final String jobId;
+    private final TimeFoldTimetable problem;
+    private final List<TimeFoldTimetable> partitions;
+    private final boolean repair;
+    private final SolveOptions.SolverProfile profile;
+    private final SolverManager<TimeFoldTimetable, String> solverManager;
+    private final SolutionManager<TimeFoldTimetable, HardSoftScore> solutionManager;
+    private final Consumer<TimeFoldTimetable> bestSolutionConsumer;
+    private final Consumer<TimeFoldTimetable> finalBestSolutionConsumer;
+
+    // Latest best solution of each partition, and the partitions that finished, guarded by this
+    private final TimeFoldTimetable[] partitionSolutions;
+    private final boolean[] finishedPartitions;
+    private final AtomicInteger runningPartitions;
+    private volatile Phase phase = Phase.PARTITIONS;
+    private volatile boolean terminatedEarly;
+    // Merged timetable the repair solve started from, the final solution if it is terminated before it started
+    private volatile TimeFoldTimetable repairProblem;
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    /**
+     * @param partitionLessons disjoint lesson groups covering all lessons of the problem
+     * @param repair solve partitions for a fixed time and repair the merged timetable afterwards
+     * @param profile sets the partition and repair solving times
+     * @param solutionManager scores a merged timetable that is not repaired
+     * @param finalBestSolutionConsumer called once with the final timetable
+     */
+    PartitionedSolve(String jobId, TimeFoldTimetable problem, List<List<TimeFoldLesson>> partitionLessons,
+                     boolean repair, SolveOptions.SolverProfile profile, SolverManager<TimeFoldTimetable, String> solverManager,
+                     SolutionManager<TimeFoldTimetable, HardSoftScore> solutionManager,
+                     Consumer<TimeFoldTimetable> bestSolutionConsumer,
+                     Consumer<TimeFoldTimetable> finalBestSolutionConsumer) {
+        this.jobId = jobId;
+        this.problem = problem;
+        this.partitions = partitionLessons.stream()
+                .map(lessons -> {
+                    TimeFoldTimetable partition = new TimeFoldTimetable(problem.getTimeslots(), lessons, null);
+                    partition.setConstraintWeightOverrides(problem.getConstraintWeightOverrides());
+                    return partition;
+                })
+                .toList();
+        this.repair = repair;
+        this.profile = profile;
+        this.solverManager = solverManager;
+        this.solutionManager = solutionManager;
+        this.bestSolutionConsumer = bestSolutionConsumer;
+        this.finalBestSolutionConsumer = finalBestSolutionConsumer;
+        this.partitionSolutions = new TimeFoldTimetable[partitions.size()];
+        this.finishedPartitions = new boolean[partitions.size()];
+        this.runningPartitions = new AtomicInteger(partitions.size());
+    }
+
+    /**
+     * Split lessons per shift. Lessons of a shift share the timeslot range restricted by
+     * {@link TimeFoldTimetable#restrictTimeslotRanges()}. Returns the lessons as one group when
+     * they cannot be split, because they belong to a single shift or may take any timeslot.
+     */
+    static List<List<TimeFoldLesson>> splitByShift(List<TimeFoldLesson> lessons, List<TimeFoldTimeslot> allTimeslots) {
+        Map<List<TimeFoldTimeslot>, List<TimeFoldLesson>> lessonsByRange = new IdentityHashMap<>();
+        List<List<TimeFoldLesson>> shifts = new ArrayList<>();
+        for (TimeFoldLesson lesson : lessons) {
+            List<TimeFoldTimeslot> range = lesson.getTimeslotRange();
+            if (range == null || range == allTimeslots) {
+                return List.of(lessons);
+            }
+            lessonsByRange.computeIfAbsent(range, key -> {
+                List<TimeFoldLesson> shift = new ArrayList<>();
+                shifts.add(shift);
+                return shift;
+            }).add(lesson);
+        }
+        return shifts.size() < 2 ? List.of(lessons) : shifts;
+    }
+
+    void start() {
+        logger.info("Solving job {} as {} partitions of {} lessons{}", jobId, partitions.size(),
+                partitions.stream().map(partition -> partition.getLessons().size()).toList(),
+                repair ? ", repairing them once merged" : "");
+        SolverConfigOverride<TimeFoldTimetable> override = repair
+                ? spentLimit(profile.partitionSpentLimit())
+                : new SolverConfigOverride<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            int index = i;
+            if (terminatedEarly) {
+                // Terminated before this partition was submitted, it keeps its problem as is
+                onPartitionFinished(index, null);
+                continue;
+            }
+            try {
+                solverManager.solveBuilder()
+                        .withProblemId(partitionJobId(index))
+                        .withProblem(partitions.get(index))
+                        .withConfigOverride(override)
+                        .withBestSolutionConsumer(solution -> onPartitionBestSolution(index, solution))
+                        .withFinalBestSolutionConsumer(solution -> onPartitionFinished(index, solution))
+                        .withExceptionHandler((partitionId, throwable) -> {
+                            logger.error("Partition {} failed, keeping its last best solution: {}",
+                                    partitionId, throwable.getMessage(), throwable);
+                            onPartitionFinished(index, null);
+                        })
+                        .run();
+            } catch (RuntimeException e) {
+                // The partitions not submitted never finish, so neither does the job: stop the submitted ones
+                phase = Phase.DONE;
+                terminatedEarly = true;
+                for (int submitted = 0; submitted < index; submitted++) {
+                    solverManager.terminateEarly(partitionJobId(submitted));
+                }
+                throw e;
+            }
+            // A termination that arrived while this partition was being submitted
+            if (terminatedEarly) {
+                terminatePartition(index);
+            }
+        }
+    }
+
+    SolverStatus getSolverStatus() {
+        return switch (phase) {
+            case PARTITIONS -> SolverStatus.SOLVING_ACTIVE;
+            case REPAIR -> solverManager.getSolverStatus(jobId);
+            case DONE -> SolverStatus.NOT_SOLVING;
+        };
+    }
+
+    Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Stop every partition; the merged timetable becomes the final solution without a repair.
+     */
+    void terminateEarly() {
+        terminatedEarly = true;
+        for (int i = 0; i < partitions.size(); i++) {
+            terminatePartition(i);
+        }
+        terminateRepair();
+    }
+
+    /**
+     * The solver manager drops a job terminated before it started without calling any of its consumers,
+     * so such a partition is finished here, keeping its problem as is.
+     */
+    private void terminatePartition(int index) {
+        boolean scheduled = solverManager.getSolverStatus(partitionJobId(index)) == SolverStatus.SOLVING_SCHEDULED;
+        solverManager.terminateEarly(partitionJobId(index));
+        if (scheduled) {
+            onPartitionFinished(index, null);
+        }
+    }
+
+    private void terminateRepair() {
+        boolean scheduled = solverManager.getSolverStatus(jobId) == SolverStatus.SOLVING_SCHEDULED;
+        solverManager.terminateEarly(jobId);
+        TimeFoldTimetable merged = repairProblem;
+        if (scheduled && merged != null) {
+            solutionManager.update(merged, SolutionUpdatePolicy.UPDATE_SCORE_ONLY);
+            finish(merged);
+        }
+    }
+
+    private String partitionJobId(int index) {
+        return jobId + "#" + index;
+    }
+
+    private synchronized void onPartitionBestSolution(int index, TimeFoldTimetable solution) {
+        partitionSolutions[index] = solution;
+        for (TimeFoldTimetable partitionSolution : partitionSolutions) {
+            if (partitionSolution == null) {
+                return;
+            }
+        }
+        bestSolutionConsumer.accept(merge());
+    }
+
+    private void onPartitionFinished(int index, TimeFoldTimetable solution) {
+        synchronized (this) {
+            // Both the solver manager and a termination racing with the partition's start may finish it
+            if (finishedPartitions[index]) {
+                return;
+            }
+            finishedPartitions[index] = true;
+            if (solution != null) {
+                partitionSolutions[index] = solution;
+            }
+        }
+        if (runningPartitions.decrementAndGet() == 0) {
+            allPartitionsFinished();
+        }
+    }
+
+    private void allPartitionsFinished() {
+        TimeFoldTimetable merged;
+        synchronized (this) {
+            merged = merge();
+        }
+        if (repair) {
+            // Adds the penalties spanning shifts, which the merged timetable has no score for
+            solutionManager.update(merged, SolutionUpdatePolicy.UPDATE_SCORE_ONLY);
+        }
+        if (!repair || terminatedEarly) {
+            finish(merged);
+            return;
+        }
+        phase = Phase.REPAIR;
+        logger.info("Partitions of job {} finished with {}, repairing the merged timetable", jobId, merged.getScore());
+        merged.setScore(null);
+        repairProblem = merged;
+        solverManager.solveBuilder()
+                .withProblemId(jobId)
+                .withProblem(merged)
+                .withConfigOverride(spentLimit(profile.repairSpentLimit()))
+                .withBestSolutionConsumer(bestSolutionConsumer)
+                .withFinalBestSolutionConsumer(this::finish)
+                .withExceptionHandler((id, throwable) -> {
+                    logger.error("Repair of job {} failed: {}", id, throwable.getMessage(), throwable);
+                    finish(merged);
+                })
+                .run();
+        // A termination that arrived while the repair job was being submitted
+        if (terminatedEarly) {
+            terminateRepair();
+        }
+    }
+
+    private void finish(TimeFoldTimetable solution) {
+        // Once, even when the repair solve and a termination before its start both finish the job
+        if (finished.compareAndSet(false, true)) {
+            phase = Phase.DONE;
+            finalBestSolutionConsumer.accept(solution);
+        }
+    }
+
+    /**
+     * Combine the latest partition solutions into one timetable, in the lesson order of the problem.
+     * The score is the sum of the partition scores, which is exact for independent components.
+     * Shift partitions leave out the penalties spanning shifts, so their merged timetable has no score.
+     */
+    private TimeFoldTimetable merge() {
+        Map<Integer, TimeFoldLesson> solvedLessons = new HashMap<>();
+        HardSoftScore score = HardSoftScore.ZERO;
+        for (int i = 0; i < partitionSolutions.length; i++) {
+            TimeFoldTimetable solution = partitionSolutions[i] != null ? partitionSolutions[i] : partitions.get(i);
+            for (TimeFoldLesson lesson : solution.getLessons()) {
+                solvedLessons.put(lesson.getId(), lesson);
+            }
+            score = solution.getScore() != null ? score.add(solution.getScore()) : score;
+        }
+        List<TimeFoldLesson> lessons = problem.getLessons().stream()
+                .map(lesson -> solvedLessons.getOrDefault(lesson.getId(), lesson))
+                .toList();
+        TimeFoldTimetable merged = new TimeFoldTimetable(problem.getTimeslots(), new ArrayList<>(lessons),
+                repair ? null : score);
+        merged.setConstraintWeightOverrides(problem.getConstraintWeightOverrides());
+        return merged;
+    }
+
+    private static SolverConfigOverride<TimeFoldTimetable> spentLimit(Duration spentLimit) {
+        return new SolverConfigOverride<TimeFoldTimetable>()
+                .withTerminationConfig(new TerminationConfig().withSpentLimit(spentLimit));
+    }
+}
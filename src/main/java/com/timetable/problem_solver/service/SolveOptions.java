@@ -0,0 +1,115 @@
+package com.timetable.problem_solver.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Per-job solving options, taken from the request parameters of the solve endpoints.
+ *
+ * @param scoreCalculation how the score is calculated for this job
+ * @param profiling profile the cost of every constraint once solving ends
+ * @param partitioned solve each shift as a separate partition in parallel, then repair the merged timetable
+ * @param moveThreadCount move threads per solver job, null for the profile's default
+ * @param profile phases and termination of the solver
+ */
+public record SolveOptions(ScoreCalculation scoreCalculation, boolean profiling, boolean partitioned,
+                           Integer moveThreadCount, SolverProfile profile) {
+
+    public SolveOptions {
+        if (scoreCalculation == null) {
+            scoreCalculation = ScoreCalculation.STREAMS;
+        }
+        if (profile == null) {
+            profile = SolverProfile.BALANCED;
+        }
+    }
+
+    public static SolveOptions defaults() {
+        return new SolveOptions(ScoreCalculation.STREAMS, false, false, null, SolverProfile.BALANCED);
+    }
+
+    public enum ScoreCalculation {
+        /** Constraint streams from TimeTableConstraintProvider, including custom rules */
+        STREAMS,
+        /** Hand-written TimeTableIncrementalScoreCalculator, built-in constraints only */
+        INCREMENTAL,
+        /** Incremental calculator cross-checked against the constraint streams after every move (slow) */
+        INCREMENTAL_VERIFIED
+    }
+
+    /**
+     * Named solver configurations, each built once per reload. A profile loads its phases and
+     * termination from its own solver config resource.
+     */
+    public enum SolverProfile {
+        /** Interactive previews, done within 5 seconds */
+        FAST("timetableSolverConfig-fast.xml", 1, Duration.ofSeconds(3), Duration.ofSeconds(1), 0),
+        /** Default, up to 30 seconds */
+        BALANCED("timetableSolverConfig.xml", null, Duration.ofSeconds(30), Duration.ofSeconds(5), 0),
+        /** Term-start timetables, up to 2 hours, ending earlier once the score stops improving */
+        THOROUGH("timetableSolverConfig-thorough.xml", null, Duration.ofMinutes(30), Duration.ofMinutes(5), 3);
+
+        private final String configResource;
+        private final Integer moveThreadCount;
+        private final Duration partitionSpentLimit;
+        private final Duration repairSpentLimit;
+        private final int ruinMaxSectionDays;
+
+        SolverProfile(String configResource, Integer moveThreadCount, Duration partitionSpentLimit,
+                      Duration repairSpentLimit, int ruinMaxSectionDays) {
+            this.configResource = configResource;
+            this.moveThreadCount = moveThreadCount;
+            this.partitionSpentLimit = partitionSpentLimit;
+            this.repairSpentLimit = repairSpentLimit;
+            this.ruinMaxSectionDays = ruinMaxSectionDays;
+        }
+
+        /**
+         * Look up a profile by name, ignoring case; null is the default profile.
+         *
+         * @throws IllegalArgumentException for an unknown name
+         */
+        public static SolverProfile of(String name) {
+            if (name == null || name.isBlank()) {
+                return BALANCED;
+            }
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown solver profile " + name + ", expected one of "
+                        + Arrays.toString(values()).toLowerCase(Locale.ROOT));
+            }
+        }
+
+        public String configResource() {
+            return configResource;
+        }
+
+        /**
+         * Move threads of a job when the request sets none, null to share the cores between the active jobs.
+         */
+        public Integer moveThreadCount() {
+            return moveThreadCount;
+        }
+
+        /**
+         * Solving time of each shift partition before the merged timetable is repaired.
+         */
+        public Duration partitionSpentLimit() {
+            return partitionSpentLimit;
+        }
+
+        public Duration repairSpentLimit() {
+            return repairSpentLimit;
+        }
+
+        /**
+         * Most section-days one ruin-and-recreate move clears and rebuilds, 0 for no ruin-and-recreate moves.
+         * Only local search phases after the first get them, once single moves have stalled.
+         */
+        public int ruinMaxSectionDays() {
+            return ruinMaxSectionDays;
+        }
+    }
+}
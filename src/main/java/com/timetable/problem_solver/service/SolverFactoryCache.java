@@ -0,0 +1,67 @@
+package com.timetable.problem_solver.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.solver.SolverFactory;
+
+/**
+ * Bounded LRU cache of solver factories, keyed by the constraint network fingerprint and the
+ * solver manager key. Building a factory builds its constraint network, so switching back to a
+ * recently used set of constraints reuses the factories built for it.
+ * Factories hold no threads, solver managers are still created per {@link SolverVersion}.
+ */
+final class SolverFactoryCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolverFactoryCache.class);
+
+    private record Key(String fingerprint, SolverManagerKey solverManagerKey) {
+    }
+
+    private final int maxSize;
+    // Access ordered, the least recently used factory is evicted first; guarded by this
+    private final Map<Key, SolverFactory<TimeFoldTimetable>> factories;
+
+    SolverFactoryCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.factories = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SolverFactory<TimeFoldTimetable>> eldest) {
+                return size() > SolverFactoryCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the factory for a fingerprint and key, building it with the given builder when it is not cached.
+     * The builder runs without holding the cache, it must define the network of the given fingerprint.
+     * Callers missing the same key at once may each build a factory; that only costs a duplicate build,
+     * as the first one stored is returned to all of them and the others are dropped.
+     */
+    SolverFactory<TimeFoldTimetable> get(String fingerprint, SolverManagerKey solverManagerKey,
+                                         Supplier<SolverFactory<TimeFoldTimetable>> builder) {
+        Key key = new Key(fingerprint, solverManagerKey);
+        synchronized (this) {
+            SolverFactory<TimeFoldTimetable> factory = factories.get(key);
+            if (factory != null) {
+                logger.info("Reusing cached solver factory for {}", key);
+                return factory;
+            }
+        }
+        SolverFactory<TimeFoldTimetable> factory = builder.get();
+        synchronized (this) {
+            SolverFactory<TimeFoldTimetable> stored = factories.putIfAbsent(key, factory);
+            return stored != null ? stored : factory;
+        }
+    }
+
+    synchronized int size() {
+        return factories.size();
+    }
+}
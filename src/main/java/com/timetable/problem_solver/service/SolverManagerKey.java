@@ -0,0 +1,15 @@
+package com.timetable.problem_solver.service;
+
+/**
+ * Identifies a solver manager of a {@link SolverVersion}: its profile, score calculation and move threads.
+ */
+record SolverManagerKey(SolveOptions.SolverProfile profile, SolveOptions.ScoreCalculation scoreCalculation,
+                        int moveThreadCount) {
+
+    // The default profile's default solver, also used for score analysis and profiling
+    static final SolverManagerKey DEFAULT = defaultOf(SolveOptions.SolverProfile.BALANCED);
+
+    static SolverManagerKey defaultOf(SolveOptions.SolverProfile profile) {
+        return new SolverManagerKey(profile, SolveOptions.ScoreCalculation.STREAMS, 1);
+    }
+}
@@ -1,20 +1,62 @@
 package com.timetable.problem_solver.service;
 
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.timetable.problem_solver.constraints.TimeTableConstraintProvider;
+import com.timetable.problem_solver.constraints.TimeTableIncrementalScoreCalculator;
+import com.timetable.problem_solver.model.ConstraintProfile;
+import com.timetable.problem_solver.model.ConstraintSettingsSnapshot;
+import com.timetable.problem_solver.model.DistinctLessonSwapFilter;
+import com.timetable.problem_solver.model.LessonNearbyDistanceMeter;
+import com.timetable.problem_solver.model.RelatedLessonSwapFilter;
 import com.timetable.problem_solver.model.TimeFoldLesson;
 import com.timetable.problem_solver.model.TimeFoldTimetable;
+import com.timetable.problem_solver.moves.ConflictDirectedMoveIteratorFactory;
+import com.timetable.problem_solver.moves.RuinRecreateMoveIteratorFactory;
 
+import ai.timefold.solver.core.api.domain.solution.ConstraintWeightOverrides;
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.SolutionManager;
 import ai.timefold.solver.core.api.solver.SolverFactory;
 import ai.timefold.solver.core.api.solver.SolverManager;
+import ai.timefold.solver.core.api.solver.SolverStatus;
+import ai.timefold.solver.core.config.heuristic.selector.move.MoveSelectorConfig;
+import ai.timefold.solver.core.config.heuristic.selector.move.composite.UnionMoveSelectorConfig;
+import ai.timefold.solver.core.config.heuristic.selector.move.factory.MoveIteratorFactoryConfig;
+import ai.timefold.solver.core.config.heuristic.selector.move.generic.ChangeMoveSelectorConfig;
+import ai.timefold.solver.core.config.heuristic.selector.move.generic.SwapMoveSelectorConfig;
+import ai.timefold.solver.core.config.localsearch.LocalSearchPhaseConfig;
+import ai.timefold.solver.core.config.phase.PhaseConfig;
+import ai.timefold.solver.core.config.score.director.ScoreDirectorFactoryConfig;
+import ai.timefold.solver.core.config.solver.EnvironmentMode;
 import ai.timefold.solver.core.config.solver.SolverConfig;
+import ai.timefold.solver.core.config.solver.SolverManagerConfig;
+import ai.timefold.solver.core.enterprise.TimefoldSolverEnterpriseService;
 import jakarta.annotation.PreDestroy;
 
 /**
@@ -27,15 +69,86 @@ public class SolverService {
 
     private static final Logger logger = LoggerFactory.getLogger(SolverService.class);
 
+    // Move threads and nearby selection only run on Timefold Solver Enterprise, the community edition rejects them
+    static final boolean ENTERPRISE_EDITION_AVAILABLE = isEnterpriseEditionAvailable();
+    // Automatic move thread counts stop here, beyond a few threads the gain per thread drops off
+    private static final int MAX_AUTO_MOVE_THREAD_COUNT = 4;
+    // Share of ruin-and-recreate moves next to the change, swap and conflict moves, each weighing 1
+    private static final double RUIN_RECREATE_PROBABILITY_WEIGHT = 0.3;
+    // A few constraint configurations with their profiles, score calculation modes and move thread counts
+    private static final int SOLVER_FACTORY_CACHE_SIZE = 24;
+    // Finished jobs whose decomposition stats, solver version and constraint profile stay available
+    private static final int FINISHED_JOB_HISTORY_SIZE = 256;
+
     private final TimeTableConstraintProvider constraintProvider;
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    
-    private volatile SolverManager<TimeFoldTimetable, String> solverManager;
-    private volatile SolverFactory<TimeFoldTimetable> solverFactory;
+    private final ConstraintSettingsCache constraintSettingsCache;
+    // Phases and termination of each solver profile, loaded once from its resource
+    private final Map<SolveOptions.SolverProfile, SolverConfig> profileSolverConfigs =
+            new EnumMap<>(SolveOptions.SolverProfile.class);
+    private final SolverManagerConfig solverManagerConfig;
+    // Solver threads of every SolverManager created here, components of a job are packed into at most this many partitions
+    private final int parallelSolverCount;
+
+    // Spent limit of the synthetic solve that warms up each new version, zero turns warm-up off
+    private final Duration warmUpSpentLimit;
+    // Runs warm-up solves off the reloading thread, one at a time
+    private final ExecutorService warmUpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "solver-warm-up");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Solvers new jobs run on, replaced by every reload. Reads take no lock.
+    private final AtomicReference<SolverVersion> currentVersion = new AtomicReference<>();
+    // Newest version built, warming up before it replaces the current one. Written under reloadLock.
+    private volatile SolverVersion pendingVersion;
+    // Serializes reloads, which build the next version while jobs keep using the current one
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    // Reloads requested and the last request covered by a completed reload, to coalesce concurrent requests
+    private final AtomicLong requestedReloads = new AtomicLong();
+    private long completedReloads; // guarded by reloadLock
+    private int lastVersionNumber; // guarded by reloadLock
+    // Versions replaced by a reload that may still be solving their jobs
+    private final Set<SolverVersion> retiredVersions = ConcurrentHashMap.newKeySet();
+    // Factories of recently used constraint networks, so switching back to one skips building it
+    private final SolverFactoryCache solverFactoryCache = new SolverFactoryCache(SOLVER_FACTORY_CACHE_SIZE);
+
+    // Solver jobs submitted and not finished yet, counting every partition, to share the cores between them
+    private final AtomicInteger activeSolverJobCount = new AtomicInteger();
+    // Solver manager each unfinished job runs on, so status and termination reach the right one
+    private final Map<String, SolverManager<TimeFoldTimetable, String>> jobSolverManagers = new ConcurrentHashMap<>();
+    // Solver version each job was started on
+    private final Map<String, Integer> jobVersionNumbers = new ConcurrentHashMap<>();
+    // Jobs solved as separate partitions, their status is tracked across the partition jobs
+    private final Map<String, PartitionedSolve> partitionedJobs = new ConcurrentHashMap<>();
+    private final Map<String, DecompositionStats> decompositionStats = new ConcurrentHashMap<>();
+    // Finishes a job that is waiting for a solver thread with its problem as is, should it be terminated before it starts
+    private final Map<String, Runnable> unstartedJobFinishers = new ConcurrentHashMap<>();
+
+    // Jobs solved with profiling on, and their profile once the job has finished
+    private final Set<String> profilingJobs = ConcurrentHashMap.newKeySet();
+    // Profiles finished jobs off the solver threads, one at a time, so queued jobs need not wait for them
+    private final ExecutorService profilingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "constraint-profiler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, ConstraintProfile> constraintProfiles = new ConcurrentHashMap<>();
+    // Finished jobs, oldest first, their entries above are dropped once the history is full; guarded by itself
+    private final Deque<String> finishedJobs = new ArrayDeque<>();
 
     @Autowired
-    public SolverService(TimeTableConstraintProvider constraintProvider) {
+    public SolverService(TimeTableConstraintProvider constraintProvider, ConstraintSettingsCache constraintSettingsCache,
+                         @Value("${timefold.solver-manager.parallel-solver-count:AUTO}") String parallelSolverCount,
+                         @Value("${timetable.solver.warm-up.spent-limit:0s}") Duration warmUpSpentLimit) {
         this.constraintProvider = constraintProvider;
+        this.constraintSettingsCache = constraintSettingsCache;
+        this.warmUpSpentLimit = warmUpSpentLimit;
+        for (SolveOptions.SolverProfile profile : SolveOptions.SolverProfile.values()) {
+            profileSolverConfigs.put(profile, loadSolverConfig(profile));
+        }
+        this.solverManagerConfig = new SolverManagerConfig().withParallelSolverCount(parallelSolverCount.trim());
+        this.parallelSolverCount = solverManagerConfig.resolveParallelSolverCount();
         // Initialize the solver manager on startup
         reloadSolver();
     }
@@ -45,119 +158,689 @@ public class SolverService {
      * This method is thread-safe and will return the latest configured solver.
      */
     public SolverManager<TimeFoldTimetable, String> getSolverManager() {
-        lock.readLock().lock();
+        SolverVersion version = getCurrentVersion();
+        return version != null ? version.defaultSolverManager() : null;
+    }
+
+    private SolverVersion getCurrentVersion() {
+        SolverVersion version = currentVersion.get();
+        if (version == null) {
+            logger.warn("SolverManager is null, attempting to reload...");
+            reloadSolver();
+            version = currentVersion.get();
+        }
+        return version;
+    }
+
+    /**
+     * Count a new job on the current version, so a reload leaves that version open until the job finishes.
+     */
+    private SolverVersion acquireCurrentVersion() {
+        while (true) {
+            SolverVersion version = getCurrentVersion();
+            if (version == null) {
+                throw new IllegalStateException("Solver is not initialized");
+            }
+            // Fails only when a reload retired the version just now, the next one is published by then
+            if (version.tryAcquire()) {
+                return version;
+            }
+        }
+    }
+
+    /**
+     * Start solving a problem with the current constraint weights and the given options.
+     * The job runs on the current solver version until it finishes, even if the solver is reloaded meanwhile.
+     *
+     * @param bestSolutionConsumer called with every new best solution, including the final one
+     */
+    public void solve(String jobId, TimeFoldTimetable problem, SolveOptions options,
+                      Consumer<TimeFoldTimetable> bestSolutionConsumer) {
+        SolverVersion version = acquireCurrentVersion();
+        // Claims the job id until the job finishes, with the manager it will run on once known
+        if (jobSolverManagers.putIfAbsent(jobId, version.defaultSolverManager()) != null) {
+            version.release();
+            throw new IllegalStateException("Job " + jobId + " is already solving");
+        }
+        // Stats of an earlier job under the same id would let abandonJob() uncount its partitions
+        decompositionStats.remove(jobId);
         try {
-            if (solverManager == null) {
-                logger.warn("SolverManager is null, attempting to reload...");
-                lock.readLock().unlock();
-                reloadSolver();
-                lock.readLock().lock();
+            solve(jobId, problem, options, version, bestSolutionConsumer);
+        } catch (RuntimeException e) {
+            abandonJob(jobId, version);
+            throw e;
+        }
+    }
+
+    private void solve(String jobId, TimeFoldTimetable problem, SolveOptions options, SolverVersion version,
+                       Consumer<TimeFoldTimetable> bestSolutionConsumer) {
+        problem.indexTimeslots();
+        problem.restrictTimeslotRanges();
+        int interchangeableGroupCount = problem.groupInterchangeableLessons();
+        logger.debug("Job {} has {} groups of interchangeable lessons", jobId, interchangeableGroupCount);
+        applyConstraintWeights(problem, version.definedConstraintNames());
+        if (options.scoreCalculation() != SolveOptions.ScoreCalculation.STREAMS) {
+            // The incremental calculator only knows the built-in constraints
+            problem.setConstraintWeightOverrides(
+                    withoutCustomConstraints(problem.getConstraintWeightOverrides(), version.definedConstraintNames()));
+        }
+        if (options.profiling()) {
+            enableProfiling(jobId);
+        }
+        List<List<TimeFoldLesson>> components = spansTeachersAndSections(problem, version.definedConstraintNames())
+                ? List.of(problem.getLessons())
+                : ComponentDecomposition.components(problem.getLessons());
+        List<List<TimeFoldLesson>> partitions = ComponentDecomposition.pack(components, parallelSolverCount);
+        boolean repair = false;
+        if (options.partitioned()) {
+            List<List<TimeFoldLesson>> shifts = partitions.stream()
+                    .flatMap(lessons -> PartitionedSolve.splitByShift(lessons, problem.getTimeslots()).stream())
+                    .toList();
+            repair = shifts.size() > partitions.size();
+            partitions = shifts;
+        }
+        DecompositionStats stats = new DecompositionStats(problem.getLessons().size(), components.size(),
+                components.stream().mapToInt(List::size).max().orElse(0), partitions.size(), repair);
+        logger.info("Job {} decomposed into {}", jobId, stats);
+
+        int partitionCount = partitions.size();
+        Integer requestedMoveThreadCount = options.moveThreadCount() != null
+                ? options.moveThreadCount()
+                : options.profile().moveThreadCount();
+        int moveThreadCount = resolveMoveThreadCount(requestedMoveThreadCount, partitionCount);
+        SolverManagerKey key = new SolverManagerKey(options.profile(), options.scoreCalculation(), moveThreadCount);
+        SolverManager<TimeFoldTimetable, String> manager = version.getSolverManager(key);
+        jobSolverManagers.put(jobId, manager);
+        jobVersionNumbers.put(jobId, version.number());
+        // The stats tell abandonJob() how many partitions to uncount
+        decompositionStats.put(jobId, stats);
+        activeSolverJobCount.addAndGet(partitionCount);
+        AtomicBoolean finished = new AtomicBoolean();
+        Consumer<TimeFoldTimetable> finalBestSolutionConsumer = solution -> {
+            // Once, even when the job started while terminateEarly() finished it as unstarted
+            if (!finished.compareAndSet(false, true)) {
+                return;
             }
-            return solverManager;
-        } finally {
-            lock.readLock().unlock();
+            activeSolverJobCount.addAndGet(-partitionCount);
+            try {
+                bestSolutionConsumer.accept(solution);
+            } finally {
+                jobSolverManagers.remove(jobId);
+                partitionedJobs.remove(jobId);
+                unstartedJobFinishers.remove(jobId);
+                version.release();
+            }
+            // Closing the version only closes its solver managers, its factory still builds profiling solvers
+            if (profilingJobs.contains(jobId)) {
+                profilingExecutor.execute(() -> {
+                    try {
+                        profileConstraints(jobId, solution, version);
+                    } finally {
+                        addFinishedJob(jobId);
+                    }
+                });
+            } else {
+                addFinishedJob(jobId);
+            }
+        };
+        if (partitionCount > 1) {
+            PartitionedSolve partitionedSolve = new PartitionedSolve(jobId, problem, partitions, repair, options.profile(), manager,
+                    version.solutionManager(), bestSolutionConsumer, finalBestSolutionConsumer);
+            partitionedJobs.put(jobId, partitionedSolve);
+            partitionedSolve.start();
+            return;
         }
+        logger.info("Solving job {} on solver version {} with the {} profile, {} score calculation and {} move threads",
+                jobId, version.number(), options.profile(), options.scoreCalculation(), moveThreadCount);
+        unstartedJobFinishers.put(jobId, () -> finalBestSolutionConsumer.accept(problem));
+        manager.solveBuilder()
+                .withProblemId(jobId)
+                .withProblem(problem)
+                .withBestSolutionConsumer(bestSolutionConsumer)
+                .withFinalBestSolutionConsumer(finalBestSolutionConsumer)
+                .withExceptionHandler((id, throwable) -> {
+                    if (finished.compareAndSet(false, true)) {
+                        abandonJob(jobId, version);
+                    }
+                    logger.error("Solving job {} failed: {}", id, throwable.getMessage(), throwable);
+                })
+                .run();
     }
 
     /**
-     * Check if the solver manager is properly initialized
+     * Forget a job that failed to start or failed while solving, and release its solver version.
+     * Its partitions are uncounted only if they were counted, which the decomposition stats tell.
      */
-    public boolean isSolverInitialized() {
-        lock.readLock().lock();
+    private void abandonJob(String jobId, SolverVersion version) {
+        DecompositionStats stats = decompositionStats.remove(jobId);
+        if (stats != null) {
+            activeSolverJobCount.addAndGet(-stats.partitionCount());
+        }
+        jobSolverManagers.remove(jobId);
+        jobVersionNumbers.remove(jobId);
+        partitionedJobs.remove(jobId);
+        unstartedJobFinishers.remove(jobId);
+        profilingJobs.remove(jobId);
+        constraintProfiles.remove(jobId);
+        version.release();
+    }
+
+    /**
+     * Move threads for each partition of a new job. A requested count is kept as is, otherwise the cores
+     * are shared between the solver jobs that will run at once, this job's partitions included,
+     * which the solver manager caps at its parallel solver count. 1 means no move threads.
+     */
+    int resolveMoveThreadCount(Integer requested, int partitionCount) {
+        if (!ENTERPRISE_EDITION_AVAILABLE) {
+            if (requested != null && requested > 1) {
+                logger.info("Ignoring {} move threads, multi-threaded solving needs Timefold Solver Enterprise", requested);
+            }
+            return 1;
+        }
+        if (requested != null) {
+            return Math.max(1, requested);
+        }
+        int concurrentJobs = Math.min(parallelSolverCount, activeSolverJobCount.get() + partitionCount);
+        int coresPerJob = Runtime.getRuntime().availableProcessors() / Math.max(1, concurrentJobs);
+        return Math.max(1, Math.min(MAX_AUTO_MOVE_THREAD_COUNT, coresPerJob));
+    }
+
+    private static boolean isEnterpriseEditionAvailable() {
         try {
-            return solverManager != null;
-        } finally {
-            lock.readLock().unlock();
+            TimefoldSolverEnterpriseService.load();
+            return true;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.info("Timefold Solver Enterprise not found, solving without move threads or nearby selection");
+            return false;
+        }
+    }
+
+    /**
+     * Whether an active constraint can relate lessons of different teacher-section components,
+     * in which case the problem must be solved as a whole.
+     */
+    private boolean spansTeachersAndSections(TimeFoldTimetable problem, Set<String> knownNames) {
+        ConstraintWeightOverrides<HardSoftScore> weights = problem.getConstraintWeightOverrides();
+        for (String constraintName
+                : TimeTableConstraintProvider.teacherAndSectionSpanningConstraintNamesOf(constraintSettingsCache.current())) {
+            HardSoftScore weight = weights.getConstraintWeight(constraintName);
+            if (knownNames.contains(constraintName) && (weight == null || !weight.isZero())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keep what is known about a finished job for the most recent {@link #FINISHED_JOB_HISTORY_SIZE} jobs only,
+     * forgetting the oldest finished job once the history is full.
+     */
+    private void addFinishedJob(String jobId) {
+        String forgottenJobId;
+        synchronized (finishedJobs) {
+            finishedJobs.addLast(jobId);
+            forgottenJobId = finishedJobs.size() > FINISHED_JOB_HISTORY_SIZE ? finishedJobs.removeFirst() : null;
+        }
+        if (forgottenJobId != null) {
+            decompositionStats.remove(forgottenJobId);
+            jobVersionNumbers.remove(forgottenJobId);
+            profilingJobs.remove(forgottenJobId);
+            constraintProfiles.remove(forgottenJobId);
+        }
+    }
+
+    /**
+     * Solver jobs submitted and not finished yet, counting every partition.
+     */
+    int getActiveSolverJobCount() {
+        return activeSolverJobCount.get();
+    }
+
+    public Optional<DecompositionStats> getDecompositionStats(String jobId) {
+        return Optional.ofNullable(decompositionStats.get(jobId));
+    }
+
+    /**
+     * The solver version a job was started on, the configuration it solves with.
+     */
+    public Optional<Integer> getSolverVersion(String jobId) {
+        return Optional.ofNullable(jobVersionNumbers.get(jobId));
+    }
+
+    public SolverStatus getSolverStatus(String jobId) {
+        PartitionedSolve partitionedSolve = partitionedJobs.get(jobId);
+        if (partitionedSolve != null) {
+            return partitionedSolve.getSolverStatus();
+        }
+        return jobSolverManagers.getOrDefault(jobId, getSolverManager()).getSolverStatus(jobId);
+    }
+
+    public void terminateEarly(String jobId) {
+        PartitionedSolve partitionedSolve = partitionedJobs.get(jobId);
+        if (partitionedSolve != null) {
+            partitionedSolve.terminateEarly();
+            return;
         }
+        SolverManager<TimeFoldTimetable, String> manager = jobSolverManagers.getOrDefault(jobId, getSolverManager());
+        boolean scheduled = manager.getSolverStatus(jobId) == SolverStatus.SOLVING_SCHEDULED;
+        manager.terminateEarly(jobId);
+        // The solver manager drops a job terminated before it started without calling any of its consumers
+        Runnable finisher = scheduled ? unstartedJobFinishers.get(jobId) : null;
+        if (finisher != null) {
+            finisher.run();
+        }
+    }
+
+    private SolverManager<TimeFoldTimetable, String> createSolverManager(String fingerprint, SolverManagerKey key) {
+        logger.info("Creating solver manager for the {} profile, {} score calculation with {} move threads...",
+                key.profile(), key.scoreCalculation(), key.moveThreadCount());
+        return SolverManager.create(getSolverFactory(fingerprint, key), solverManagerConfig);
+    }
+
+    /**
+     * Get the solver factory for a constraint network fingerprint, from the cache or built from the current settings.
+     */
+    private SolverFactory<TimeFoldTimetable> getSolverFactory(String fingerprint, SolverManagerKey key) {
+        // The constraint provider defines the network of the current settings, which may have moved on
+        // since the version of this fingerprint was built; such a factory must not be cached under it
+        if (!fingerprint.equals(TimeTableConstraintProvider.networkFingerprintOf(constraintSettingsCache.current()))) {
+            logger.warn("Constraint settings changed since solver network {} was built, building an uncached factory",
+                    fingerprint);
+            return SolverFactory.create(createSolverConfig(key));
+        }
+        return solverFactoryCache.get(fingerprint, key, () -> SolverFactory.create(createSolverConfig(key)));
+    }
+
+    private SolverConfig createSolverConfig(SolverManagerKey key) {
+        // The constraint provider will be instantiated by Timefold with no-arg constructor
+        SolverConfig solverConfig = new SolverConfig(profileSolverConfigs.get(key.profile()));
+        if (key.moveThreadCount() > 1) {
+            solverConfig.setMoveThreadCount(String.valueOf(key.moveThreadCount()));
+        }
+        focusLocalSearchMoves(solverConfig, key.profile());
+        ScoreDirectorFactoryConfig streams = new ScoreDirectorFactoryConfig()
+                .withConstraintProviderClass(constraintProvider.getClass());
+        ScoreDirectorFactoryConfig incremental = new ScoreDirectorFactoryConfig()
+                .withIncrementalScoreCalculatorClass(TimeTableIncrementalScoreCalculator.class);
+        return switch (key.scoreCalculation()) {
+            case STREAMS -> solverConfig.withScoreDirectorFactory(streams);
+            case INCREMENTAL -> solverConfig.withScoreDirectorFactory(incremental);
+            // Full assert recalculates the score with the constraint streams after every move and fails on a mismatch
+            case INCREMENTAL_VERIFIED -> solverConfig
+                    .withEnvironmentMode(EnvironmentMode.FULL_ASSERT)
+                    .withScoreDirectorFactory(incremental.withAssertionScoreDirectorFactory(streams));
+        };
+    }
+
+    /**
+     * Replace the default moves of every local search phase that configures none with change moves,
+     * swaps between lessons that share a teacher, section or day, conflict-directed moves and, when the
+     * profile sets a ruin size, occasional ruin-and-recreate moves of whole section-days. Those only go
+     * to the local search phases after the first, which start once it has stalled; in a single phase
+     * they slowed tabu search down.
+     * Uniform swaps on a large school mostly pair lessons that share nothing; nearby selection biases
+     * them on Timefold Solver Enterprise, the community edition filters them out. Neither swaps
+     * interchangeable lessons.
+     */
+    private static void focusLocalSearchMoves(SolverConfig solverConfig, SolveOptions.SolverProfile profile) {
+        if (solverConfig.getPhaseConfigList() == null) {
+            return;
+        }
+        List<PhaseConfig<?>> phaseConfigs = new ArrayList<>();
+        boolean lateLocalSearch = false;
+        for (PhaseConfig<?> phaseConfig : solverConfig.getPhaseConfigList()) {
+            boolean defaultMoves = phaseConfig instanceof LocalSearchPhaseConfig localSearch
+                    && localSearch.getMoveSelectorConfig() == null;
+            if (defaultMoves) {
+                LocalSearchPhaseConfig localSearch = (LocalSearchPhaseConfig) phaseConfig;
+                SwapMoveSelectorConfig swaps = ENTERPRISE_EDITION_AVAILABLE
+                        // Fixed seed, only the generated selector ids depend on it
+                        ? new SwapMoveSelectorConfig().enableNearbySelection(LessonNearbyDistanceMeter.class, new Random(0))
+                                .withFilterClass(DistinctLessonSwapFilter.class)
+                        : new SwapMoveSelectorConfig().withFilterClass(RelatedLessonSwapFilter.class);
+                // Relocations and Kempe chain swaps of lessons in a teacher or section conflict, none once there are none
+                MoveIteratorFactoryConfig conflictMoves = new MoveIteratorFactoryConfig()
+                        .withMoveIteratorFactoryClass(ConflictDirectedMoveIteratorFactory.class);
+                List<MoveSelectorConfig<?>> moveSelectors = new ArrayList<>(List.of(new ChangeMoveSelectorConfig(), swaps, conflictMoves));
+                if (lateLocalSearch && profile.ruinMaxSectionDays() > 0) {
+                    MoveIteratorFactoryConfig ruinRecreateMoves = new MoveIteratorFactoryConfig()
+                            .withMoveIteratorFactoryClass(RuinRecreateMoveIteratorFactory.class)
+                            .withMoveIteratorFactoryCustomProperties(
+                                    Map.of("maxSectionDays", String.valueOf(profile.ruinMaxSectionDays())));
+                    ruinRecreateMoves.setFixedProbabilityWeight(RUIN_RECREATE_PROBABILITY_WEIGHT);
+                    moveSelectors.add(ruinRecreateMoves);
+                }
+                phaseConfig = localSearch.copyConfig().withMoveSelectorConfig(new UnionMoveSelectorConfig()
+                        .withMoveSelectors(moveSelectors.toArray(MoveSelectorConfig<?>[]::new)));
+            }
+            lateLocalSearch |= phaseConfig instanceof LocalSearchPhaseConfig;
+            phaseConfigs.add(phaseConfig);
+        }
+        solverConfig.withPhases(phaseConfigs.toArray(PhaseConfig<?>[]::new));
+    }
+
+    /**
+     * Load the phases and termination of a profile from its solver config resource. Falls back to the
+     * default construction heuristic and local search, without termination, so a broken resource does
+     * not prevent startup.
+     */
+    private static SolverConfig loadSolverConfig(SolveOptions.SolverProfile profile) {
+        try {
+            SolverConfig solverConfig = SolverConfig.createFromXmlResource(profile.configResource());
+            logger.info("Loaded {} solver configuration from {}", profile, profile.configResource());
+            return solverConfig;
+        } catch (RuntimeException e) {
+            logger.error("Failed to load {} solver configuration from {}, using the default phases: {}",
+                    profile, profile.configResource(), e.getMessage(), e);
+            return new SolverConfig()
+                    .withSolutionClass(TimeFoldTimetable.class)
+                    .withEntityClasses(TimeFoldLesson.class);
+        }
+    }
+
+    /**
+     * Keep the built-in constraint weights and disable every custom constraint.
+     */
+    private ConstraintWeightOverrides<HardSoftScore> withoutCustomConstraints(ConstraintWeightOverrides<HardSoftScore> overrides,
+                                                                              Set<String> definedConstraintNames) {
+        Map<String, HardSoftScore> weights = new TreeMap<>();
+        for (String constraintName : definedConstraintNames) {
+            HardSoftScore weight = overrides.getConstraintWeight(constraintName);
+            if (!TimeTableConstraintProvider.BUILT_IN_CONSTRAINT_NAMES.containsValue(constraintName)) {
+                weights.put(constraintName, HardSoftScore.ZERO);
+            } else if (weight != null) {
+                weights.put(constraintName, weight);
+            }
+        }
+        return ConstraintWeightOverrides.of(weights);
+    }
+
+    /**
+     * Get a SolutionManager built from the same factory as the current SolverManager,
+     * so score analysis sees exactly the constraints the solver uses.
+     */
+    public SolutionManager<TimeFoldTimetable, HardSoftScore> getSolutionManager() {
+        SolverVersion version = currentVersion.get();
+        return version != null ? version.solutionManager() : null;
+    }
+
+    /**
+     * Attach the current constraint weights to the problem, unless the caller already set them.
+     * Enabled settings contribute their weight on their own score level, disabled settings
+     * a zero weight, which removes the constraint from scoring. Because weights travel with
+     * the solution, toggling a constraint or changing its weight needs no solver reload.
+     */
+    public TimeFoldTimetable applyConstraintWeights(TimeFoldTimetable problem) {
+        SolverVersion version = currentVersion.get();
+        return applyConstraintWeights(problem, version != null ? version.definedConstraintNames() : Set.of());
+    }
+
+    private TimeFoldTimetable applyConstraintWeights(TimeFoldTimetable problem, Set<String> knownNames) {
+        if (problem.getConstraintWeightOverrides() != null) {
+            return problem;
+        }
+        Map<String, HardSoftScore> weights = new TreeMap<>();
+        for (ConstraintSettingsSnapshot.Setting settings : constraintSettingsCache.current().all()) {
+            String constraintName = TimeTableConstraintProvider.constraintNameOf(settings);
+            // Custom constraints created after the last reload are not in the network yet
+            if (!knownNames.contains(constraintName)) {
+                continue;
+            }
+            weights.put(constraintName, weightOf(settings));
+        }
+        problem.setConstraintWeightOverrides(ConstraintWeightOverrides.of(weights));
+        return problem;
+    }
+
+    private static HardSoftScore weightOf(ConstraintSettingsSnapshot.Setting settings) {
+        if (!settings.enableFlag()) {
+            return HardSoftScore.ZERO;
+        }
+        return settings.isHard()
+                ? HardSoftScore.ofHard(settings.constraintWeight())
+                : HardSoftScore.ofSoft(settings.constraintWeight());
+    }
+
+    /**
+     * Mark a job for constraint profiling; call {@link #profileConstraints} with its final solution.
+     */
+    public void enableProfiling(String jobId) {
+        profilingJobs.add(jobId);
+    }
+
+    public boolean isProfiling(String jobId) {
+        return profilingJobs.contains(jobId);
+    }
+
+    /**
+     * Measure the score calculation cost and match count of every active constraint on the
+     * final solution of a job. Opt-in, since it runs a short local search per constraint.
+     * Finished jobs are profiled in the background, once they have released their solver.
+     */
+    public void profileConstraints(String jobId, TimeFoldTimetable solution) {
+        profileConstraints(jobId, solution, getCurrentVersion());
+    }
+
+    /**
+     * Profile on the solver version the job ran on, which defines the constraints its solution was scored with.
+     */
+    private void profileConstraints(String jobId, TimeFoldTimetable solution, SolverVersion version) {
+        if (!profilingJobs.contains(jobId)) {
+            return;
+        }
+        try {
+            ConstraintProfile profile = new ConstraintProfiler(version.solverFactory(), version.solutionManager(),
+                    version.definedConstraintNames())
+                    .profile(jobId, solution);
+            constraintProfiles.put(jobId, profile);
+        } catch (Exception e) {
+            logger.error("Failed to profile constraints for job {}: {}", jobId, e.getMessage(), e);
+            profilingJobs.remove(jobId);
+        }
+    }
+
+    public Optional<ConstraintProfile> getConstraintProfile(String jobId) {
+        return Optional.ofNullable(constraintProfiles.get(jobId));
+    }
+
+    /**
+     * Check if the solver manager is properly initialized
+     */
+    public boolean isSolverInitialized() {
+        return currentVersion.get() != null;
     }
 
     /**
      * Reload the solver configuration with fresh constraint settings from database.
-     * This method creates a new SolverManager and SolverFactory with the latest
-     * constraint configuration, ensuring that constraint changes take effect immediately.
+     * This method creates a new solver version with the latest constraint configuration,
+     * ensuring that constraint changes take effect immediately for new jobs. Running jobs
+     * finish on the version they started on, which closes once they have all finished.
      * Uses the Spring-managed constraint provider instance to ensure proper repository access.
+     * The new version is built without blocking readers. Concurrent calls are coalesced: a call
+     * returns once a reload that started after it was requested has completed.
+     * When the constraint network is unchanged the current version is kept, and a network used
+     * recently reuses its cached solver factories.
+     * With warm-up on, a new version first solves a synthetic problem in the background and only
+     * then replaces the current one; new jobs keep running on the current version meanwhile.
      */
     public void reloadSolver() {
-        lock.writeLock().lock();
+        long request = requestedReloads.incrementAndGet();
+        reloadLock.lock();
         try {
+            if (completedReloads >= request) {
+                logger.info("Solver reload already done by a concurrent request");
+                return;
+            }
+            // Every request made so far sees the settings read from here on
+            long coveredRequests = requestedReloads.get();
             logger.info("Reloading solver configuration with fresh constraint settings...");
-            
-            // Close old solver manager first to free resources
-            if (solverManager != null) {
-                try {
-                    logger.info("Closing existing solver manager...");
-                    solverManager.close();
-                    // Wait a bit for cleanup
-                    Thread.sleep(100);
-                } catch (Exception e) {
-                    logger.warn("Error closing old solver manager: {}", e.getMessage());
-                }
+            retiredVersions.removeIf(SolverVersion::isClosed);
+
+            // Custom constraints are part of the network, so remember which ones this factory defines
+            ConstraintSettingsSnapshot snapshot = constraintSettingsCache.current();
+            String fingerprint = TimeTableConstraintProvider.networkFingerprintOf(snapshot);
+            SolverVersion current = currentVersion.get();
+            if (current != null && current.fingerprint().equals(fingerprint)) {
+                // Toggles and weight changes travel with each solution, they never need new solvers
+                logger.info("Constraint network {} unchanged, keeping solver version {}", fingerprint, current.number());
+                discardPendingVersion();
+                completedReloads = coveredRequests;
+                return;
+            }
+            if (pendingVersion != null && pendingVersion.fingerprint().equals(fingerprint)) {
+                logger.info("Constraint network {} unchanged, solver version {} is still warming up",
+                        fingerprint, pendingVersion.number());
+                completedReloads = coveredRequests;
+                return;
             }
-            
-            // Create new solver configuration with constraint provider class
-            // The constraint provider will be instantiated by Timefold with no-arg constructor
-            SolverConfig solverConfig = new SolverConfig()
-                    .withSolutionClass(TimeFoldTimetable.class)
-                    .withEntityClasses(TimeFoldLesson.class)
-                    .withConstraintProviderClass(constraintProvider.getClass());
 
-            logger.info("Creating new solver factory...");
-            // Create new solver factory
-            SolverFactory<TimeFoldTimetable> newSolverFactory = SolverFactory.create(solverConfig);
+            logger.info("Creating new solver factory for constraint network {}...", fingerprint);
+            // Create new solver factory, or reuse the one built when this network was last used
+            SolverFactory<TimeFoldTimetable> newSolverFactory = getSolverFactory(fingerprint, SolverManagerKey.DEFAULT);
             
             logger.info("Creating new solver manager...");
             // Create new solver manager with proper configuration
-            SolverManager<TimeFoldTimetable, String> newSolverManager = SolverManager.create(newSolverFactory);
+            SolverManager<TimeFoldTimetable, String> newSolverManager = SolverManager.create(newSolverFactory, solverManagerConfig);
             
             // Verify the solver manager is properly initialized
             if (newSolverManager == null) {
                 throw new RuntimeException("Failed to create SolverManager - returned null");
             }
             
-            // Update references atomically
-            this.solverFactory = newSolverFactory;
-            this.solverManager = newSolverManager;
-            
-            logger.info("Solver configuration reloaded successfully. New constraint settings are now active.");
+            SolverVersion newVersion = new SolverVersion(lastVersionNumber + 1, fingerprint, newSolverFactory,
+                    newSolverManager, TimeTableConstraintProvider.constraintNamesOf(snapshot),
+                    key -> createSolverManager(fingerprint, key));
+            // Pre-build the other profiles, so picking one per request needs no reload
+            for (SolveOptions.SolverProfile profile : SolveOptions.SolverProfile.values()) {
+                newVersion.getSolverManager(SolverManagerKey.defaultOf(profile));
+            }
+
+            lastVersionNumber = newVersion.number();
+            completedReloads = coveredRequests;
+            // A version still warming up is out of date now
+            discardPendingVersion();
+            if (warmUpSpentLimit.isZero()) {
+                publish(newVersion);
+            } else if (current == null) {
+                // Nothing serves jobs yet, so the first version takes them while it warms up
+                publish(newVersion);
+                startWarmUp(newVersion);
+            } else {
+                pendingVersion = newVersion;
+                startWarmUp(newVersion);
+            }
             
         } catch (Exception e) {
             logger.error("Failed to reload solver configuration: {}", e.getMessage(), e);
             // Don't throw exception to prevent application startup failure
-            // Just log the error and keep the old solver manager if it exists
+            // Just log the error and keep the old solver version if it exists
             logger.warn("Keeping existing solver manager due to reload failure");
         } finally {
-            lock.writeLock().unlock();
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Make a version the one new jobs run on; the previous one drains its running jobs.
+     */
+    private void publish(SolverVersion version) {
+        SolverVersion previousVersion = currentVersion.getAndSet(version);
+        if (previousVersion != null) {
+            retiredVersions.add(previousVersion);
+            previousVersion.retire();
         }
+        logger.info("Solver configuration reloaded successfully as version {}. New constraint settings are now active.",
+                version.number());
+    }
+
+    private void startWarmUp(SolverVersion version) {
+        version.markWarmUpPending();
+        logger.info("Warming up solver version {} for {}...", version.number(), warmUpSpentLimit);
+        warmUpExecutor.execute(() -> {
+            version.warmUp(() -> {
+                TimeFoldTimetable problem = WarmUpProblem.generate();
+                problem.indexTimeslots();
+                problem.restrictTimeslotRanges();
+                problem.groupInterchangeableLessons();
+                return applyConstraintWeights(problem, version.definedConstraintNames());
+            }, warmUpSpentLimit);
+            reloadLock.lock();
+            try {
+                // Unless a newer reload replaced it meanwhile
+                if (pendingVersion == version) {
+                    pendingVersion = null;
+                    publish(version);
+                }
+            } finally {
+                reloadLock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Close the version still warming up, it has never taken a job.
+     */
+    private void discardPendingVersion() {
+        if (pendingVersion != null) {
+            logger.info("Discarding solver version {} before its warm-up finished", pendingVersion.number());
+            pendingVersion.close();
+            pendingVersion = null;
+        }
+    }
+
+    /**
+     * Whether the newest solver version is warmed up and takes new jobs.
+     */
+    public boolean isSolverReady() {
+        SolverVersion version = currentVersion.get();
+        return version != null && getWarmUpState().isReady();
+    }
+
+    /**
+     * Warm-up of the newest solver version, which may still be waiting to replace the current one.
+     */
+    public WarmUpState getWarmUpState() {
+        SolverVersion version = newestVersion();
+        return version != null ? version.warmUpState() : WarmUpState.PENDING;
+    }
+
+    /**
+     * How long the warm-up of the newest solver version took, empty while it is running or when it is off.
+     */
+    public Optional<Duration> getWarmUpDuration() {
+        SolverVersion version = newestVersion();
+        return version != null ? Optional.ofNullable(version.warmUpDuration()) : Optional.empty();
+    }
+
+    private SolverVersion newestVersion() {
+        SolverVersion pending = pendingVersion;
+        return pending != null ? pending : currentVersion.get();
     }
 
     /**
      * Check if the solver is currently running any jobs
      */
     public boolean isSolverBusy() {
-        lock.readLock().lock();
-        try {
-            // Note: SolverManager doesn't provide a direct way to check if it's busy
-            // This is a simplified check - in production you might want to track active jobs
-            return solverManager != null;
-        } finally {
-            lock.readLock().unlock();
-        }
+        // Note: SolverManager doesn't provide a direct way to check if it's busy
+        // This is a simplified check - in production you might want to track active jobs
+        return currentVersion.get() != null;
     }
 
     /**
      * Get information about the current solver configuration
      */
     public String getSolverInfo() {
-        lock.readLock().lock();
-        try {
-            if (solverManager == null) {
-                return "Solver not initialized";
-            }
-            return String.format("Solver active with constraint provider: %s", 
-                    constraintProvider.getClass().getSimpleName());
-        } finally {
-            lock.readLock().unlock();
+        SolverVersion version = currentVersion.get();
+        if (version == null) {
+            return "Solver not initialized";
         }
+        long drainingVersions = retiredVersions.stream().filter(retired -> !retired.isClosed()).count();
+        SolverVersion pending = pendingVersion;
+        String warmingUp = pending != null ? String.format(", version %d warming up", pending.number()) : "";
+        return String.format("Solver active with constraint provider: %s, version %d (network %s)%s, "
+                        + "%d older versions draining, %d cached solver factories",
+                constraintProvider.getClass().getSimpleName(), version.number(), version.fingerprint(), warmingUp,
+                drainingVersions, solverFactoryCache.size());
     }
 
     /**
@@ -165,16 +848,21 @@ public class SolverService {
      */
     @PreDestroy
     public void cleanup() {
-        lock.writeLock().lock();
+        reloadLock.lock();
         try {
-            if (solverManager != null) {
+            discardPendingVersion();
+            SolverVersion version = currentVersion.getAndSet(null);
+            if (version != null) {
                 logger.info("Closing solver manager during application shutdown...");
-                solverManager.close();
+                version.close();
             }
+            retiredVersions.forEach(SolverVersion::close);
         } catch (Exception e) {
             logger.warn("Error during solver manager cleanup: {}", e.getMessage());
         } finally {
-            lock.writeLock().unlock();
+            reloadLock.unlock();
         }
+        warmUpExecutor.shutdownNow();
+        profilingExecutor.shutdownNow();
     }
 }
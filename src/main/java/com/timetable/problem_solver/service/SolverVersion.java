@@ -0,0 +1,241 @@
+package com.timetable.problem_solver.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.SolutionManager;
+import ai.timefold.solver.core.api.solver.Solver;
+import ai.timefold.solver.core.api.solver.SolverConfigOverride;
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.solver.core.api.solver.SolverManager;
+import ai.timefold.solver.core.config.solver.termination.TerminationConfig;
+
+/**
+ * The solvers built by one reload, numbered in reload order. New jobs run on the current version.
+ * A reload retires the previous version, whose jobs keep solving on it; once the last of them
+ * finishes, its solver managers are closed.
+ * A version can be warmed up with a short solve before it takes jobs, see {@link #warmUp}.
+ */
+final class SolverVersion {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolverVersion.class);
+
+    // Lets the solver threads of the last job unregister after its final solution was consumed,
+    // closing a solver manager interrupts them
+    static final Duration CLOSE_DELAY = Duration.ofSeconds(1);
+
+    private final int number;
+    // Constraint network the solvers define, see TimeTableConstraintProvider#networkFingerprintOf
+    private final String fingerprint;
+    private final SolverFactory<TimeFoldTimetable> solverFactory;
+    private final SolutionManager<TimeFoldTimetable, HardSoftScore> solutionManager;
+    private final Set<String> definedConstraintNames;
+    private final Function<SolverManagerKey, SolverManager<TimeFoldTimetable, String>> solverManagerFactory;
+
+    // Guarded by this
+    private final Map<SolverManagerKey, SolverManager<TimeFoldTimetable, String>> solverManagers = new HashMap<>();
+    private int jobCount;
+    private boolean retired;
+    private boolean closed;
+    private WarmUpState warmUpState = WarmUpState.DISABLED;
+    private Duration warmUpDuration;
+    private Solver<TimeFoldTimetable> warmUpSolver;
+
+    /**
+     * @param solverFactory factory of the {@link SolverManagerKey#DEFAULT} solver
+     * @param solverManagerFactory builds the solver manager of any other key on first use
+     */
+    SolverVersion(int number, String fingerprint, SolverFactory<TimeFoldTimetable> solverFactory,
+                  SolverManager<TimeFoldTimetable, String> solverManager, Set<String> definedConstraintNames,
+                  Function<SolverManagerKey, SolverManager<TimeFoldTimetable, String>> solverManagerFactory) {
+        this.number = number;
+        this.fingerprint = fingerprint;
+        this.solverFactory = solverFactory;
+        this.solutionManager = SolutionManager.create(solverFactory);
+        this.definedConstraintNames = definedConstraintNames;
+        this.solverManagerFactory = solverManagerFactory;
+        solverManagers.put(SolverManagerKey.DEFAULT, solverManager);
+    }
+
+    int number() {
+        return number;
+    }
+
+    String fingerprint() {
+        return fingerprint;
+    }
+
+    SolverFactory<TimeFoldTimetable> solverFactory() {
+        return solverFactory;
+    }
+
+    SolutionManager<TimeFoldTimetable, HardSoftScore> solutionManager() {
+        return solutionManager;
+    }
+
+    /**
+     * Names of the constraints this version's solvers define.
+     */
+    Set<String> definedConstraintNames() {
+        return definedConstraintNames;
+    }
+
+    SolverManager<TimeFoldTimetable, String> defaultSolverManager() {
+        return getSolverManager(SolverManagerKey.DEFAULT);
+    }
+
+    /**
+     * Get the solver manager for a key, building it on first use.
+     */
+    synchronized SolverManager<TimeFoldTimetable, String> getSolverManager(SolverManagerKey key) {
+        if (closed) {
+            throw new IllegalStateException("Solver version " + number + " is closed");
+        }
+        return solverManagers.computeIfAbsent(key, solverManagerFactory);
+    }
+
+    synchronized WarmUpState warmUpState() {
+        return warmUpState;
+    }
+
+    /**
+     * How long the warm-up solve took, null until it has finished.
+     */
+    synchronized Duration warmUpDuration() {
+        return warmUpDuration;
+    }
+
+    synchronized void markWarmUpPending() {
+        warmUpState = WarmUpState.PENDING;
+    }
+
+    /**
+     * Solve a throwaway problem with the default solver for the given time, so the JIT compiles the
+     * constraint network and the moves before real jobs run on them. The solver classes are shared
+     * by every profile, so one warm-up serves them all. Closing the version terminates the warm-up.
+     */
+    void warmUp(Supplier<TimeFoldTimetable> problemSupplier, Duration spentLimit) {
+        long start = System.nanoTime();
+        WarmUpState result = WarmUpState.DONE;
+        try {
+            TimeFoldTimetable problem = problemSupplier.get();
+            Solver<TimeFoldTimetable> solver = solverFactory.buildSolver(new SolverConfigOverride<TimeFoldTimetable>()
+                    .withTerminationConfig(new TerminationConfig().withSpentLimit(spentLimit)));
+            // A terminate early sent before solving starts is reset by it, so also check on every new best solution
+            solver.addEventListener(event -> {
+                if (isClosed()) {
+                    solver.terminateEarly();
+                }
+            });
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                warmUpState = WarmUpState.RUNNING;
+                warmUpSolver = solver;
+            }
+            TimeFoldTimetable solution = solver.solve(problem);
+            logger.info("Warmed up solver version {} on {} lessons, best score {}", number,
+                    problem.getLessons().size(), solution.getScore());
+        } catch (RuntimeException e) {
+            result = WarmUpState.FAILED;
+            logger.warn("Warm-up of solver version {} failed: {}", number, e.getMessage(), e);
+        } finally {
+            synchronized (this) {
+                warmUpState = result;
+                warmUpDuration = Duration.ofNanos(System.nanoTime() - start);
+                warmUpSolver = null;
+            }
+        }
+    }
+
+    /**
+     * Count a job submitted to this version, it stays open until the job is released.
+     *
+     * @return false when the version is retired and takes no more jobs
+     */
+    synchronized boolean tryAcquire() {
+        if (retired) {
+            return false;
+        }
+        jobCount++;
+        return true;
+    }
+
+    /**
+     * A job of this version has finished; the last one of a retired version closes it.
+     */
+    void release() {
+        boolean drained;
+        synchronized (this) {
+            jobCount--;
+            drained = retired && jobCount == 0;
+        }
+        if (drained) {
+            logger.info("Last job of solver version {} finished, closing it", number);
+            CompletableFuture.delayedExecutor(CLOSE_DELAY.toMillis(), TimeUnit.MILLISECONDS).execute(this::close);
+        }
+    }
+
+    /**
+     * Take no more jobs and close once the running ones have finished.
+     */
+    void retire() {
+        int runningJobs;
+        synchronized (this) {
+            retired = true;
+            runningJobs = jobCount;
+        }
+        if (runningJobs == 0) {
+            close();
+        } else {
+            logger.info("Solver version {} retired, closing once its {} running jobs finish", number, runningJobs);
+        }
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Close every solver manager, terminating any job still running on them.
+     */
+    void close() {
+        List<SolverManager<TimeFoldTimetable, String>> managers;
+        Solver<TimeFoldTimetable> runningWarmUpSolver;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            managers = new ArrayList<>(solverManagers.values());
+            solverManagers.clear();
+            runningWarmUpSolver = warmUpSolver;
+        }
+        if (runningWarmUpSolver != null) {
+            runningWarmUpSolver.terminateEarly();
+        }
+        for (SolverManager<TimeFoldTimetable, String> manager : managers) {
+            try {
+                manager.close();
+            } catch (Exception e) {
+                logger.warn("Error closing solver manager of version {}: {}", number, e.getMessage());
+            }
+        }
+        logger.info("Closed solver version {}", number);
+    }
+}
@@ -0,0 +1,95 @@
+package com.timetable.problem_solver.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Staff;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+/**
+ * Generates the small timetable solved to warm up a new solver version. It is shaped like a
+ * prepared problem: two shifts with a long break, one lesson per section and period, practical
+ * and theory subjects, and teachers shared between the sections of a subject.
+ */
+final class WarmUpProblem {
+
+    private static final List<DayOfWeek> WORKING_DAYS = List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY,
+            DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY);
+    private static final int SHIFT_COUNT = 2;
+    private static final int PERIODS_PER_DAY = 7;
+    // The long break comes before this period
+    private static final int BREAK_PERIOD = 4;
+    private static final int SECTIONS_PER_SHIFT = 3;
+    private static final int SUBJECT_COUNT = 6;
+    private static final int PRACTICAL_SUBJECT_COUNT = 2;
+    private static final int TEACHERS_PER_SUBJECT = 2;
+    // Same problem every time, so warm-up durations are comparable between versions
+    private static final long SEED = 37L;
+
+    private WarmUpProblem() {
+    }
+
+    static TimeFoldTimetable generate() {
+        Random random = new Random(SEED);
+        List<Subject> subjects = new ArrayList<>();
+        List<Staff> teachers = new ArrayList<>();
+        for (int i = 0; i < SUBJECT_COUNT; i++) {
+            Subject subject = new Subject();
+            subject.setId((long) i);
+            subject.setSubjectName("Warm-up subject " + i);
+            subject.setIsPractical(i < PRACTICAL_SUBJECT_COUNT);
+            subject.setIsTheory(i >= PRACTICAL_SUBJECT_COUNT);
+            subject.setDifficultyLevel(DifficultyLevel.values()[i % DifficultyLevel.values().length]);
+            subjects.add(subject);
+            for (int j = 0; j < TEACHERS_PER_SUBJECT; j++) {
+                Staff teacher = new Staff();
+                teacher.setId((long) teachers.size());
+                teachers.add(teacher);
+            }
+        }
+
+        List<TimeFoldTimeslot> timeslots = new ArrayList<>();
+        List<TimeFoldLesson> lessons = new ArrayList<>();
+        for (int shiftIndex = 0; shiftIndex < SHIFT_COUNT; shiftIndex++) {
+            SchoolTiming timing = new SchoolTiming();
+            timing.setId((long) shiftIndex);
+            List<TimeFoldTimeslot> shiftTimeslots = new ArrayList<>();
+            for (DayOfWeek day : WORKING_DAYS) {
+                LocalTime start = LocalTime.of(shiftIndex == 0 ? 7 : 13, 0);
+                for (int periodIndex = 0; periodIndex < PERIODS_PER_DAY; periodIndex++) {
+                    if (periodIndex == BREAK_PERIOD) {
+                        start = start.plusMinutes(30);
+                    }
+                    shiftTimeslots.add(new TimeFoldTimeslot(timeslots.size() + shiftTimeslots.size() + 1,
+                            day, start, start.plusMinutes(40), timing));
+                    start = start.plusMinutes(45);
+                }
+            }
+            for (int i = 0; i < SECTIONS_PER_SHIFT; i++) {
+                Section section = new Section();
+                section.setId((long) (shiftIndex * SECTIONS_PER_SHIFT + i));
+                section.setSectionName("Warm-up section " + section.getId());
+                section.setSchoolTimings(timing);
+                for (int j = 0; j < shiftTimeslots.size(); j++) {
+                    Subject subject = subjects.get(random.nextInt(subjects.size()));
+                    Staff teacher = teachers.get(subject.getId().intValue() * TEACHERS_PER_SUBJECT
+                            + random.nextInt(TEACHERS_PER_SUBJECT));
+                    TimeFoldLesson lesson = new TimeFoldLesson(lessons.size() + 1, subject, teacher, section);
+                    lesson.setTimeslotRange(shiftTimeslots);
+                    lessons.add(lesson);
+                }
+            }
+            timeslots.addAll(shiftTimeslots);
+        }
+        return new TimeFoldTimetable(timeslots, lessons, null);
+    }
+}
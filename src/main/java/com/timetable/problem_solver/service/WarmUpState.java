@@ -0,0 +1,18 @@
+package com.timetable.problem_solver.service;
+
+/**
+ * Progress of the synthetic solve that warms up a new solver version before it takes jobs.
+ */
+public enum WarmUpState {
+    // Warm-up is turned off, a version is ready once built
+    DISABLED,
+    PENDING,
+    RUNNING,
+    DONE,
+    // The warm-up solve threw, the version is ready but cold
+    FAILED;
+
+    public boolean isReady() {
+        return this != PENDING && this != RUNNING;
+    }
+}
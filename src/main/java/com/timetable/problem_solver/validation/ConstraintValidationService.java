@@ -1,5 +1,6 @@
 package com.timetable.problem_solver.validation;
 
+import com.timetable.problem_solver.constraints.CustomRuleCompiler;
 import com.timetable.problem_solver.model.ConstraintSettings;
 import org.springframework.stereotype.Service;
 
@@ -75,6 +76,29 @@ public class ConstraintValidationService {
             result.addError("Description must be 500 characters or less");
         }
 
+        // Validate rule definition, a custom constraint without a rule is stored but not applied
+        validateRuleDefinition(constraint.getRuleDefinition()).getErrors().forEach(result::addError);
+
+        return result;
+    }
+
+    /**
+     * Validate a custom constraint rule by compiling it. An empty rule is valid.
+     */
+    public ValidationResult validateRuleDefinition(String ruleDefinition) {
+        ValidationResult result = new ValidationResult();
+        if (ruleDefinition == null || ruleDefinition.isBlank()) {
+            return result;
+        }
+        if (ruleDefinition.length() > 500) {
+            result.addError("Rule definition must be 500 characters or less");
+            return result;
+        }
+        try {
+            CustomRuleCompiler.validate(ruleDefinition);
+        } catch (IllegalArgumentException e) {
+            result.addError("Invalid rule definition: " + e.getMessage());
+        }
         return result;
     }
 
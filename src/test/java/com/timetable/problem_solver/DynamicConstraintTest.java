@@ -87,6 +87,24 @@ class DynamicConstraintTest {
         assertTrue(validation.getErrorMessage().contains("weight must be 1 or greater"));
     }
 
+    @Test
+    void testRuleDefinitionValidation() {
+        ConstraintSettings ruleConstraint = new ConstraintSettings();
+        ruleConstraint.setConstraintName("onePracticalPerDay");
+        ruleConstraint.setConstraintWeight(1);
+        ruleConstraint.setConstraintType("Soft");
+        ruleConstraint.setRuleDefinition("where practical group section, day count > 1");
+
+        ConstraintValidationService.ValidationResult validation = validationService.validateConstraint(ruleConstraint);
+        assertTrue(validation.isValid(), "Rule definition should compile");
+
+        // Test unknown group key
+        ruleConstraint.setRuleDefinition("where practical group room count > 1");
+        validation = validationService.validateConstraint(ruleConstraint);
+        assertFalse(validation.isValid());
+        assertTrue(validation.getErrorMessage().contains("Invalid rule definition"));
+    }
+
     @Test
     void testSolverReloadWithCustomConstraints() {
         // Verify solver service can reload with custom constraints
@@ -0,0 +1,209 @@
+package com.timetable.problem_solver;
+
+import java.lang.reflect.Proxy;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.context.support.StaticApplicationContext;
+
+import com.timetable.problem_solver.constraints.TimeTableConstraintProvider;
+import com.timetable.problem_solver.constraints.TimeTableIncrementalScoreCalculator;
+import com.timetable.problem_solver.model.ConstraintSettings;
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Staff;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+import com.timetable.problem_solver.repository.ConstraintSettingsRepository;
+import com.timetable.problem_solver.service.ConstraintSettingsCache;
+
+import ai.timefold.solver.core.api.domain.solution.ConstraintWeightOverrides;
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.SolutionManager;
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.solver.core.config.score.director.ScoreDirectorFactoryConfig;
+import ai.timefold.solver.core.config.solver.SolverConfig;
+import ai.timefold.solver.core.impl.score.director.InnerScoreDirector;
+import ai.timefold.solver.core.impl.solver.DefaultSolverFactory;
+
+/**
+ * Small timetables built in memory, for tests that run without the Spring context.
+ */
+public final class TimetableFixtures {
+
+    public static final List<DayOfWeek> WEEKDAYS = List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY,
+            DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY);
+
+    private static final Duration PERIOD = Duration.ofMinutes(40);
+    private static final Duration PASSING_TIME = Duration.ofMinutes(5);
+    private static final Duration LONG_BREAK = Duration.ofMinutes(35);
+
+    private TimetableFixtures() {
+    }
+
+    public static SchoolTiming timing(long id) {
+        SchoolTiming timing = new SchoolTiming();
+        timing.setId(id);
+        return timing;
+    }
+
+    /**
+     * Timeslots of one shift, in day then period order. Periods are 5 minutes apart, except for a
+     * 35 minute break before period {@code longBreakBefore}, which skips a sequence index (none when 0).
+     */
+    public static List<TimeFoldTimeslot> timeslots(SchoolTiming timing, int shiftIndex, int firstId, List<DayOfWeek> days,
+                                                   LocalTime start, int periodCount, int longBreakBefore) {
+        List<TimeFoldTimeslot> timeslots = new ArrayList<>();
+        int id = firstId;
+        for (DayOfWeek day : days) {
+            LocalTime from = start;
+            int sequenceIndex = 0;
+            for (int period = 0; period < periodCount; period++) {
+                if (period > 0) {
+                    Duration gap = period == longBreakBefore ? LONG_BREAK : PASSING_TIME;
+                    from = from.plus(gap);
+                    sequenceIndex += gap.compareTo(TimeFoldTimetable.MAX_CONSECUTIVE_GAP) <= 0 ? 1 : 2;
+                }
+                TimeFoldTimeslot timeslot = new TimeFoldTimeslot(id++, day, from, from.plus(PERIOD), timing);
+                timeslot.setShiftIndex(shiftIndex);
+                timeslot.setPeriodIndex(period);
+                timeslot.setSequenceIndex(sequenceIndex);
+                timeslots.add(timeslot);
+                from = from.plus(PERIOD);
+            }
+        }
+        return timeslots;
+    }
+
+    public static Subject subject(long id, boolean practical, DifficultyLevel difficultyLevel) {
+        Subject subject = new Subject();
+        subject.setId(id);
+        subject.setSubjectName("Subject " + id);
+        subject.setIsPractical(practical);
+        subject.setIsTheory(!practical);
+        subject.setDifficultyLevel(difficultyLevel);
+        return subject;
+    }
+
+    public static Staff teacher(long id) {
+        Staff teacher = new Staff();
+        teacher.setId(id);
+        return teacher;
+    }
+
+    public static Section section(long id, SchoolTiming timing) {
+        Section section = new Section();
+        section.setId(id);
+        section.setSectionName("Section " + id);
+        section.setSchoolTimings(timing);
+        return section;
+    }
+
+    public static TimeFoldLesson lesson(int id, Subject subject, Staff teacher, Section section, TimeFoldTimeslot timeslot) {
+        return new TimeFoldLesson(id, subject, teacher, section, timeslot);
+    }
+
+    /**
+     * A timetable with the default constraint weights, whose lessons may only take the timeslots of their section's shift.
+     */
+    public static TimeFoldTimetable timetable(List<TimeFoldTimeslot> timeslots, List<TimeFoldLesson> lessons) {
+        TimeFoldTimetable timetable = new TimeFoldTimetable(timeslots, lessons, null);
+        timetable.setConstraintWeightOverrides(ConstraintWeightOverrides.none());
+        timetable.restrictTimeslotRanges();
+        return timetable;
+    }
+
+    /**
+     * Let {@link TimeTableConstraintProvider} read its settings from a cache over the given settings
+     * rows, in place of the database. Returns the cache, which saved settings can be put into.
+     */
+    public static ConstraintSettingsCache useConstraintSettings(ConstraintSettings... rows) {
+        return useConstraintSettings(constraintSettingsRepository(rows));
+    }
+
+    /**
+     * Let {@link TimeTableConstraintProvider} read its settings from a cache over the given repository.
+     */
+    public static ConstraintSettingsCache useConstraintSettings(ConstraintSettingsRepository repository) {
+        ConstraintSettingsCache cache = new ConstraintSettingsCache(repository);
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("constraintSettingsCache", cache);
+        context.refresh();
+        new TimeTableConstraintProvider().setApplicationContext(context);
+        return cache;
+    }
+
+    /**
+     * An in-memory repository over the given settings rows, keyed by their ids, that can find and save them.
+     */
+    public static ConstraintSettingsRepository constraintSettingsRepository(ConstraintSettings... rows) {
+        Map<Long, ConstraintSettings> settings = new LinkedHashMap<>();
+        for (ConstraintSettings row : rows) {
+            settings.put(row.getId(), row);
+        }
+        return (ConstraintSettingsRepository) Proxy.newProxyInstance(
+                ConstraintSettingsRepository.class.getClassLoader(), new Class<?>[] {ConstraintSettingsRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAll" -> new ArrayList<>(settings.values());
+                    case "findById" -> Optional.ofNullable(settings.get((Long) args[0]));
+                    case "save" -> {
+                        ConstraintSettings saved = (ConstraintSettings) args[0];
+                        settings.put(saved.getId(), saved);
+                        yield saved;
+                    }
+                    case "toString" -> "in-memory constraint settings";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    public static SolverConfig solverConfig() {
+        return new SolverConfig()
+                .withSolutionClass(TimeFoldTimetable.class)
+                .withEntityClasses(TimeFoldLesson.class);
+    }
+
+    /**
+     * Scores with the built-in constraints and those of the given settings rows, at their default weights.
+     */
+    public static SolutionManager<TimeFoldTimetable, HardSoftScore> constraintStreamsSolutionManager(
+            ConstraintSettings... rows) {
+        useConstraintSettings(rows);
+        return SolutionManager.create(SolverFactory.create(solverConfig()
+                .withConstraintProviderClass(TimeTableConstraintProvider.class)));
+    }
+
+    public static SolverConfig incrementalSolverConfig() {
+        return solverConfig()
+                .withScoreDirectorFactory(new ScoreDirectorFactoryConfig()
+                        .withIncrementalScoreCalculatorClass(TimeTableIncrementalScoreCalculator.class));
+    }
+
+    public static SolverFactory<TimeFoldTimetable> incrementalSolverFactory() {
+        return SolverFactory.create(incrementalSolverConfig());
+    }
+
+    /**
+     * A score director working on the given solution, for driving moves and move factories directly. Close it after use.
+     */
+    public static InnerScoreDirector<TimeFoldTimetable, HardSoftScore> incrementalScoreDirector(TimeFoldTimetable solution) {
+        DefaultSolverFactory<TimeFoldTimetable> solverFactory =
+                (DefaultSolverFactory<TimeFoldTimetable>) incrementalSolverFactory();
+        InnerScoreDirector<TimeFoldTimetable, HardSoftScore> scoreDirector =
+                solverFactory.<HardSoftScore>getScoreDirectorFactory().createScoreDirectorBuilder()
+                        .withLookUpEnabled(true)
+                        .build();
+        scoreDirector.setWorkingSolution(solution);
+        return scoreDirector;
+    }
+}
@@ -0,0 +1,130 @@
+package com.timetable.problem_solver.constraints;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.model.ConstraintSettings;
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Staff;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.score.analysis.ConstraintAnalysis;
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Penalties of custom constraints compiled from each rule shape, scored with the constraint streams.
+ */
+class CustomRuleCompilerTest {
+
+    private static final String RULE_NAME = "customRule";
+    private static final int PERIODS = 6;
+
+    private final SchoolTiming timing = TimetableFixtures.timing(1);
+    private final List<TimeFoldTimeslot> timeslots = TimetableFixtures.timeslots(timing, 0, 1,
+            TimetableFixtures.WEEKDAYS, LocalTime.of(8, 0), PERIODS, 0);
+    private final Subject practical = TimetableFixtures.subject(1, true, DifficultyLevel.HIGH);
+    private final Subject theory = TimetableFixtures.subject(2, false, DifficultyLevel.LOW);
+    private final Staff firstTeacher = TimetableFixtures.teacher(1);
+    private final Staff secondTeacher = TimetableFixtures.teacher(2);
+    private final Section section = TimetableFixtures.section(1, timing);
+    private final List<TimeFoldLesson> lessons = new ArrayList<>();
+
+    private void lesson(Subject subject, Staff teacher, DayOfWeek day, int period) {
+        TimeFoldTimeslot timeslot = timeslots.get(TimetableFixtures.WEEKDAYS.indexOf(day) * PERIODS + period);
+        lessons.add(TimetableFixtures.lesson(lessons.size() + 1, subject, teacher, section, timeslot));
+    }
+
+    private ConstraintAnalysis<HardSoftScore> analyze(String ruleDefinition) {
+        ConstraintSettings rule = new ConstraintSettings(1L, RULE_NAME, 1, "Soft", true, null, ruleDefinition);
+        TimeFoldTimetable timetable = TimetableFixtures.timetable(timeslots, lessons);
+        return TimetableFixtures.constraintStreamsSolutionManager(rule).analyze(timetable)
+                .getConstraintAnalysis("Custom Soft: " + RULE_NAME);
+    }
+
+    private static int penalty(ConstraintAnalysis<HardSoftScore> analysis) {
+        return analysis != null ? -analysis.score().softScore() : 0;
+    }
+
+    @Test
+    void penalizesEveryLessonOnTheGivenDay() {
+        lesson(practical, firstTeacher, DayOfWeek.MONDAY, 0);
+        lesson(theory, firstTeacher, DayOfWeek.MONDAY, 1);
+        lesson(practical, firstTeacher, DayOfWeek.TUESDAY, 0);
+
+        assertEquals(2, penalty(analyze("where day = MONDAY")));
+        assertEquals(1, penalty(analyze("where practical and day = monday")));
+    }
+
+    @Test
+    void negatedConditionPenalizesTheOtherLessons() {
+        lesson(practical, firstTeacher, DayOfWeek.MONDAY, 0);
+        lesson(theory, firstTeacher, DayOfWeek.MONDAY, 1);
+        lesson(theory, firstTeacher, DayOfWeek.TUESDAY, 1);
+
+        assertEquals(1, penalty(analyze("where practical")));
+        assertEquals(2, penalty(analyze("where not practical")));
+        assertEquals(1, penalty(analyze("where not practical and not day = TUESDAY")));
+    }
+
+    @Test
+    void groupsArePenalizedByTheirCountAboveTheThreshold() {
+        for (int period = 0; period < 4; period++) {
+            lesson(theory, firstTeacher, DayOfWeek.MONDAY, period);
+        }
+        lesson(theory, firstTeacher, DayOfWeek.TUESDAY, 0);
+        lesson(theory, firstTeacher, DayOfWeek.TUESDAY, 1);
+        for (int period = 4; period < PERIODS; period++) {
+            lesson(theory, secondTeacher, DayOfWeek.MONDAY, period);
+        }
+
+        // Monday of the first teacher holds 4 lessons, 2 over the threshold; every other group is within it
+        ConstraintAnalysis<HardSoftScore> analysis = analyze("group teacher, day count > 2");
+        assertEquals(2, penalty(analysis));
+        assertEquals(1, analysis.matchCount());
+        // Monday of the section holds all 6 lessons of both teachers
+        assertEquals(3, penalty(analyze("group section, day count > 3")));
+        assertEquals(0, penalty(analyze("group teacher, day count > 4")));
+    }
+
+    @Test
+    void groupsOnlyLessonsMatchingTheCondition() {
+        lesson(practical, firstTeacher, DayOfWeek.MONDAY, 0);
+        lesson(practical, secondTeacher, DayOfWeek.MONDAY, 1);
+        lesson(theory, firstTeacher, DayOfWeek.MONDAY, 2);
+        lesson(theory, secondTeacher, DayOfWeek.MONDAY, 3);
+
+        assertEquals(1, penalty(analyze("where practical group section count > 1")));
+        assertEquals(2, penalty(analyze("where difficulty = LOW group section count > 0")));
+        ConstraintAnalysis<HardSoftScore> perTeacher = analyze("where practical group teacher count > 0");
+        assertEquals(2, penalty(perTeacher));
+        assertEquals(2, perTeacher.matchCount());
+    }
+
+    @Test
+    void rejectsRulesOutsideTheGrammar() {
+        assertThrows(IllegalArgumentException.class, () -> CustomRuleCompiler.validate(" "));
+        assertThrows(IllegalArgumentException.class, () -> CustomRuleCompiler.validate("where weekend"));
+        assertThrows(IllegalArgumentException.class, () -> CustomRuleCompiler.validate("group room count > 1"));
+        assertThrows(IllegalArgumentException.class, () -> CustomRuleCompiler.validate("group teacher count > -1"));
+        assertThrows(IllegalArgumentException.class, () -> CustomRuleCompiler.validate("where day = FUNDAY"));
+        CustomRuleCompiler.validate("where difficulty = LOW group section, day count > 1");
+    }
+
+    @Test
+    void compilesIdenticalRulesOnce() {
+        assertSame(CustomRuleCompiler.compile("group teacher, day count > 5"),
+                CustomRuleCompiler.compile("  GROUP teacher ,day count>5"));
+    }
+}
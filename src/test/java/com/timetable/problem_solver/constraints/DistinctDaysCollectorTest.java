@@ -0,0 +1,68 @@
+package com.timetable.problem_solver.constraints;
+
+import java.time.DayOfWeek;
+import java.util.function.BiFunction;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistinctDaysCollectorTest {
+
+    private final DistinctDaysCollector<DayOfWeek> collector = DistinctDaysCollector.distinctDays(DayOfWeek::ordinal);
+    private final BiFunction<DistinctDaysCollector.Days, DayOfWeek, Runnable> accumulator = collector.accumulator();
+
+    private int maskOf(DistinctDaysCollector.Days days) {
+        return collector.finisher().apply(days);
+    }
+
+    private static int bit(DayOfWeek day) {
+        return 1 << day.ordinal();
+    }
+
+    @Test
+    void setsOneBitPerDistinctDay() {
+        DistinctDaysCollector.Days days = collector.supplier().get();
+        assertEquals(0, maskOf(days));
+
+        accumulator.apply(days, DayOfWeek.MONDAY);
+        accumulator.apply(days, DayOfWeek.MONDAY);
+        accumulator.apply(days, DayOfWeek.SUNDAY);
+
+        assertEquals(bit(DayOfWeek.MONDAY) | bit(DayOfWeek.SUNDAY), maskOf(days));
+        assertEquals(2, Integer.bitCount(maskOf(days)));
+    }
+
+    @Test
+    void undoClearsADayOnlyWhenItsLastFactIsRetracted() {
+        DistinctDaysCollector.Days days = collector.supplier().get();
+        Runnable firstMonday = accumulator.apply(days, DayOfWeek.MONDAY);
+        Runnable secondMonday = accumulator.apply(days, DayOfWeek.MONDAY);
+        Runnable friday = accumulator.apply(days, DayOfWeek.FRIDAY);
+        // Undos of one day are the same runnable, so inserting allocates nothing once the day was seen
+        assertSame(firstMonday, secondMonday);
+
+        firstMonday.run();
+        assertEquals(bit(DayOfWeek.MONDAY) | bit(DayOfWeek.FRIDAY), maskOf(days));
+        friday.run();
+        assertEquals(bit(DayOfWeek.MONDAY), maskOf(days));
+        secondMonday.run();
+        assertEquals(0, maskOf(days));
+
+        // The group can be filled again after it emptied
+        accumulator.apply(days, DayOfWeek.WEDNESDAY);
+        assertEquals(bit(DayOfWeek.WEDNESDAY), maskOf(days));
+    }
+
+    @Test
+    void keepsGroupsApart() {
+        DistinctDaysCollector.Days first = collector.supplier().get();
+        DistinctDaysCollector.Days second = collector.supplier().get();
+        accumulator.apply(first, DayOfWeek.TUESDAY);
+        Runnable undo = accumulator.apply(second, DayOfWeek.TUESDAY);
+
+        undo.run();
+        assertEquals(bit(DayOfWeek.TUESDAY), maskOf(first));
+        assertEquals(0, maskOf(second));
+    }
+}
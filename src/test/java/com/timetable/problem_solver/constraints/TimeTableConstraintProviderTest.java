@@ -0,0 +1,146 @@
+package com.timetable.problem_solver.constraints;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Staff;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.SolutionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Penalties of the constraints built on consecutive sequences, for known runs of periods. The morning
+ * shift has six periods a day with a long break before period 3, so periods 2 and 3 are not consecutive.
+ */
+class TimeTableConstraintProviderTest {
+
+    private static final String TEACHER_NO_THREE_CONSECUTIVE = "Teacher no three consecutive periods";
+    private static final String PRACTICAL_CONSECUTIVE = "Practical subject consecutive periods";
+    private static final int MORNING_PERIODS = 6;
+    private static final int AFTERNOON_PERIODS = 3;
+
+    private SolutionManager<TimeFoldTimetable, HardSoftScore> constraintStreams;
+    private final SchoolTiming morning = TimetableFixtures.timing(1);
+    private final SchoolTiming afternoon = TimetableFixtures.timing(2);
+    private final List<TimeFoldTimeslot> morningTimeslots = TimetableFixtures.timeslots(morning, 0, 1,
+            TimetableFixtures.WEEKDAYS, LocalTime.of(7, 30), MORNING_PERIODS, 3);
+    private final List<TimeFoldTimeslot> afternoonTimeslots = TimetableFixtures.timeslots(afternoon, 1,
+            morningTimeslots.size() + 1, TimetableFixtures.WEEKDAYS, LocalTime.of(13, 0), AFTERNOON_PERIODS, 0);
+    private final Subject theory = TimetableFixtures.subject(1, false, DifficultyLevel.MEDIUM);
+    private final Subject practical = TimetableFixtures.subject(2, true, DifficultyLevel.MEDIUM);
+    private final Staff teacher = TimetableFixtures.teacher(1);
+
+    @BeforeEach
+    void setUp() {
+        constraintStreams = TimetableFixtures.constraintStreamsSolutionManager();
+    }
+
+    private TimeFoldTimeslot morning(DayOfWeek day, int period) {
+        return morningTimeslots.get(TimetableFixtures.WEEKDAYS.indexOf(day) * MORNING_PERIODS + period);
+    }
+
+    private TimeFoldTimeslot afternoon(DayOfWeek day, int period) {
+        return afternoonTimeslots.get(TimetableFixtures.WEEKDAYS.indexOf(day) * AFTERNOON_PERIODS + period);
+    }
+
+    /**
+     * One lesson of the teacher per timeslot, each for its own section so only the teacher's runs count.
+     */
+    private List<TimeFoldLesson> teacherLessons(TimeFoldTimeslot... timeslots) {
+        List<TimeFoldLesson> lessons = new ArrayList<>();
+        for (TimeFoldTimeslot timeslot : timeslots) {
+            Section section = TimetableFixtures.section(lessons.size(), timeslot.getTiming());
+            lessons.add(TimetableFixtures.lesson(lessons.size(), theory, teacher, section, timeslot));
+        }
+        return lessons;
+    }
+
+    /**
+     * One practical lesson per timeslot for a single morning section.
+     */
+    private List<TimeFoldLesson> practicalLessons(TimeFoldTimeslot... timeslots) {
+        Section section = TimetableFixtures.section(1, morning);
+        List<TimeFoldLesson> lessons = new ArrayList<>();
+        for (TimeFoldTimeslot timeslot : timeslots) {
+            lessons.add(TimetableFixtures.lesson(lessons.size(), practical, null, section, timeslot));
+        }
+        return lessons;
+    }
+
+    private int penalty(String constraintName, List<TimeFoldLesson> lessons) {
+        List<TimeFoldTimeslot> timeslots = new ArrayList<>(morningTimeslots);
+        timeslots.addAll(afternoonTimeslots);
+        TimeFoldTimetable timetable = TimetableFixtures.timetable(timeslots, lessons);
+        return -constraintStreams.analyze(timetable).getConstraintAnalysis(constraintName).score().softScore();
+    }
+
+    @Test
+    void teacherRunsPayForEachPeriodBeyondTwo() {
+        assertEquals(0, penalty(TEACHER_NO_THREE_CONSECUTIVE,
+                teacherLessons(morning(DayOfWeek.MONDAY, 0), morning(DayOfWeek.MONDAY, 1))));
+        assertEquals(1, penalty(TEACHER_NO_THREE_CONSECUTIVE,
+                teacherLessons(morning(DayOfWeek.MONDAY, 0), morning(DayOfWeek.MONDAY, 1), morning(DayOfWeek.MONDAY, 2))));
+        assertEquals(1, penalty(TEACHER_NO_THREE_CONSECUTIVE,
+                teacherLessons(morning(DayOfWeek.MONDAY, 3), morning(DayOfWeek.MONDAY, 4), morning(DayOfWeek.MONDAY, 5))));
+    }
+
+    @Test
+    void longBreakSplitsATeacherRun() {
+        // Periods 0 to 5 are runs of three on either side of the break
+        assertEquals(2, penalty(TEACHER_NO_THREE_CONSECUTIVE, teacherLessons(
+                morning(DayOfWeek.MONDAY, 0), morning(DayOfWeek.MONDAY, 1), morning(DayOfWeek.MONDAY, 2),
+                morning(DayOfWeek.MONDAY, 3), morning(DayOfWeek.MONDAY, 4), morning(DayOfWeek.MONDAY, 5))));
+        assertEquals(0, penalty(TEACHER_NO_THREE_CONSECUTIVE, teacherLessons(
+                morning(DayOfWeek.MONDAY, 1), morning(DayOfWeek.MONDAY, 2),
+                morning(DayOfWeek.MONDAY, 3), morning(DayOfWeek.MONDAY, 4))));
+    }
+
+    @Test
+    void teacherRunsDoNotContinueAcrossDaysOrShifts() {
+        assertEquals(0, penalty(TEACHER_NO_THREE_CONSECUTIVE, teacherLessons(
+                morning(DayOfWeek.MONDAY, 4), morning(DayOfWeek.MONDAY, 5), morning(DayOfWeek.TUESDAY, 0))));
+        // Sequence indexes restart per shift: afternoon periods 1 and 2 would otherwise extend morning periods 0 and 1
+        assertEquals(0, penalty(TEACHER_NO_THREE_CONSECUTIVE, teacherLessons(
+                morning(DayOfWeek.MONDAY, 0), morning(DayOfWeek.MONDAY, 1),
+                afternoon(DayOfWeek.MONDAY, 1), afternoon(DayOfWeek.MONDAY, 2))));
+    }
+
+    @Test
+    void practicalSubjectWantsOneDoublePeriodPerDay() {
+        assertEquals(0, penalty(PRACTICAL_CONSECUTIVE,
+                practicalLessons(morning(DayOfWeek.MONDAY, 0), morning(DayOfWeek.MONDAY, 1))));
+        assertEquals(0, penalty(PRACTICAL_CONSECUTIVE, practicalLessons(
+                morning(DayOfWeek.MONDAY, 0), morning(DayOfWeek.MONDAY, 1),
+                morning(DayOfWeek.TUESDAY, 4), morning(DayOfWeek.TUESDAY, 5))));
+        assertEquals(1, penalty(PRACTICAL_CONSECUTIVE, practicalLessons(morning(DayOfWeek.MONDAY, 0))));
+        assertEquals(2, penalty(PRACTICAL_CONSECUTIVE,
+                practicalLessons(morning(DayOfWeek.MONDAY, 0), morning(DayOfWeek.TUESDAY, 0))));
+    }
+
+    @Test
+    void practicalSubjectPaysOncePerDayForAnyOtherRun() {
+        assertEquals(1, penalty(PRACTICAL_CONSECUTIVE, practicalLessons(
+                morning(DayOfWeek.MONDAY, 0), morning(DayOfWeek.MONDAY, 1), morning(DayOfWeek.MONDAY, 2))));
+        assertEquals(1, penalty(PRACTICAL_CONSECUTIVE, practicalLessons(
+                morning(DayOfWeek.MONDAY, 0), morning(DayOfWeek.MONDAY, 1),
+                morning(DayOfWeek.MONDAY, 4), morning(DayOfWeek.MONDAY, 5))));
+        // Periods 2 and 3 are on either side of the long break
+        assertEquals(1, penalty(PRACTICAL_CONSECUTIVE,
+                practicalLessons(morning(DayOfWeek.MONDAY, 2), morning(DayOfWeek.MONDAY, 3))));
+    }
+}
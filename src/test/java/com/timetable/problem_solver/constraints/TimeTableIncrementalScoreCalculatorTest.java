@@ -0,0 +1,158 @@
+package com.timetable.problem_solver.constraints;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Staff;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.domain.solution.ConstraintWeightOverrides;
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.SolutionManager;
+import ai.timefold.solver.core.api.solver.SolutionUpdatePolicy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The incremental score calculator must score every timetable exactly like the constraint streams
+ * of {@link TimeTableConstraintProvider}, from scratch and after any sequence of timeslot changes.
+ */
+class TimeTableIncrementalScoreCalculatorTest {
+
+    private static final int SEEDS = 20;
+    private static final int CHANGES = 120;
+    private static final int CHANGES_PER_CHECK = 10;
+
+    private SolutionManager<TimeFoldTimetable, HardSoftScore> constraintStreams;
+
+    @BeforeEach
+    void setUp() {
+        constraintStreams = TimetableFixtures.constraintStreamsSolutionManager();
+    }
+
+    @Test
+    void matchesConstraintStreamsOnRandomTimetables() {
+        for (long seed = 0; seed < SEEDS; seed++) {
+            assertSameScoresWhileChanging(randomTimetable(seed), seed);
+        }
+    }
+
+    @Test
+    void matchesConstraintStreamsWithZeroAndCustomWeights() {
+        Map<String, HardSoftScore> weights = new HashMap<>();
+        weights.put("Teacher conflict", HardSoftScore.ZERO);
+        weights.put("Teacher time efficiency", HardSoftScore.ZERO);
+        weights.put("Student group conflict", HardSoftScore.ofHard(3));
+        weights.put("Teacher daily workload limit", HardSoftScore.ofHard(2));
+        weights.put("Practical subjects weekdays only", HardSoftScore.ofHard(1));
+        weights.put("Practical subject consecutive periods", HardSoftScore.ofSoft(4));
+        weights.put("Prefer high priority theory", HardSoftScore.ZERO);
+        for (long seed = 0; seed < SEEDS; seed++) {
+            TimeFoldTimetable timetable = randomTimetable(seed);
+            timetable.setConstraintWeightOverrides(ConstraintWeightOverrides.of(weights));
+            assertSameScoresWhileChanging(timetable, seed);
+        }
+    }
+
+    @Test
+    void longBreakEndsARunOfConsecutivePeriods() {
+        SchoolTiming timing = TimetableFixtures.timing(1);
+        List<TimeFoldTimeslot> timeslots = TimetableFixtures.timeslots(timing, 0, 1, List.of(DayOfWeek.MONDAY),
+                LocalTime.of(8, 0), 6, 3);
+        Subject subject = TimetableFixtures.subject(1, false, DifficultyLevel.MEDIUM);
+        Staff teacher = TimetableFixtures.teacher(1);
+        List<TimeFoldLesson> lessons = new ArrayList<>();
+        // Periods 0 to 4 for one teacher across five sections: runs of 3 and 2 around the break
+        for (int period = 0; period < 5; period++) {
+            Section section = TimetableFixtures.section(period, timing);
+            lessons.add(TimetableFixtures.lesson(period, subject, teacher, section, timeslots.get(period)));
+        }
+        TimeFoldTimetable timetable = TimetableFixtures.timetable(timeslots, lessons);
+
+        HardSoftScore expected = constraintStreams.update(timetable, SolutionUpdatePolicy.UPDATE_SCORE_ONLY);
+        assertEquals(-1, constraintStreams.analyze(timetable)
+                .getConstraintAnalysis("Teacher no three consecutive periods").score().softScore());
+        assertEquals(expected, scoreFromScratch(timetable));
+    }
+
+    private void assertSameScoresWhileChanging(TimeFoldTimetable timetable, long seed) {
+        TimeTableIncrementalScoreCalculator calculator = new TimeTableIncrementalScoreCalculator();
+        calculator.resetWorkingSolution(timetable);
+        assertEquals(constraintStreams.update(timetable, SolutionUpdatePolicy.UPDATE_SCORE_ONLY), calculator.calculateScore(),
+                "Seed " + seed + " from scratch");
+
+        Random random = new Random(seed);
+        List<TimeFoldLesson> lessons = timetable.getLessons();
+        for (int change = 1; change <= CHANGES; change++) {
+            TimeFoldLesson lesson = lessons.get(random.nextInt(lessons.size()));
+            calculator.beforeVariableChanged(lesson, "timeslot");
+            lesson.setTimeslot(randomTimeslot(timetable.getTimeslots(), random));
+            calculator.afterVariableChanged(lesson, "timeslot");
+            if (change % CHANGES_PER_CHECK == 0) {
+                assertEquals(constraintStreams.update(timetable, SolutionUpdatePolicy.UPDATE_SCORE_ONLY),
+                        calculator.calculateScore(), "Seed " + seed + " after " + change + " changes");
+            }
+        }
+    }
+
+    private static HardSoftScore scoreFromScratch(TimeFoldTimetable timetable) {
+        TimeTableIncrementalScoreCalculator calculator = new TimeTableIncrementalScoreCalculator();
+        calculator.resetWorkingSolution(timetable);
+        return calculator.calculateScore();
+    }
+
+    /**
+     * Two shifts with a long break, dense enough for every built-in constraint to match. Some lessons
+     * have no teacher, no section or no timeslot, and timeslots are picked across both shifts.
+     */
+    private static TimeFoldTimetable randomTimetable(long seed) {
+        Random random = new Random(seed);
+        SchoolTiming morning = TimetableFixtures.timing(1);
+        SchoolTiming afternoon = TimetableFixtures.timing(2);
+        List<DayOfWeek> morningDays = new ArrayList<>(TimetableFixtures.WEEKDAYS);
+        morningDays.add(DayOfWeek.SATURDAY);
+        List<TimeFoldTimeslot> timeslots = new ArrayList<>(TimetableFixtures.timeslots(morning, 0, 1, morningDays,
+                LocalTime.of(7, 30), 7, 4));
+        timeslots.addAll(TimetableFixtures.timeslots(afternoon, 1, timeslots.size() + 1, TimetableFixtures.WEEKDAYS,
+                LocalTime.of(13, 0), 5, 3));
+
+        List<Subject> subjects = List.of(
+                TimetableFixtures.subject(0, true, DifficultyLevel.LOW),
+                TimetableFixtures.subject(1, true, DifficultyLevel.HIGH),
+                TimetableFixtures.subject(2, false, DifficultyLevel.HIGH),
+                TimetableFixtures.subject(3, false, DifficultyLevel.LOW),
+                TimetableFixtures.subject(4, false, DifficultyLevel.MEDIUM));
+        List<Staff> teachers = List.of(TimetableFixtures.teacher(0), TimetableFixtures.teacher(1),
+                TimetableFixtures.teacher(2));
+        List<Section> sections = List.of(TimetableFixtures.section(0, morning), TimetableFixtures.section(1, morning),
+                TimetableFixtures.section(2, afternoon));
+
+        List<TimeFoldLesson> lessons = new ArrayList<>();
+        for (int id = 0; id < 80; id++) {
+            Staff teacher = id % 9 == 0 ? null : teachers.get(random.nextInt(teachers.size()));
+            Section section = id % 13 == 0 ? null : sections.get(random.nextInt(sections.size()));
+            TimeFoldTimeslot timeslot = id % 8 == 0 ? null : randomTimeslot(timeslots, random);
+            lessons.add(TimetableFixtures.lesson(id, subjects.get(random.nextInt(subjects.size())), teacher, section, timeslot));
+        }
+        return TimetableFixtures.timetable(timeslots, lessons);
+    }
+
+    private static TimeFoldTimeslot randomTimeslot(List<TimeFoldTimeslot> timeslots, Random random) {
+        return random.nextInt(12) == 0 ? null : timeslots.get(random.nextInt(timeslots.size()));
+    }
+}
@@ -0,0 +1,117 @@
+package com.timetable.problem_solver.construction;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Staff;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.solver.core.config.phase.custom.CustomPhaseConfig;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DSatur construction of a small two-shift timetable that has a conflict-free solution.
+ */
+class DSaturInitializerTest {
+
+    private static final int PRE_ASSIGNED_LESSON = 0;
+    private static final int PRE_ASSIGNED_TIMESLOT = 2;
+
+    private TimeFoldTimetable problem;
+    private List<TimeFoldTimeslot> morningTimeslots;
+    private List<TimeFoldTimeslot> afternoonTimeslots;
+
+    @BeforeEach
+    void setUp() {
+        SchoolTiming morning = TimetableFixtures.timing(1);
+        SchoolTiming afternoon = TimetableFixtures.timing(2);
+        morningTimeslots = TimetableFixtures.timeslots(morning, 0, 1, TimetableFixtures.WEEKDAYS,
+                LocalTime.of(8, 0), 4, 0);
+        afternoonTimeslots = TimetableFixtures.timeslots(afternoon, 1, morningTimeslots.size() + 1,
+                TimetableFixtures.WEEKDAYS, LocalTime.of(13, 0), 3, 0);
+        List<TimeFoldTimeslot> timeslots = new ArrayList<>(morningTimeslots);
+        timeslots.addAll(afternoonTimeslots);
+
+        Subject maths = TimetableFixtures.subject(1, false, DifficultyLevel.HIGH);
+        Subject science = TimetableFixtures.subject(2, false, DifficultyLevel.MEDIUM);
+        Subject history = TimetableFixtures.subject(3, false, DifficultyLevel.LOW);
+        Staff first = TimetableFixtures.teacher(1);
+        Staff second = TimetableFixtures.teacher(2);
+        Staff third = TimetableFixtures.teacher(3);
+        Section morningA = TimetableFixtures.section(1, morning);
+        Section morningB = TimetableFixtures.section(2, morning);
+        Section afternoonC = TimetableFixtures.section(3, afternoon);
+
+        List<TimeFoldLesson> lessons = new ArrayList<>();
+        addLessons(lessons, 3, maths, first, morningA);
+        addLessons(lessons, 3, science, second, morningA);
+        addLessons(lessons, 2, maths, first, morningB);
+        addLessons(lessons, 4, history, third, morningB);
+        addLessons(lessons, 2, science, second, afternoonC);
+        addLessons(lessons, 3, history, third, afternoonC);
+        lessons.get(PRE_ASSIGNED_LESSON).setTimeslot(morningTimeslots.get(PRE_ASSIGNED_TIMESLOT));
+        problem = TimetableFixtures.timetable(timeslots, lessons);
+    }
+
+    private static void addLessons(List<TimeFoldLesson> lessons, int count, Subject subject, Staff teacher,
+                                   Section section) {
+        for (int i = 0; i < count; i++) {
+            lessons.add(TimetableFixtures.lesson(lessons.size(), subject, teacher, section, null));
+        }
+    }
+
+    private TimeFoldTimetable construct() {
+        return SolverFactory.<TimeFoldTimetable>create(TimetableFixtures.incrementalSolverConfig()
+                        .withPhases(new CustomPhaseConfig().withCustomPhaseCommandList(List.of(new DSaturInitializer()))))
+                .buildSolver()
+                .solve(problem);
+    }
+
+    @Test
+    void assignsEveryLessonWithinItsRange() {
+        TimeFoldTimetable solution = construct();
+        for (TimeFoldLesson lesson : solution.getLessons()) {
+            assertNotNull(lesson.getTimeslot(), "Lesson " + lesson.getId());
+            List<TimeFoldTimeslot> shift = lesson.getSection().getId() == 3 ? afternoonTimeslots : morningTimeslots;
+            assertTrue(shift.stream().anyMatch(timeslot -> timeslot.getId().equals(lesson.getTimeslot().getId())),
+                    "Lesson " + lesson.getId() + " outside its shift");
+        }
+    }
+
+    @Test
+    void keepsTheTimeslotOfAPreAssignedLesson() {
+        TimeFoldTimetable solution = construct();
+        TimeFoldLesson lesson = solution.getLessons().get(PRE_ASSIGNED_LESSON);
+        assertEquals(morningTimeslots.get(PRE_ASSIGNED_TIMESLOT).getId(), lesson.getTimeslot().getId());
+    }
+
+    @Test
+    void colourableTimetableEndsWithoutTeacherOrSectionConflict() {
+        TimeFoldTimetable solution = construct();
+        Set<String> teacherSlots = new HashSet<>();
+        Set<String> sectionSlots = new HashSet<>();
+        for (TimeFoldLesson lesson : solution.getLessons()) {
+            long timeslotId = lesson.getTimeslot().getId();
+            assertTrue(teacherSlots.add(lesson.getTeacher().getId() + "@" + timeslotId),
+                    "Teacher conflict at lesson " + lesson.getId());
+            assertTrue(sectionSlots.add(lesson.getSection().getId() + "@" + timeslotId),
+                    "Section conflict at lesson " + lesson.getId());
+        }
+        assertEquals(0, solution.getScore().hardScore());
+    }
+}
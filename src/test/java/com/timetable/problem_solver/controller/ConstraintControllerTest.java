@@ -0,0 +1,141 @@
+package com.timetable.problem_solver.controller;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.constraints.TimeTableConstraintProvider;
+import com.timetable.problem_solver.model.ConstraintSettings;
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Staff;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+import com.timetable.problem_solver.repository.ConstraintSettingsRepository;
+import com.timetable.problem_solver.service.ConstraintSettingsCache;
+import com.timetable.problem_solver.service.SolveOptions;
+import com.timetable.problem_solver.service.SolverService;
+
+import ai.timefold.solver.core.api.domain.solution.ConstraintWeightOverrides;
+import ai.timefold.solver.core.api.score.analysis.ConstraintAnalysis;
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.SolutionManager;
+import ai.timefold.solver.core.api.solver.SolverStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Toggles and weight changes reach the next analysis and solve through the constraint weights
+ * the solver service attaches to each problem, without a solver reload.
+ */
+class ConstraintControllerTest {
+
+    private static final long SETTINGS_ID = 1L;
+    private static final String TIME_EFFICIENCY = "Teacher time efficiency";
+    private static final SolveOptions FAST = new SolveOptions(null, false, false, null, SolveOptions.SolverProfile.FAST);
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final SchoolTiming timing = TimetableFixtures.timing(1);
+    private final List<TimeFoldTimeslot> timeslots = TimetableFixtures.timeslots(timing, 0, 1,
+            TimetableFixtures.WEEKDAYS, LocalTime.of(8, 0), 4, 0);
+    private SolverService solverService;
+    private ConstraintController constraintController;
+
+    @BeforeEach
+    void setUp() {
+        ConstraintSettingsRepository repository = TimetableFixtures.constraintSettingsRepository(
+                new ConstraintSettings(SETTINGS_ID, "teacherTimeEfficiency", 1, "Soft", true, null, null));
+        ConstraintSettingsCache cache = TimetableFixtures.useConstraintSettings(repository);
+        solverService = new SolverService(new TimeTableConstraintProvider(), cache, "1", Duration.ZERO);
+        constraintController = new ConstraintController(repository, cache, solverService, null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        solverService.cleanup();
+    }
+
+    /**
+     * The first three Monday periods of one teacher and section, two back-to-back pairs.
+     */
+    private TimeFoldTimetable problem() {
+        Subject subject = TimetableFixtures.subject(1, false, DifficultyLevel.MEDIUM);
+        Staff teacher = TimetableFixtures.teacher(1);
+        Section section = TimetableFixtures.section(1, timing);
+        List<TimeFoldLesson> lessons = new ArrayList<>();
+        for (int period = 0; period < 3; period++) {
+            lessons.add(TimetableFixtures.lesson(period + 1, subject, teacher, section, timeslots.get(period)));
+        }
+        return new TimeFoldTimetable(timeslots, lessons, null);
+    }
+
+    /**
+     * Analysis of a fresh problem as the analyze endpoint does it, with the current constraint weights.
+     */
+    private ConstraintAnalysis<HardSoftScore> analyzeTimeEfficiency() {
+        TimeFoldTimetable problem = solverService.applyConstraintWeights(problem());
+        return solverService.getSolutionManager().analyze(problem).getConstraintAnalysis(TIME_EFFICIENCY);
+    }
+
+    @Test
+    void weightChangeReachesTheNextAnalysisAndSolve() throws InterruptedException {
+        SolutionManager<TimeFoldTimetable, HardSoftScore> solutionManager = solverService.getSolutionManager();
+        assertEquals(HardSoftScore.ofSoft(2), analyzeTimeEfficiency().score());
+
+        assertEquals(HttpStatus.OK, constraintController.updateConstraintWeight(SETTINGS_ID, 3).getStatusCode());
+
+        assertEquals(HardSoftScore.ofSoft(6), analyzeTimeEfficiency().score());
+        assertSame(solutionManager, solverService.getSolutionManager(), "The solver was reloaded");
+        TimeFoldTimetable problem = problem();
+        solverService.solve("job", problem, FAST, solution -> {
+        });
+        solverService.terminateEarly("job");
+        assertEquals(HardSoftScore.ofSoft(3),
+                problem.getConstraintWeightOverrides().getConstraintWeight(TIME_EFFICIENCY));
+        awaitNoActiveJobs();
+    }
+
+    @Test
+    void disabledConstraintHasNoMatches() {
+        assertEquals(2, analyzeTimeEfficiency().matchCount());
+
+        assertEquals(HttpStatus.OK, constraintController.toggleConstraint(SETTINGS_ID,
+                new ConstraintController.ToggleRequest(false)).getStatusCode());
+
+        // A zero weight leaves the constraint out of the analysis
+        assertNull(analyzeTimeEfficiency());
+        constraintController.toggleConstraint(SETTINGS_ID, new ConstraintController.ToggleRequest(true));
+        assertEquals(HardSoftScore.ofSoft(2), analyzeTimeEfficiency().score());
+    }
+
+    @Test
+    void keepsWeightsTheCallerAlreadySet() {
+        constraintController.updateConstraintWeight(SETTINGS_ID, 3);
+        TimeFoldTimetable problem = problem();
+        problem.setConstraintWeightOverrides(ConstraintWeightOverrides.none());
+
+        assertSame(problem, solverService.applyConstraintWeights(problem));
+
+        assertEquals(HardSoftScore.ofSoft(2),
+                solverService.getSolutionManager().analyze(problem).getConstraintAnalysis(TIME_EFFICIENCY).score());
+    }
+
+    private void awaitNoActiveJobs() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (solverService.getSolverStatus("job") != SolverStatus.NOT_SOLVING) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+}
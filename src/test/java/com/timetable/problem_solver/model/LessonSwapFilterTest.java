@@ -0,0 +1,122 @@
+package com.timetable.problem_solver.model;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+
+import ai.timefold.solver.core.impl.heuristic.selector.move.generic.SwapMove;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Swaps kept by the swap filters and the nearby distance that ranks them.
+ */
+class LessonSwapFilterTest {
+
+    private final SchoolTiming timing = TimetableFixtures.timing(1);
+    // Indexes 0-2 on Monday, 3-5 on Tuesday
+    private final List<TimeFoldTimeslot> timeslots = TimetableFixtures.timeslots(timing, 0, 1,
+            TimetableFixtures.WEEKDAYS, LocalTime.of(8, 0), 3, 0);
+    private final Subject subject = TimetableFixtures.subject(1, false, DifficultyLevel.MEDIUM);
+    private final Staff teacher = TimetableFixtures.teacher(1);
+    private final Section section = TimetableFixtures.section(1, timing);
+
+    private final RelatedLessonSwapFilter relatedFilter = new RelatedLessonSwapFilter();
+    private final DistinctLessonSwapFilter distinctFilter = new DistinctLessonSwapFilter();
+    private final LessonNearbyDistanceMeter distanceMeter = new LessonNearbyDistanceMeter();
+
+    private TimeFoldLesson lesson(int id, Staff teacher, Section section, int timeslotIndex) {
+        return TimetableFixtures.lesson(id, subject, teacher, section, timeslots.get(timeslotIndex));
+    }
+
+    private static SwapMove<TimeFoldTimetable> swap(TimeFoldLesson left, TimeFoldLesson right) {
+        // The filters only look at the swapped lessons
+        return new SwapMove<>(List.of(), left, right);
+    }
+
+    @Test
+    void relatedFilterAcceptsLessonsSharingATeacherASectionOrADay() {
+        TimeFoldLesson monday = lesson(1, teacher, section, 0);
+
+        assertTrue(relatedFilter.accept(null, swap(monday,
+                lesson(2, teacher, TimetableFixtures.section(2, timing), 3))));
+        assertTrue(relatedFilter.accept(null, swap(monday,
+                lesson(3, TimetableFixtures.teacher(2), section, 3))));
+        assertTrue(relatedFilter.accept(null, swap(monday,
+                lesson(4, TimetableFixtures.teacher(2), TimetableFixtures.section(2, timing), 2))));
+    }
+
+    @Test
+    void relatedFilterRejectsUnrelatedLessonsOnDifferentDays() {
+        TimeFoldLesson monday = lesson(1, teacher, section, 0);
+        TimeFoldLesson tuesday = lesson(2, TimetableFixtures.teacher(2), TimetableFixtures.section(2, timing), 3);
+
+        assertFalse(relatedFilter.accept(null, swap(monday, tuesday)));
+        // An unassigned lesson is on no day
+        TimeFoldLesson unassigned = TimetableFixtures.lesson(3, subject, TimetableFixtures.teacher(2),
+                TimetableFixtures.section(2, timing), null);
+        assertFalse(relatedFilter.accept(null, swap(monday, unassigned)));
+    }
+
+    @Test
+    void relatedFilterDoesNotRelateLessonsThroughAMissingTeacherOrSection() {
+        TimeFoldLesson noTeacher = lesson(1, null, section, 0);
+        TimeFoldLesson otherNoTeacher = lesson(2, null, TimetableFixtures.section(2, timing), 3);
+        TimeFoldLesson noSection = lesson(3, teacher, null, 0);
+        TimeFoldLesson otherNoSection = lesson(4, TimetableFixtures.teacher(2), null, 3);
+
+        assertFalse(relatedFilter.accept(null, swap(noTeacher, otherNoTeacher)));
+        assertFalse(relatedFilter.accept(null, swap(noSection, otherNoSection)));
+        // The shared day still relates them
+        assertTrue(relatedFilter.accept(null, swap(noTeacher, noSection)));
+    }
+
+    @Test
+    void filtersRejectInterchangeableLessons() {
+        TimeFoldLesson first = lesson(1, teacher, section, 0);
+        TimeFoldLesson second = lesson(2, teacher, section, 1);
+        TimeFoldLesson other = lesson(3, teacher, TimetableFixtures.section(2, timing), 2);
+        TimetableFixtures.timetable(timeslots, List.of(first, second, other)).groupInterchangeableLessons();
+
+        assertFalse(distinctFilter.accept(null, swap(first, second)));
+        assertFalse(relatedFilter.accept(null, swap(first, second)));
+        assertTrue(distinctFilter.accept(null, swap(first, other)));
+        assertTrue(relatedFilter.accept(null, swap(first, other)));
+    }
+
+    @Test
+    void distinctFilterAcceptsUngroupedLessons() {
+        // Lessons without a teacher are never grouped, even when they match otherwise
+        TimeFoldLesson first = lesson(1, null, section, 0);
+        TimeFoldLesson second = lesson(2, null, section, 1);
+        TimetableFixtures.timetable(timeslots, List.of(first, second)).groupInterchangeableLessons();
+
+        assertTrue(distinctFilter.accept(null, swap(first, second)));
+        assertTrue(relatedFilter.accept(null, swap(first, second)));
+    }
+
+    @Test
+    void distanceCountsTheTeacherAndSectionNotShared() {
+        TimeFoldLesson origin = lesson(1, teacher, section, 0);
+
+        assertEquals(0.0, distanceMeter.getNearbyDistance(origin, lesson(2, teacher, section, 3)));
+        assertEquals(1.0, distanceMeter.getNearbyDistance(origin,
+                lesson(3, teacher, TimetableFixtures.section(2, timing), 3)));
+        assertEquals(1.0, distanceMeter.getNearbyDistance(origin, lesson(4, TimetableFixtures.teacher(2), section, 3)));
+        assertEquals(2.0, distanceMeter.getNearbyDistance(origin,
+                lesson(5, TimetableFixtures.teacher(2), TimetableFixtures.section(2, timing), 0)));
+    }
+
+    @Test
+    void missingTeacherOrSectionIsNeverShared() {
+        TimeFoldLesson noTeacher = lesson(1, null, section, 0);
+        TimeFoldLesson noSection = lesson(2, teacher, null, 0);
+
+        assertEquals(1.0, distanceMeter.getNearbyDistance(noTeacher, lesson(3, null, section, 1)));
+        assertEquals(1.0, distanceMeter.getNearbyDistance(noSection, lesson(4, teacher, null, 1)));
+        assertEquals(2.0, distanceMeter.getNearbyDistance(lesson(5, null, null, 0), lesson(6, null, null, 1)));
+    }
+}
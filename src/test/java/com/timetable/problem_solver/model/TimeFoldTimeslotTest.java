@@ -0,0 +1,88 @@
+package com.timetable.problem_solver.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.timetable.problem_solver.TimetableFixtures;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Timeslots posted as JSON only carry their day and times; the indexes the constraints
+ * compare are derived again on the server.
+ */
+class TimeFoldTimeslotTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SchoolTiming morning = TimetableFixtures.timing(1);
+    private final SchoolTiming afternoon = TimetableFixtures.timing(2);
+
+    private <T> T roundTrip(Object value, TypeReference<T> type) throws JsonProcessingException {
+        return objectMapper.readValue(objectMapper.writeValueAsString(value), type);
+    }
+
+    @Test
+    void derivesTheDayIndexFromTheDayOfWeek() throws JsonProcessingException {
+        TimeFoldTimeslot timeslot = new TimeFoldTimeslot(1, DayOfWeek.WEDNESDAY, LocalTime.of(8, 0),
+                LocalTime.of(8, 40), morning);
+        assertFalse(objectMapper.writeValueAsString(timeslot).contains("dayIndex"));
+
+        TimeFoldTimeslot posted = roundTrip(timeslot, new TypeReference<>() {
+        });
+
+        assertEquals(DayOfWeek.WEDNESDAY, posted.getDayOfWeek());
+        assertEquals(DayOfWeek.WEDNESDAY.ordinal(), posted.getDayIndex());
+        assertEquals(timeslot, posted);
+    }
+
+    @Test
+    void indexesPostedTimeslotsLikePreparedOnes() throws JsonProcessingException {
+        List<TimeFoldTimeslot> prepared = new ArrayList<>(TimetableFixtures.timeslots(morning, 0, 1,
+                TimetableFixtures.WEEKDAYS, LocalTime.of(7, 30), 6, 3));
+        prepared.addAll(TimetableFixtures.timeslots(afternoon, 1, prepared.size() + 1, TimetableFixtures.WEEKDAYS,
+                LocalTime.of(13, 0), 3, 0));
+        List<TimeFoldTimeslot> posted = roundTrip(prepared, new TypeReference<>() {
+        });
+        posted.forEach(timeslot -> {
+            timeslot.setShiftIndex(0);
+            timeslot.setPeriodIndex(0);
+            timeslot.setSequenceIndex(0);
+        });
+
+        new TimeFoldTimetable(posted, List.of(), null).indexTimeslots();
+
+        for (int i = 0; i < prepared.size(); i++) {
+            TimeFoldTimeslot expected = prepared.get(i);
+            TimeFoldTimeslot actual = posted.get(i);
+            assertEquals(expected.getShiftIndex(), actual.getShiftIndex(), actual.toString());
+            assertEquals(expected.getDayIndex(), actual.getDayIndex(), actual.toString());
+            assertEquals(expected.getPeriodIndex(), actual.getPeriodIndex(), actual.toString());
+            assertEquals(expected.getSequenceIndex(), actual.getSequenceIndex(), actual.toString());
+        }
+    }
+
+    @Test
+    void numbersPeriodsByStartTimeWhateverTheListOrder() {
+        TimeFoldTimeslot second = new TimeFoldTimeslot(1, DayOfWeek.MONDAY, LocalTime.of(8, 45),
+                LocalTime.of(9, 25), morning);
+        TimeFoldTimeslot afterLunch = new TimeFoldTimeslot(2, DayOfWeek.MONDAY, LocalTime.of(10, 30),
+                LocalTime.of(11, 10), morning);
+        TimeFoldTimeslot first = new TimeFoldTimeslot(3, DayOfWeek.MONDAY, LocalTime.of(8, 0),
+                LocalTime.of(8, 40), morning);
+
+        new TimeFoldTimetable(new ArrayList<>(List.of(second, afterLunch, first)), List.of(), null).indexTimeslots();
+
+        assertEquals(List.of(0, 1, 2), List.of(first.getPeriodIndex(), second.getPeriodIndex(),
+                afterLunch.getPeriodIndex()));
+        // The 65 minute break before the last period skips a sequence index
+        assertEquals(List.of(0, 1, 3), List.of(first.getSequenceIndex(), second.getSequenceIndex(),
+                afterLunch.getSequenceIndex()));
+    }
+}
@@ -0,0 +1,120 @@
+package com.timetable.problem_solver.model;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeFoldTimetableTest {
+
+    private final SchoolTiming morning = TimetableFixtures.timing(1);
+    private final SchoolTiming afternoon = TimetableFixtures.timing(2);
+    private final Subject subject = TimetableFixtures.subject(1, false, DifficultyLevel.MEDIUM);
+    private final Staff teacher = TimetableFixtures.teacher(1);
+
+    private TimeFoldTimetable timetable(List<TimeFoldLesson> lessons) {
+        List<TimeFoldTimeslot> timeslots = new ArrayList<>(TimetableFixtures.timeslots(morning, 0, 1,
+                TimetableFixtures.WEEKDAYS, LocalTime.of(8, 0), 3, 0));
+        timeslots.addAll(TimetableFixtures.timeslots(afternoon, 1, timeslots.size() + 1, TimetableFixtures.WEEKDAYS,
+                LocalTime.of(13, 0), 3, 0));
+        return TimetableFixtures.timetable(timeslots, lessons);
+    }
+
+    @Test
+    void groupsLessonsWithTheSameSubjectTeacherSectionAndRange() {
+        Section section = TimetableFixtures.section(1, morning);
+        TimeFoldLesson first = TimetableFixtures.lesson(1, subject, teacher, section, null);
+        TimeFoldLesson second = TimetableFixtures.lesson(2, subject, teacher, section, null);
+        TimeFoldLesson otherTeacher = TimetableFixtures.lesson(3, subject, TimetableFixtures.teacher(2), section, null);
+        TimeFoldTimetable timetable = timetable(List.of(first, second, otherTeacher));
+
+        assertEquals(1, timetable.groupInterchangeableLessons());
+        assertNotEquals(0, first.getInterchangeableGroup());
+        assertEquals(first.getInterchangeableGroup(), second.getInterchangeableGroup());
+        assertEquals(0, otherTeacher.getInterchangeableGroup());
+    }
+
+    @Test
+    void doesNotGroupLessonsWithADifferentRange() {
+        Section section = TimetableFixtures.section(1, morning);
+        TimeFoldLesson morningLesson = TimetableFixtures.lesson(1, subject, teacher, section, null);
+        TimeFoldLesson afternoonLesson = TimetableFixtures.lesson(2, subject, teacher, section, null);
+        TimeFoldTimetable timetable = timetable(List.of(morningLesson, afternoonLesson));
+        // Same section, but one lesson is limited to the afternoon shift
+        List<TimeFoldTimeslot> afternoonRange = timetable.getTimeslots().stream()
+                .filter(timeslot -> timeslot.getTiming() == afternoon)
+                .toList();
+        afternoonLesson.setTimeslotRange(afternoonRange);
+
+        assertEquals(0, timetable.groupInterchangeableLessons());
+        assertEquals(0, morningLesson.getInterchangeableGroup());
+        assertEquals(0, afternoonLesson.getInterchangeableGroup());
+    }
+
+    @Test
+    void doesNotGroupLessonsWithoutATeacher() {
+        Section section = TimetableFixtures.section(1, morning);
+        TimeFoldLesson first = TimetableFixtures.lesson(1, subject, null, section, null);
+        TimeFoldLesson second = TimetableFixtures.lesson(2, subject, null, section, null);
+        TimeFoldTimetable timetable = timetable(List.of(first, second));
+
+        assertEquals(0, timetable.groupInterchangeableLessons());
+        assertEquals(0, first.getInterchangeableGroup());
+        assertEquals(0, second.getInterchangeableGroup());
+    }
+
+    @Test
+    void restrictsLessonsToTheTimeslotsOfTheirSectionsShift() {
+        TimeFoldLesson morningLesson = TimetableFixtures.lesson(1, subject, teacher,
+                TimetableFixtures.section(1, morning), null);
+        TimeFoldLesson afternoonLesson = TimetableFixtures.lesson(2, subject, teacher,
+                TimetableFixtures.section(2, afternoon), null);
+        TimeFoldTimetable timetable = timetable(List.of(morningLesson, afternoonLesson));
+
+        assertEquals(15, morningLesson.getTimeslotRange().size());
+        assertTrue(morningLesson.getTimeslotRange().stream().allMatch(timeslot -> timeslot.getTiming() == morning));
+        assertEquals(15, afternoonLesson.getTimeslotRange().size());
+        assertTrue(afternoonLesson.getTimeslotRange().stream().allMatch(timeslot -> timeslot.getTiming() == afternoon));
+        // Sections of one shift share one range
+        TimeFoldLesson otherMorningLesson = TimetableFixtures.lesson(3, subject, teacher,
+                TimetableFixtures.section(3, morning), null);
+        new TimeFoldTimetable(timetable.getTimeslots(), List.of(morningLesson, otherMorningLesson), null)
+                .restrictTimeslotRanges();
+        assertEquals(morningLesson.getTimeslotRange(), otherMorningLesson.getTimeslotRange());
+    }
+
+    @Test
+    void fallsBackToEveryTimeslotWithoutAShiftOfItsOwn() {
+        SchoolTiming evening = TimetableFixtures.timing(3);
+        TimeFoldLesson eveningLesson = TimetableFixtures.lesson(1, subject, teacher,
+                TimetableFixtures.section(1, evening), null);
+        TimeFoldLesson noTiming = TimetableFixtures.lesson(2, subject, teacher,
+                TimetableFixtures.section(2, null), null);
+        TimeFoldLesson noSection = TimetableFixtures.lesson(3, subject, teacher, null, null);
+
+        TimeFoldTimetable timetable = timetable(List.of(eveningLesson, noTiming, noSection));
+
+        // The evening shift has no timeslots
+        assertSame(timetable.getTimeslots(), eveningLesson.getTimeslotRange());
+        assertSame(timetable.getTimeslots(), noTiming.getTimeslotRange());
+        assertSame(timetable.getTimeslots(), noSection.getTimeslotRange());
+    }
+
+    @Test
+    void keepsARangeSetBefore() {
+        Section section = TimetableFixtures.section(1, morning);
+        TimeFoldLesson lesson = TimetableFixtures.lesson(1, subject, teacher, section, null);
+        TimeFoldTimetable timetable = timetable(List.of(lesson));
+        List<TimeFoldTimeslot> firstDay = timetable.getTimeslots().subList(0, 3);
+        lesson.setTimeslotRange(firstDay);
+
+        timetable.restrictTimeslotRanges();
+
+        assertSame(firstDay, lesson.getTimeslotRange());
+    }
+}
@@ -0,0 +1,192 @@
+package com.timetable.problem_solver.moves;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Staff;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.impl.score.director.InnerScoreDirector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConflictDirectedMoveIteratorFactoryTest {
+
+    private static final int SEEDS = 5;
+    private static final int RANDOM_MOVES = 300;
+
+    @Test
+    void kempeChainSwapsNeverCreateANewClashBetweenTheirTimeslots() {
+        int swaps = 0;
+        for (long seed = 0; seed < SEEDS; seed++) {
+            TimeFoldTimetable timetable = conflictingTimetable(seed);
+            try (InnerScoreDirector<TimeFoldTimetable, HardSoftScore> scoreDirector =
+                         TimetableFixtures.incrementalScoreDirector(timetable)) {
+                ConflictDirectedMoveIteratorFactory factory = new ConflictDirectedMoveIteratorFactory();
+                List<LessonReassignmentMove> moves = new ArrayList<>();
+                factory.createOriginalMoveIterator(scoreDirector).forEachRemaining(moves::add);
+                Iterator<LessonReassignmentMove> random = factory.createRandomMoveIterator(scoreDirector, new Random(seed));
+                for (int i = 0; i < RANDOM_MOVES && random.hasNext(); i++) {
+                    moves.add(random.next());
+                }
+                for (LessonReassignmentMove move : moves) {
+                    if (move.getSimpleMoveTypeDescription().equals("KempeChainSwap")) {
+                        assertNoNewClash(timetable, move, seed);
+                        swaps++;
+                    }
+                }
+            }
+        }
+        assertTrue(swaps > 0, "No Kempe chain swap generated");
+    }
+
+    private static void assertNoNewClash(TimeFoldTimetable timetable, LessonReassignmentMove move, long seed) {
+        // The chain may sit in one of the two timeslots only, when nothing in the other one is connected to it
+        Set<TimeFoldTimeslot> swapped = new HashSet<>(move.getToTimeslots());
+        Map<TimeFoldLesson, TimeFoldTimeslot> after = new IdentityHashMap<>();
+        for (TimeFoldLesson lesson : timetable.getLessons()) {
+            after.put(lesson, lesson.getTimeslot());
+        }
+        for (int i = 0; i < move.getLessons().size(); i++) {
+            TimeFoldLesson lesson = move.getLessons().get(i);
+            assertNotSame(lesson.getTimeslot(), move.getToTimeslots().get(i), "Seed " + seed + " " + move);
+            swapped.add(lesson.getTimeslot());
+            after.put(lesson, move.getToTimeslots().get(i));
+        }
+        assertEquals(2, swapped.size(), "Seed " + seed + " " + move);
+        Set<List<Integer>> clashesBefore = clashes(timetable.getLessons(), TimeFoldLesson::getTimeslot, swapped);
+        Set<List<Integer>> clashesAfter = clashes(timetable.getLessons(), after::get, swapped);
+        clashesAfter.removeAll(clashesBefore);
+        assertTrue(clashesAfter.isEmpty(), "Seed " + seed + " " + move + " creates clashes " + clashesAfter);
+    }
+
+    /**
+     * Pairs of lesson ids sharing a teacher or section and one of the given timeslots.
+     */
+    private static Set<List<Integer>> clashes(List<TimeFoldLesson> lessons,
+                                              Function<TimeFoldLesson, TimeFoldTimeslot> timeslotOf,
+                                              Set<TimeFoldTimeslot> timeslots) {
+        Set<List<Integer>> clashes = new HashSet<>();
+        for (TimeFoldLesson left : lessons) {
+            for (TimeFoldLesson right : lessons) {
+                if (left.getId() < right.getId() && timeslots.contains(timeslotOf.apply(left))
+                        && timeslotOf.apply(left) == timeslotOf.apply(right)
+                        && (sameOwner(left.getTeacher(), right.getTeacher())
+                        || sameOwner(left.getSection(), right.getSection()))) {
+                    clashes.add(List.of(left.getId(), right.getId()));
+                }
+            }
+        }
+        return clashes;
+    }
+
+    // Lessons without a teacher or section clash with each other, like in the conflict constraints
+    private static boolean sameOwner(Object left, Object right) {
+        return Objects.equals(left, right);
+    }
+
+    @Test
+    void randomRelocationsOnlyTargetFreeTimeslotsOrStayPut() {
+        int relocations = 0;
+        for (long seed = 0; seed < SEEDS; seed++) {
+            TimeFoldTimetable timetable = conflictingTimetable(seed);
+            try (InnerScoreDirector<TimeFoldTimetable, HardSoftScore> scoreDirector =
+                         TimetableFixtures.incrementalScoreDirector(timetable)) {
+                Iterator<LessonReassignmentMove> random = new ConflictDirectedMoveIteratorFactory()
+                        .createRandomMoveIterator(scoreDirector, new Random(seed));
+                for (int i = 0; i < RANDOM_MOVES && random.hasNext(); i++) {
+                    LessonReassignmentMove move = random.next();
+                    if (!move.getSimpleMoveTypeDescription().equals("ConflictRelocation")) {
+                        continue;
+                    }
+                    TimeFoldLesson lesson = move.getLessons().get(0);
+                    TimeFoldTimeslot target = move.getToTimeslots().get(0);
+                    if (target == lesson.getTimeslot()) {
+                        assertFalse(move.isMoveDoable(scoreDirector), "Seed " + seed + " " + move);
+                    } else {
+                        assertTrue(timetable.getLessons().stream().noneMatch(other -> other.getTimeslot() == target
+                                        && (sameOwner(lesson.getTeacher(), other.getTeacher())
+                                        || sameOwner(lesson.getSection(), other.getSection()))),
+                                "Seed " + seed + " " + move + " moves into a clash");
+                        relocations++;
+                    }
+                }
+            }
+        }
+        assertTrue(relocations > 0, "No relocation generated");
+    }
+
+    @Test
+    void lessonsWithoutATeacherConflictWithEachOther() {
+        SchoolTiming timing = TimetableFixtures.timing(1);
+        List<TimeFoldTimeslot> timeslots = TimetableFixtures.timeslots(timing, 0, 1, TimetableFixtures.WEEKDAYS,
+                LocalTime.of(8, 0), 1, 0);
+        Subject subject = TimetableFixtures.subject(1, false, DifficultyLevel.MEDIUM);
+        List<TimeFoldLesson> lessons = List.of(
+                TimetableFixtures.lesson(1, subject, null, TimetableFixtures.section(1, timing), null),
+                TimetableFixtures.lesson(2, subject, null, TimetableFixtures.section(2, timing), null));
+        TimeFoldTimetable timetable = TimetableFixtures.timetable(timeslots, lessons);
+        lessons.forEach(lesson -> lesson.setTimeslot(timeslots.get(0)));
+        try (InnerScoreDirector<TimeFoldTimetable, HardSoftScore> scoreDirector =
+                     TimetableFixtures.incrementalScoreDirector(timetable)) {
+            ConflictDirectedMoveIteratorFactory factory = new ConflictDirectedMoveIteratorFactory();
+            List<LessonReassignmentMove> moves = new ArrayList<>();
+            factory.createOriginalMoveIterator(scoreDirector).forEachRemaining(moves::add);
+
+            // Each lesson can go to any of the other four days
+            assertEquals(8, factory.getSize(scoreDirector));
+            assertEquals(8, moves.size());
+            assertTrue(moves.stream().allMatch(move -> move.getSimpleMoveTypeDescription().equals("ConflictRelocation")));
+        }
+    }
+
+    /**
+     * Two shifts with more lessons per section and teacher than fit without conflicts, each lesson
+     * placed at random in its own shift; one lesson in eleven has no teacher.
+     */
+    private static TimeFoldTimetable conflictingTimetable(long seed) {
+        Random random = new Random(seed);
+        SchoolTiming morning = TimetableFixtures.timing(1);
+        SchoolTiming afternoon = TimetableFixtures.timing(2);
+        List<TimeFoldTimeslot> timeslots = new ArrayList<>(TimetableFixtures.timeslots(morning, 0, 1,
+                TimetableFixtures.WEEKDAYS, LocalTime.of(8, 0), 4, 0));
+        timeslots.addAll(TimetableFixtures.timeslots(afternoon, 1, timeslots.size() + 1, TimetableFixtures.WEEKDAYS,
+                LocalTime.of(13, 0), 3, 0));
+        List<Subject> subjects = List.of(TimetableFixtures.subject(1, false, DifficultyLevel.MEDIUM),
+                TimetableFixtures.subject(2, true, DifficultyLevel.HIGH));
+        List<Staff> teachers = List.of(TimetableFixtures.teacher(1), TimetableFixtures.teacher(2),
+                TimetableFixtures.teacher(3));
+        List<Section> sections = List.of(TimetableFixtures.section(1, morning), TimetableFixtures.section(2, morning),
+                TimetableFixtures.section(3, afternoon));
+        List<TimeFoldLesson> lessons = new ArrayList<>();
+        for (int id = 0; id < 48; id++) {
+            Staff teacher = id % 11 == 0 ? null : teachers.get(random.nextInt(teachers.size()));
+            lessons.add(TimetableFixtures.lesson(id, subjects.get(random.nextInt(subjects.size())), teacher,
+                    sections.get(random.nextInt(sections.size())), null));
+        }
+        TimeFoldTimetable timetable = TimetableFixtures.timetable(timeslots, lessons);
+        for (TimeFoldLesson lesson : lessons) {
+            lesson.setTimeslot(lesson.getTimeslotRange().get(random.nextInt(lesson.getTimeslotRange().size())));
+        }
+        return timetable;
+    }
+}
@@ -0,0 +1,98 @@
+package com.timetable.problem_solver.moves;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.impl.score.director.InnerScoreDirector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LessonReassignmentMoveTest {
+
+    private TimeFoldTimetable timetable;
+    private List<TimeFoldTimeslot> morningTimeslots;
+    private List<TimeFoldTimeslot> afternoonTimeslots;
+    private TimeFoldLesson morningLesson;
+    private TimeFoldLesson afternoonLesson;
+
+    @BeforeEach
+    void setUp() {
+        SchoolTiming morning = TimetableFixtures.timing(1);
+        SchoolTiming afternoon = TimetableFixtures.timing(2);
+        morningTimeslots = TimetableFixtures.timeslots(morning, 0, 1, TimetableFixtures.WEEKDAYS,
+                LocalTime.of(8, 0), 3, 0);
+        afternoonTimeslots = TimetableFixtures.timeslots(afternoon, 1, morningTimeslots.size() + 1,
+                TimetableFixtures.WEEKDAYS, LocalTime.of(13, 0), 3, 0);
+        List<TimeFoldTimeslot> timeslots = new ArrayList<>(morningTimeslots);
+        timeslots.addAll(afternoonTimeslots);
+        Subject subject = TimetableFixtures.subject(1, false, DifficultyLevel.MEDIUM);
+        Section morningSection = TimetableFixtures.section(1, morning);
+        Section afternoonSection = TimetableFixtures.section(2, afternoon);
+        morningLesson = TimetableFixtures.lesson(1, subject, TimetableFixtures.teacher(1), morningSection,
+                morningTimeslots.get(0));
+        afternoonLesson = TimetableFixtures.lesson(2, subject, TimetableFixtures.teacher(2), afternoonSection,
+                afternoonTimeslots.get(0));
+        timetable = TimetableFixtures.timetable(timeslots, List.of(morningLesson, afternoonLesson));
+    }
+
+    private static LessonReassignmentMove move(List<TimeFoldLesson> lessons, List<TimeFoldTimeslot> toTimeslots) {
+        return new LessonReassignmentMove("Test", lessons, toTimeslots);
+    }
+
+    @Test
+    void isNotDoableWithATargetOutsideTheLessonsRange() {
+        try (InnerScoreDirector<TimeFoldTimetable, HardSoftScore> scoreDirector =
+                     TimetableFixtures.incrementalScoreDirector(timetable)) {
+            assertFalse(move(List.of(morningLesson), List.of(afternoonTimeslots.get(1))).isMoveDoable(scoreDirector));
+            // One target out of range makes the whole move undoable
+            assertFalse(move(List.of(morningLesson, afternoonLesson),
+                    List.of(morningTimeslots.get(1), morningTimeslots.get(2))).isMoveDoable(scoreDirector));
+            assertTrue(move(List.of(morningLesson, afternoonLesson),
+                    List.of(morningTimeslots.get(1), afternoonTimeslots.get(2))).isMoveDoable(scoreDirector));
+        }
+    }
+
+    @Test
+    void isNotDoableWhenNoTimeslotChanges() {
+        try (InnerScoreDirector<TimeFoldTimetable, HardSoftScore> scoreDirector =
+                     TimetableFixtures.incrementalScoreDirector(timetable)) {
+            assertFalse(move(List.of(morningLesson, afternoonLesson),
+                    List.of(morningTimeslots.get(0), afternoonTimeslots.get(0))).isMoveDoable(scoreDirector));
+        }
+    }
+
+    @Test
+    void rebaseMapsToTheWorkingObjects() {
+        LessonReassignmentMove move = move(List.of(morningLesson, afternoonLesson),
+                List.of(morningTimeslots.get(1), afternoonTimeslots.get(2)));
+        try (InnerScoreDirector<TimeFoldTimetable, HardSoftScore> scoreDirector =
+                     TimetableFixtures.incrementalScoreDirector(timetable)) {
+            TimeFoldTimetable workingClone = scoreDirector.cloneSolution(timetable);
+            scoreDirector.setWorkingSolution(workingClone);
+            LessonReassignmentMove rebased = move.rebase(scoreDirector);
+
+            assertEquals("Test", rebased.getSimpleMoveTypeDescription());
+            for (int i = 0; i < move.getLessons().size(); i++) {
+                TimeFoldLesson lesson = rebased.getLessons().get(i);
+                assertNotSame(move.getLessons().get(i), lesson);
+                assertSame(workingClone.getLessons().get(i), lesson);
+                assertSame(scoreDirector.lookUpWorkingObject(move.getToTimeslots().get(i)), rebased.getToTimeslots().get(i));
+                assertEquals(move.getToTimeslots().get(i).getId(), rebased.getToTimeslots().get(i).getId());
+            }
+        }
+    }
+}
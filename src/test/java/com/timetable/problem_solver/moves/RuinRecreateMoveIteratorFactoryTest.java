@@ -0,0 +1,117 @@
+package com.timetable.problem_solver.moves;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Staff;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.impl.score.director.InnerScoreDirector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuinRecreateMoveIteratorFactoryTest {
+
+    private static final int SEEDS = 5;
+    private static final int RANDOM_MOVES = 200;
+    private static final int MAX_SECTION_DAYS = 3;
+
+    @Test
+    void recreatesLessonsOnlyInTheTimeslotsTheirSectionDayFreed() {
+        Map<String, Integer> movesByType = new HashMap<>();
+        for (long seed = 0; seed < SEEDS; seed++) {
+            TimeFoldTimetable timetable = fullTimetable(seed);
+            try (InnerScoreDirector<TimeFoldTimetable, HardSoftScore> scoreDirector =
+                         TimetableFixtures.incrementalScoreDirector(timetable)) {
+                RuinRecreateMoveIteratorFactory factory = new RuinRecreateMoveIteratorFactory();
+                factory.setMaxSectionDays(MAX_SECTION_DAYS);
+                List<LessonReassignmentMove> moves = new ArrayList<>();
+                factory.createOriginalMoveIterator(scoreDirector).forEachRemaining(moves::add);
+                Iterator<LessonReassignmentMove> random = factory.createRandomMoveIterator(scoreDirector, new Random(seed));
+                for (int i = 0; i < RANDOM_MOVES; i++) {
+                    moves.add(random.next());
+                }
+                for (LessonReassignmentMove move : moves) {
+                    assertRecreatedWithinSectionDays(move, seed);
+                    movesByType.merge(move.getSimpleMoveTypeDescription(), 1, Integer::sum);
+                }
+            }
+        }
+        assertTrue(movesByType.containsKey("SectionDayRuinRecreate"), movesByType.toString());
+        assertTrue(movesByType.containsKey("TeacherDayRuinRecreate"), movesByType.toString());
+    }
+
+    @Test
+    void generatingMovesLeavesTheSolutionUnchanged() {
+        TimeFoldTimetable timetable = fullTimetable(0);
+        List<TimeFoldTimeslot> before = timetable.getLessons().stream().map(TimeFoldLesson::getTimeslot).toList();
+        try (InnerScoreDirector<TimeFoldTimetable, HardSoftScore> scoreDirector =
+                     TimetableFixtures.incrementalScoreDirector(timetable)) {
+            Iterator<LessonReassignmentMove> random = new RuinRecreateMoveIteratorFactory()
+                    .createRandomMoveIterator(scoreDirector, new Random(0));
+            for (int i = 0; i < RANDOM_MOVES; i++) {
+                random.next();
+            }
+        }
+        assertEquals(before, timetable.getLessons().stream().map(TimeFoldLesson::getTimeslot).toList());
+    }
+
+    /**
+     * Per section and day, the ruined lessons take exactly the timeslots they held, in any order.
+     */
+    private static void assertRecreatedWithinSectionDays(LessonReassignmentMove move, long seed) {
+        Map<List<Object>, List<Integer>> freed = new HashMap<>();
+        Map<List<Object>, List<Integer>> taken = new HashMap<>();
+        for (int i = 0; i < move.getLessons().size(); i++) {
+            TimeFoldLesson lesson = move.getLessons().get(i);
+            List<Object> sectionDay = List.of(lesson.getSection().getId(), lesson.getTimeslot().getDayOfWeek());
+            freed.computeIfAbsent(sectionDay, key -> new ArrayList<>()).add(lesson.getTimeslot().getId());
+            taken.computeIfAbsent(sectionDay, key -> new ArrayList<>()).add(move.getToTimeslots().get(i).getId());
+        }
+        assertTrue(freed.size() <= MAX_SECTION_DAYS, "Seed " + seed + " " + move);
+        freed.values().forEach(Collections::sort);
+        taken.values().forEach(Collections::sort);
+        assertEquals(freed, taken, "Seed " + seed + " " + move);
+    }
+
+    /**
+     * Every timeslot of every section filled without a section clash, by lessons of random teachers
+     * and subjects, so teachers clash and practical lessons need pairing.
+     */
+    private static TimeFoldTimetable fullTimetable(long seed) {
+        Random random = new Random(seed);
+        SchoolTiming timing = TimetableFixtures.timing(1);
+        List<TimeFoldTimeslot> timeslots = TimetableFixtures.timeslots(timing, 0, 1, TimetableFixtures.WEEKDAYS,
+                LocalTime.of(8, 0), 6, 4);
+        List<Subject> subjects = List.of(TimetableFixtures.subject(1, true, DifficultyLevel.HIGH),
+                TimetableFixtures.subject(2, false, DifficultyLevel.MEDIUM),
+                TimetableFixtures.subject(3, false, DifficultyLevel.LOW));
+        List<Staff> teachers = List.of(TimetableFixtures.teacher(1), TimetableFixtures.teacher(2),
+                TimetableFixtures.teacher(3), TimetableFixtures.teacher(4));
+        List<TimeFoldLesson> lessons = new ArrayList<>();
+        for (int sectionId = 1; sectionId <= 3; sectionId++) {
+            Section section = TimetableFixtures.section(sectionId, timing);
+            for (TimeFoldTimeslot timeslot : timeslots) {
+                lessons.add(TimetableFixtures.lesson(lessons.size(), subjects.get(random.nextInt(subjects.size())),
+                        teachers.get(random.nextInt(teachers.size())), section, timeslot));
+            }
+        }
+        return TimetableFixtures.timetable(timeslots, lessons);
+    }
+}
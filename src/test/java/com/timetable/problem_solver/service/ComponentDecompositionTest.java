@@ -0,0 +1,139 @@
+package com.timetable.problem_solver.service;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.constraints.TimeTableConstraintProvider;
+import com.timetable.problem_solver.model.ConstraintSettings;
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Staff;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lessons split into teacher-section components, packed per solver thread, and solved as a whole
+ * when a custom rule can relate lessons of different components.
+ */
+class ComponentDecompositionTest {
+
+    private static final SolveOptions FAST = new SolveOptions(null, false, false, null, SolveOptions.SolverProfile.FAST);
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final SchoolTiming timing = TimetableFixtures.timing(1);
+    private final Subject subject = TimetableFixtures.subject(1, false, DifficultyLevel.MEDIUM);
+    private final List<TimeFoldLesson> lessons = new ArrayList<>();
+
+    private TimeFoldLesson lesson(Staff teacher, Section section) {
+        TimeFoldLesson lesson = TimetableFixtures.lesson(lessons.size() + 1, subject, teacher, section, null);
+        lessons.add(lesson);
+        return lesson;
+    }
+
+    private static List<List<Integer>> idsOf(List<List<TimeFoldLesson>> groups) {
+        return groups.stream()
+                .map(group -> group.stream().map(TimeFoldLesson::getId).toList())
+                .toList();
+    }
+
+    @Test
+    void linksLessonsSharingATeacherOrASection() {
+        Section first = TimetableFixtures.section(1, timing);
+        Section second = TimetableFixtures.section(2, timing);
+        Section third = TimetableFixtures.section(3, timing);
+        lesson(TimetableFixtures.teacher(1), first);
+        lesson(TimetableFixtures.teacher(2), third);
+        // Teacher 1 links the second section to the first, which then links teacher 3 through the section
+        lesson(TimetableFixtures.teacher(1), second);
+        lesson(TimetableFixtures.teacher(3), first);
+        lesson(TimetableFixtures.teacher(2), third);
+
+        assertEquals(List.of(List.of(1, 3, 4), List.of(2, 5)), idsOf(ComponentDecomposition.components(lessons)));
+    }
+
+    @Test
+    void linksLessonsWithoutATeacherToEachOther() {
+        lesson(null, TimetableFixtures.section(1, timing));
+        lesson(TimetableFixtures.teacher(1), TimetableFixtures.section(2, timing));
+        lesson(null, TimetableFixtures.section(3, timing));
+        lesson(TimetableFixtures.teacher(2), TimetableFixtures.section(4, timing));
+
+        assertEquals(List.of(List.of(1, 3), List.of(2), List.of(4)), idsOf(ComponentDecomposition.components(lessons)));
+    }
+
+    @Test
+    void packsTheLargestComponentsFirstIntoTheSmallestBins() {
+        List<List<TimeFoldLesson>> components = new ArrayList<>();
+        for (int size : new int[] {1, 4, 2, 3, 2}) {
+            Section section = TimetableFixtures.section(components.size() + 1, timing);
+            List<TimeFoldLesson> component = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                component.add(lesson(TimetableFixtures.teacher(components.size() + 1), section));
+            }
+            components.add(component);
+        }
+
+        List<List<TimeFoldLesson>> bins = ComponentDecomposition.pack(components, 2);
+
+        // 4 and 3 open the bins, each 2 then goes to the smaller bin, 3 + 2 and 4 + 2, and 1 to 3 + 2
+        assertEquals(List.of(List.of(2, 3, 4, 5, 11, 12), List.of(8, 9, 10, 6, 7, 1)), idsOf(bins));
+        assertSame(components, ComponentDecomposition.pack(components, components.size()));
+    }
+
+    @Test
+    void solvesAsAWholeWhenACustomRuleGroupsAcrossTeachersAndSections() throws InterruptedException {
+        assertEquals(2, componentCountOf(new ConstraintSettings(1L, "perTeacherDay", 1, "Soft", true, null,
+                "group teacher, day count > 3")));
+        assertEquals(1, componentCountOf(new ConstraintSettings(1L, "perDay", 1, "Soft", true, null,
+                "group day count > 3")));
+        // A disabled rule relates no lessons
+        assertEquals(2, componentCountOf(new ConstraintSettings(1L, "perDay", 1, "Soft", false, null,
+                "group day count > 3")));
+    }
+
+    /**
+     * Components of a problem with two independent sections, as counted by a solver service
+     * whose only custom constraint is the given rule.
+     */
+    private static int componentCountOf(ConstraintSettings rule) throws InterruptedException {
+        SolverService solverService = new SolverService(new TimeTableConstraintProvider(),
+                TimetableFixtures.useConstraintSettings(rule), "1", Duration.ZERO);
+        try {
+            SchoolTiming timing = TimetableFixtures.timing(1);
+            Subject subject = TimetableFixtures.subject(1, false, DifficultyLevel.MEDIUM);
+            List<TimeFoldLesson> lessons = new ArrayList<>();
+            for (int id = 1; id <= 2; id++) {
+                Section section = TimetableFixtures.section(id, timing);
+                for (int i = 0; i < 4; i++) {
+                    lessons.add(TimetableFixtures.lesson(lessons.size() + 1, subject, TimetableFixtures.teacher(id),
+                            section, null));
+                }
+            }
+            TimeFoldTimetable problem = new TimeFoldTimetable(TimetableFixtures.timeslots(timing, 0, 1,
+                    TimetableFixtures.WEEKDAYS, LocalTime.of(8, 0), 4, 0), lessons, null);
+
+            solverService.solve("job", problem, FAST, solution -> {
+            });
+            int componentCount = solverService.getDecompositionStats("job").orElseThrow().componentCount();
+            solverService.terminateEarly("job");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (solverService.getActiveSolverJobCount() > 0) {
+                assertTrue(System.nanoTime() < deadline, "Timed out");
+                Thread.sleep(10);
+            }
+            return componentCount;
+        } finally {
+            solverService.cleanup();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.timetable.problem_solver.service;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Staff;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.SolutionManager;
+import ai.timefold.solver.core.api.solver.SolutionUpdatePolicy;
+import ai.timefold.solver.core.api.solver.SolverConfigOverride;
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.solver.core.api.solver.SolverManager;
+import ai.timefold.solver.core.api.solver.SolverStatus;
+import ai.timefold.solver.core.config.solver.termination.TerminationConfig;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Partitions solved on the incremental calculator, their merged timetables rescored with the constraint streams.
+ * Partitions split per shift and their repair run for the spent limits of the fast profile.
+ */
+class PartitionedSolveTest {
+
+    private static final Duration PARTITION_SPENT_LIMIT = Duration.ofMillis(300);
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final SchoolTiming morning = TimetableFixtures.timing(1);
+    private final SchoolTiming afternoon = TimetableFixtures.timing(2);
+    private final Subject subject = TimetableFixtures.subject(1, false, DifficultyLevel.MEDIUM);
+    private final List<TimeFoldTimetable> published = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<TimeFoldTimetable> finalSolution = new CompletableFuture<>();
+    private SolverManager<TimeFoldTimetable, String> solverManager;
+    private SolutionManager<TimeFoldTimetable, HardSoftScore> solutionManager;
+
+    @BeforeEach
+    void setUp() {
+        solutionManager = TimetableFixtures.constraintStreamsSolutionManager();
+        solverManager = SolverManager.create(SolverFactory.create(TimetableFixtures.incrementalSolverConfig()
+                .withTerminationSpentLimit(PARTITION_SPENT_LIMIT)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        solverManager.close();
+    }
+
+    private PartitionedSolve partitionedSolve(TimeFoldTimetable problem, List<List<TimeFoldLesson>> partitions,
+                                              boolean repair) {
+        return new PartitionedSolve("job", problem, partitions, repair, SolveOptions.SolverProfile.FAST,
+                solverManager, solutionManager, published::add, finalSolution::complete);
+    }
+
+    @Test
+    void mergesIndependentPartitionsWithTheSumOfTheirScores() throws Exception {
+        TimeFoldTimetable problem = timetable(List.of(morning, morning), 2);
+        List<List<TimeFoldLesson>> components = ComponentDecomposition.components(problem.getLessons());
+        assertEquals(2, components.size());
+
+        partitionedSolve(problem, components, false).start();
+        TimeFoldTimetable solution = finalSolution.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(problem.getLessons().stream().map(TimeFoldLesson::getId).toList(),
+                solution.getLessons().stream().map(TimeFoldLesson::getId).toList());
+        assertTrue(solution.getLessons().stream().allMatch(lesson -> lesson.getTimeslot() != null));
+        assertNotNull(solution.getScore());
+        HardSoftScore mergedScore = solution.getScore();
+        assertEquals(solutionManager.update(solution, SolutionUpdatePolicy.UPDATE_SCORE_ONLY), mergedScore);
+        // Best solutions are published once every partition has one, each covering all lessons
+        assertFalse(published.isEmpty());
+        published.forEach(merged -> assertEquals(problem.getLessons().size(), merged.getLessons().size()));
+    }
+
+    @Test
+    void repairsShiftPartitionsOnceMerged() throws Exception {
+        TimeFoldTimetable problem = timetable(List.of(morning, afternoon), 1);
+        List<List<TimeFoldLesson>> shifts = PartitionedSolve.splitByShift(problem.getLessons(), problem.getTimeslots());
+        assertEquals(2, shifts.size());
+        PartitionedSolve partitionedSolve = partitionedSolve(problem, shifts, true);
+
+        partitionedSolve.start();
+        TimeFoldTimetable solution = finalSolution.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(PartitionedSolve.Phase.DONE, partitionedSolve.getPhase());
+        assertEquals(SolverStatus.NOT_SOLVING, partitionedSolve.getSolverStatus());
+        // Merged partitions are published without a score, the repair solve's best solutions with one
+        assertTrue(published.stream().anyMatch(merged -> merged.getScore() == null));
+        assertNotNull(published.get(published.size() - 1).getScore());
+        assertEquals(problem.getLessons().size(), solution.getLessons().size());
+        HardSoftScore repairedScore = solution.getScore();
+        assertEquals(solutionManager.update(solution, SolutionUpdatePolicy.UPDATE_SCORE_ONLY), repairedScore);
+    }
+
+    @Test
+    void terminateEarlySkipsTheRepair() throws Exception {
+        TimeFoldTimetable problem = timetable(List.of(morning, afternoon), 1);
+        PartitionedSolve partitionedSolve = partitionedSolve(problem,
+                PartitionedSolve.splitByShift(problem.getLessons(), problem.getTimeslots()), true);
+
+        partitionedSolve.start();
+        // Partitions waiting for a solver thread finish too
+        partitionedSolve.terminateEarly();
+        TimeFoldTimetable solution = finalSolution.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(PartitionedSolve.Phase.DONE, partitionedSolve.getPhase());
+        assertEquals(SolverStatus.NOT_SOLVING, partitionedSolve.getSolverStatus());
+        assertTrue(published.stream().allMatch(merged -> merged.getScore() == null));
+        // Scored once merged, with the penalties spanning shifts
+        HardSoftScore mergedScore = solution.getScore();
+        assertNotNull(mergedScore);
+        assertEquals(solutionManager.update(solution, SolutionUpdatePolicy.UPDATE_SCORE_ONLY), mergedScore);
+    }
+
+    @Test
+    void partitionThatCannotBeSubmittedStopsTheOthers() throws InterruptedException {
+        TimeFoldTimetable problem = timetable(List.of(morning, morning), 2);
+        // Holds the solver thread and the id of the second partition
+        TimeFoldTimetable blocker = timetable(List.of(morning), 1);
+        solverManager.solveBuilder()
+                .withProblemId("job#1")
+                .withProblem(blocker)
+                .withConfigOverride(new SolverConfigOverride<TimeFoldTimetable>()
+                        .withTerminationConfig(new TerminationConfig().withSpentLimit(Duration.ofMinutes(1))))
+                .run();
+        PartitionedSolve partitionedSolve = partitionedSolve(problem,
+                ComponentDecomposition.components(problem.getLessons()), false);
+
+        assertThrows(IllegalStateException.class, partitionedSolve::start);
+
+        assertEquals(PartitionedSolve.Phase.DONE, partitionedSolve.getPhase());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (solverManager.getSolverStatus("job#0") != SolverStatus.NOT_SOLVING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(SolverStatus.NOT_SOLVING, solverManager.getSolverStatus("job#0"));
+        solverManager.terminateEarly("job#1");
+        assertFalse(finalSolution.isDone());
+    }
+
+    /**
+     * One section per timing, each with its own teacher unless {@code teacherCount} is 1, so sections are
+     * independent components or share a teacher. Every section has a lesson for most of its timeslots.
+     */
+    private TimeFoldTimetable timetable(List<SchoolTiming> sectionTimings, int teacherCount) {
+        List<TimeFoldTimeslot> timeslots = new ArrayList<>(TimetableFixtures.timeslots(morning, 0, 1,
+                TimetableFixtures.WEEKDAYS, LocalTime.of(8, 0), 4, 0));
+        timeslots.addAll(TimetableFixtures.timeslots(afternoon, 1, timeslots.size() + 1, TimetableFixtures.WEEKDAYS,
+                LocalTime.of(13, 0), 4, 0));
+        List<TimeFoldLesson> lessons = new ArrayList<>();
+        for (int i = 0; i < sectionTimings.size(); i++) {
+            Section section = TimetableFixtures.section(i + 1, sectionTimings.get(i));
+            Staff teacher = TimetableFixtures.teacher(i % teacherCount + 1);
+            for (int j = 0; j < 15; j++) {
+                lessons.add(TimetableFixtures.lesson(lessons.size() + 1, subject, teacher, section, null));
+            }
+        }
+        return TimetableFixtures.timetable(timeslots, lessons);
+    }
+}
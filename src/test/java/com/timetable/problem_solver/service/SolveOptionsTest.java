@@ -0,0 +1,38 @@
+package com.timetable.problem_solver.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Solve options as parsed from the request parameters of the solve endpoints.
+ */
+class SolveOptionsTest {
+
+    @Test
+    void looksUpProfilesIgnoringCaseAndSpaces() {
+        assertEquals(SolveOptions.SolverProfile.FAST, SolveOptions.SolverProfile.of("fast"));
+        assertEquals(SolveOptions.SolverProfile.THOROUGH, SolveOptions.SolverProfile.of(" Thorough "));
+        assertEquals(SolveOptions.SolverProfile.BALANCED, SolveOptions.SolverProfile.of(null));
+        assertEquals(SolveOptions.SolverProfile.BALANCED, SolveOptions.SolverProfile.of(" "));
+    }
+
+    @Test
+    void rejectsAnUnknownProfileNamingTheKnownOnes() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> SolveOptions.SolverProfile.of("quick"));
+
+        assertEquals("Unknown solver profile quick, expected one of [fast, balanced, thorough]", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> SolveOptions.SolverProfile.of("fast-ish"));
+        assertThrows(IllegalArgumentException.class, () -> SolveOptions.SolverProfile.of("BALANCED,FAST"));
+    }
+
+    @Test
+    void fillsInTheDefaultsOfMissingOptions() {
+        SolveOptions options = new SolveOptions(null, false, false, null, null);
+
+        assertEquals(SolveOptions.ScoreCalculation.STREAMS, options.scoreCalculation());
+        assertEquals(SolveOptions.SolverProfile.BALANCED, options.profile());
+        assertEquals(SolveOptions.defaults(), options);
+    }
+}
@@ -0,0 +1,113 @@
+package com.timetable.problem_solver.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.constraints.TimeTableConstraintProvider;
+import com.timetable.problem_solver.model.ConstraintSettings;
+import com.timetable.problem_solver.model.ConstraintSettingsSnapshot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.solver.SolverFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Solver factories cached per constraint network fingerprint and solver manager key.
+ */
+class SolverFactoryCacheTest {
+
+    private static final SolverManagerKey FAST = SolverManagerKey.defaultOf(SolveOptions.SolverProfile.FAST);
+
+    private final AtomicInteger buildCount = new AtomicInteger();
+    private final Supplier<SolverFactory<TimeFoldTimetable>> builder = () -> {
+        buildCount.incrementAndGet();
+        return SolverFactory.create(TimetableFixtures.incrementalSolverConfig());
+    };
+
+    @Test
+    void buildsOnAMissAndReusesOnAHit() {
+        SolverFactoryCache cache = new SolverFactoryCache(4);
+
+        SolverFactory<TimeFoldTimetable> built = cache.get("a", SolverManagerKey.DEFAULT, builder);
+
+        assertSame(built, cache.get("a", SolverManagerKey.DEFAULT, builder));
+        assertEquals(1, buildCount.get());
+        // Another key of the same network is a miss
+        assertNotSame(built, cache.get("a", FAST, builder));
+        assertNotSame(built, cache.get("b", SolverManagerKey.DEFAULT, builder));
+        assertEquals(3, buildCount.get());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedFactory() {
+        SolverFactoryCache cache = new SolverFactoryCache(2);
+        SolverFactory<TimeFoldTimetable> first = cache.get("a", SolverManagerKey.DEFAULT, builder);
+        cache.get("b", SolverManagerKey.DEFAULT, builder);
+        // Using the first factory again makes the second one the eldest
+        assertSame(first, cache.get("a", SolverManagerKey.DEFAULT, builder));
+
+        cache.get("c", SolverManagerKey.DEFAULT, builder);
+
+        assertEquals(2, cache.size());
+        assertSame(first, cache.get("a", SolverManagerKey.DEFAULT, builder));
+        assertEquals(3, buildCount.get());
+        cache.get("b", SolverManagerKey.DEFAULT, builder);
+        assertEquals(4, buildCount.get());
+    }
+
+    @Test
+    void keepsTheFirstFactoryStoredWhenTwoBuildsRace() {
+        SolverFactoryCache cache = new SolverFactoryCache(4);
+        AtomicReference<SolverFactory<TimeFoldTimetable>> stored = new AtomicReference<>();
+
+        // The same key is stored by another caller while this one builds
+        SolverFactory<TimeFoldTimetable> returned = cache.get("a", SolverManagerKey.DEFAULT, () -> {
+            stored.set(cache.get("a", SolverManagerKey.DEFAULT, builder));
+            return builder.get();
+        });
+
+        assertSame(stored.get(), returned);
+        assertSame(stored.get(), cache.get("a", SolverManagerKey.DEFAULT, builder));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void fingerprintOnlyDependsOnTheCustomRules() {
+        String rules = TimeTableConstraintProvider.networkFingerprintOf(snapshot(
+                rule(1L, "perDay", true, 1, "group section, day count > 4"),
+                rule(2L, "practical", true, 1, "where practical")));
+
+        // Order, enablement and weights travel with each solution
+        assertEquals(rules, TimeTableConstraintProvider.networkFingerprintOf(snapshot(
+                rule(2L, "practical", false, 5, "where practical"),
+                rule(1L, "perDay", true, 3, "group section, day count > 4"))));
+        assertNotEquals(rules, TimeTableConstraintProvider.networkFingerprintOf(snapshot(
+                rule(1L, "perDay", true, 1, "group section, day count > 3"),
+                rule(2L, "practical", true, 1, "where practical"))));
+        assertNotEquals(rules, TimeTableConstraintProvider.networkFingerprintOf(snapshot(
+                rule(1L, "perDay", true, 1, "group section, day count > 4"))));
+        // Settings without a valid rule define no constraint
+        assertEquals(TimeTableConstraintProvider.networkFingerprintOf(snapshot()),
+                TimeTableConstraintProvider.networkFingerprintOf(snapshot(rule(3L, "invalid", true, 1, "where weekend"))));
+    }
+
+    private static ConstraintSettings rule(long id, String name, boolean enabled, int weight, String ruleDefinition) {
+        return new ConstraintSettings(id, name, weight, "Soft", enabled, null, ruleDefinition);
+    }
+
+    private static ConstraintSettingsSnapshot snapshot(ConstraintSettings... rows) {
+        Map<String, ConstraintSettingsSnapshot.Setting> settings = new LinkedHashMap<>();
+        for (ConstraintSettings row : rows) {
+            settings.put(row.getConstraintName(), ConstraintSettingsSnapshot.Setting.of(row));
+        }
+        return new ConstraintSettingsSnapshot(1, settings);
+    }
+}
@@ -0,0 +1,134 @@
+package com.timetable.problem_solver.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.constraints.TimeTableConstraintProvider;
+import com.timetable.problem_solver.model.ConstraintSettings;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reloads racing each other and the jobs started meanwhile, on a single solver thread.
+ */
+class SolverReloadTest {
+
+    private static final SolveOptions FAST = new SolveOptions(null, false, false, null, SolveOptions.SolverProfile.FAST);
+    private static final ConstraintSettings RULE = new ConstraintSettings(1L, "perDay", 1, "Soft", true, null,
+            "group section, day count > 4");
+    private static final int THREAD_COUNT = 4;
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+    private ConstraintSettingsCache constraintSettingsCache;
+    private SolverService solverService;
+
+    @BeforeEach
+    void setUp() {
+        constraintSettingsCache = TimetableFixtures.useConstraintSettings();
+        solverService = new SolverService(new TimeTableConstraintProvider(), constraintSettingsCache, "1", Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        solverService.cleanup();
+    }
+
+    /**
+     * Version the next job runs on, terminated right away.
+     */
+    private int currentVersionNumber(String jobId) throws InterruptedException {
+        solverService.solve(jobId, SolverServiceTest.problem(), FAST, solution -> {
+        });
+        int number = solverService.getSolverVersion(jobId).orElseThrow();
+        solverService.terminateEarly(jobId);
+        awaitNoActiveJobs();
+        return number;
+    }
+
+    private void awaitNoActiveJobs() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (solverService.getActiveSolverJobCount() > 0) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void concurrentReloadsBuildOneVersion() throws Exception {
+        assertEquals(1, currentVersionNumber("before"));
+        constraintSettingsCache.put(RULE);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> reloads = new ArrayList<>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            reloads.add(executor.submit(() -> {
+                start.await();
+                solverService.reloadSolver();
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> reload : reloads) {
+            reload.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        assertEquals(2, currentVersionNumber("after"));
+        // Nothing changed since, so a later reload keeps the version too
+        solverService.reloadSolver();
+        assertEquals(2, currentVersionNumber("again"));
+    }
+
+    @Test
+    void jobsStartedDuringReloadsRunOnAnOpenVersion() throws Exception {
+        AtomicBoolean reloading = new AtomicBoolean(true);
+        // Every reload switches the network, so each one publishes a new version and retires the previous one
+        Future<Integer> reloads = executor.submit(() -> {
+            int count = 0;
+            try {
+                while (count < 10 || reloading.get() && count < 50) {
+                    if (count % 2 == 0) {
+                        constraintSettingsCache.put(RULE);
+                    } else {
+                        constraintSettingsCache.remove(RULE.getConstraintName());
+                    }
+                    solverService.reloadSolver();
+                    count++;
+                }
+            } finally {
+                reloading.set(false);
+            }
+            return count;
+        });
+
+        List<Integer> versionNumbers = new ArrayList<>();
+        for (int i = 0; reloading.get() || i < 10; i++) {
+            String jobId = "job" + i;
+            // Throws if the job got a closed version
+            solverService.solve(jobId, SolverServiceTest.problem(), FAST, solution -> {
+            });
+            versionNumbers.add(solverService.getSolverVersion(jobId).orElseThrow());
+            solverService.terminateEarly(jobId);
+        }
+        int reloadCount = reloads.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        awaitNoActiveJobs();
+        for (int number : versionNumbers) {
+            assertTrue(number >= 1 && number <= reloadCount + 1, "Version " + number);
+        }
+        assertEquals(reloadCount + 1, currentVersionNumber("last"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.timetable.problem_solver.service;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.constraints.TimeTableConstraintProvider;
+import com.timetable.problem_solver.model.DifficultyLevel;
+import com.timetable.problem_solver.model.SchoolTiming;
+import com.timetable.problem_solver.model.Section;
+import com.timetable.problem_solver.model.Subject;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Job bookkeeping of the solver service, on a single solver thread so a second job waits for the first.
+ */
+class SolverServiceTest {
+
+    private static final SolveOptions FAST = new SolveOptions(null, false, false, null, SolveOptions.SolverProfile.FAST);
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private SolverService solverService;
+
+    @BeforeEach
+    void setUp() {
+        solverService = new SolverService(new TimeTableConstraintProvider(), TimetableFixtures.useConstraintSettings(),
+                "1", Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        solverService.cleanup();
+    }
+
+    @Test
+    void rejectsAJobIdThatIsStillSolving() throws InterruptedException {
+        solverService.solve("job", problem(), FAST, solution -> {
+        });
+
+        assertThrows(IllegalStateException.class, () -> solverService.solve("job", problem(), FAST, solution -> {
+        }));
+
+        assertEquals(1, solverService.getActiveSolverJobCount());
+        assertTrue(solverService.getSolverVersion("job").isPresent());
+        solverService.terminateEarly("job");
+        await(() -> solverService.getActiveSolverJobCount() == 0);
+        // The id is free again once the job finished
+        solverService.solve("job", problem(), FAST, solution -> {
+        });
+        solverService.terminateEarly("job");
+    }
+
+    @Test
+    void forgetsAJobThatFailsToStart() throws InterruptedException {
+        TimeFoldTimetable invalid = problem();
+        invalid.setTimeslots(null);
+
+        assertThrows(RuntimeException.class, () -> solverService.solve("job", invalid, FAST, solution -> {
+        }));
+
+        assertEquals(0, solverService.getActiveSolverJobCount());
+        assertTrue(solverService.getSolverVersion("job").isEmpty());
+        assertTrue(solverService.getDecompositionStats("job").isEmpty());
+        solverService.solve("job", problem(), FAST, solution -> {
+        });
+        assertEquals(1, solverService.getActiveSolverJobCount());
+        solverService.terminateEarly("job");
+        await(() -> solverService.getActiveSolverJobCount() == 0);
+    }
+
+    @Test
+    void finishesAJobTerminatedBeforeItStarts() throws Exception {
+        solverService.solve("first", problem(), FAST, solution -> {
+        });
+        CompletableFuture<TimeFoldTimetable> waiting = new CompletableFuture<>();
+        TimeFoldTimetable problem = problem();
+        solverService.solve("second", problem, FAST, waiting::complete);
+        assertEquals(2, solverService.getActiveSolverJobCount());
+
+        solverService.terminateEarly("second");
+
+        // Finished with its problem as is, without waiting for the first job
+        assertSame(problem, waiting.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, solverService.getActiveSolverJobCount());
+        solverService.terminateEarly("first");
+        await(() -> solverService.getActiveSolverJobCount() == 0);
+    }
+
+    @Test
+    void runsRequestedMoveThreadsOnASingleThreadWithoutTheEnterpriseEdition() throws Exception {
+        assumeFalse(SolverService.ENTERPRISE_EDITION_AVAILABLE);
+
+        assertEquals(1, solverService.resolveMoveThreadCount(4, 1));
+        assertEquals(1, solverService.resolveMoveThreadCount(4, 3));
+        assertEquals(1, solverService.resolveMoveThreadCount(null, 1));
+        // The community edition would reject the job instead of solving it
+        CompletableFuture<TimeFoldTimetable> solution = new CompletableFuture<>();
+        solverService.solve("job", problem(), new SolveOptions(null, false, false, 4, SolveOptions.SolverProfile.FAST),
+                solution::complete);
+        solverService.terminateEarly("job");
+        assertNotNull(solution.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        await(() -> solverService.getActiveSolverJobCount() == 0);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Two sections sharing a teacher, so the job is solved as one partition.
+     */
+    static TimeFoldTimetable problem() {
+        SchoolTiming timing = TimetableFixtures.timing(1);
+        List<TimeFoldTimeslot> timeslots = TimetableFixtures.timeslots(timing, 0, 1, TimetableFixtures.WEEKDAYS,
+                LocalTime.of(8, 0), 4, 0);
+        Subject subject = TimetableFixtures.subject(1, false, DifficultyLevel.MEDIUM);
+        List<TimeFoldLesson> lessons = new ArrayList<>();
+        for (int sectionId = 1; sectionId <= 2; sectionId++) {
+            Section section = TimetableFixtures.section(sectionId, timing);
+            for (int i = 0; i < 10; i++) {
+                lessons.add(TimetableFixtures.lesson(lessons.size() + 1, subject, TimetableFixtures.teacher(1),
+                        section, null));
+            }
+        }
+        return new TimeFoldTimetable(timeslots, lessons, null);
+    }
+}
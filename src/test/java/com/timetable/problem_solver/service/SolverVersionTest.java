@@ -0,0 +1,88 @@
+package com.timetable.problem_solver.service;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.solver.core.api.solver.SolverManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A retired version drains: it takes no new jobs and closes once the last running one is released.
+ */
+class SolverVersionTest {
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private SolverVersion version;
+
+    @BeforeEach
+    void setUp() {
+        SolverFactory<TimeFoldTimetable> solverFactory = TimetableFixtures.incrementalSolverFactory();
+        version = new SolverVersion(1, "fingerprint", solverFactory, SolverManager.create(solverFactory), Set.of(),
+                key -> SolverManager.create(solverFactory));
+    }
+
+    @AfterEach
+    void tearDown() {
+        version.close();
+    }
+
+    @Test
+    void staysOpenWhileARetiredVersionHoldsJobs() {
+        assertTrue(version.tryAcquire());
+        assertTrue(version.tryAcquire());
+
+        version.retire();
+
+        assertFalse(version.isClosed());
+        assertNotNull(version.defaultSolverManager());
+        version.release();
+        // One job is still running
+        assertFalse(version.isClosed());
+    }
+
+    @Test
+    void closesAfterTheLastJobIsReleased() throws InterruptedException {
+        assertTrue(version.tryAcquire());
+        version.retire();
+
+        version.release();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!version.isClosed()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+        assertThrows(IllegalStateException.class, version::defaultSolverManager);
+    }
+
+    @Test
+    void takesNoJobsOnceRetired() {
+        assertTrue(version.tryAcquire());
+        version.retire();
+
+        assertFalse(version.tryAcquire());
+        assertFalse(version.isClosed());
+    }
+
+    @Test
+    void closesAtOnceWhenRetiredWithoutJobs() {
+        assertTrue(version.tryAcquire());
+        version.release();
+        assertFalse(version.isClosed());
+
+        version.retire();
+
+        assertTrue(version.isClosed());
+        assertFalse(version.tryAcquire());
+    }
+}
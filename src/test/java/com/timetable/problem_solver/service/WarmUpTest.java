@@ -0,0 +1,138 @@
+package com.timetable.problem_solver.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.timetable.problem_solver.TimetableFixtures;
+import com.timetable.problem_solver.constraints.TimeTableConstraintProvider;
+import com.timetable.problem_solver.model.ConstraintSettings;
+import com.timetable.problem_solver.model.TimeFoldLesson;
+import com.timetable.problem_solver.model.TimeFoldTimeslot;
+import com.timetable.problem_solver.model.TimeFoldTimetable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Warm-up of new solver versions: off by default, otherwise a short synthetic solve before a version takes jobs.
+ */
+class WarmUpTest {
+
+    private static final SolveOptions FAST = new SolveOptions(null, false, false, null, SolveOptions.SolverProfile.FAST);
+    private static final Duration WARM_UP_SPENT_LIMIT = Duration.ofMillis(500);
+    private static final ConstraintSettings RULE = new ConstraintSettings(1L, "perDay", 1, "Soft", true, null,
+            "group section, day count > 4");
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private SolverService solverService;
+    private ConstraintSettingsCache constraintSettingsCache;
+
+    private void startSolverService(Duration warmUpSpentLimit) {
+        constraintSettingsCache = TimetableFixtures.useConstraintSettings();
+        solverService = new SolverService(new TimeTableConstraintProvider(), constraintSettingsCache, "1",
+                warmUpSpentLimit);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (solverService != null) {
+            solverService.cleanup();
+        }
+    }
+
+    @Test
+    void versionIsReadyAtOnceWhenWarmUpIsDisabled() {
+        startSolverService(Duration.ZERO);
+
+        assertEquals(WarmUpState.DISABLED, solverService.getWarmUpState());
+        assertTrue(solverService.isSolverReady());
+        assertTrue(solverService.getWarmUpDuration().isEmpty());
+    }
+
+    @Test
+    void versionIsReadyOnceItsWarmUpCompletes() throws InterruptedException {
+        startSolverService(WARM_UP_SPENT_LIMIT);
+
+        await(() -> solverService.getWarmUpState() == WarmUpState.DONE);
+
+        assertTrue(solverService.isSolverReady());
+        Duration warmUpDuration = solverService.getWarmUpDuration().orElseThrow();
+        assertTrue(warmUpDuration.compareTo(WARM_UP_SPENT_LIMIT) >= 0, "Warm-up took " + warmUpDuration);
+    }
+
+    @Test
+    void jobsRunOnThePreviousVersionWhileANewOneWarmsUp() throws InterruptedException {
+        startSolverService(WARM_UP_SPENT_LIMIT);
+        await(() -> solverService.getWarmUpState() == WarmUpState.DONE);
+        constraintSettingsCache.put(RULE);
+
+        solverService.reloadSolver();
+
+        assertFalse(solverService.getWarmUpState().isReady());
+        assertFalse(solverService.isSolverReady());
+        assertTrue(solverService.getWarmUpDuration().isEmpty());
+        assertEquals(1, versionOfANewJob("during"));
+        await(() -> solverService.getWarmUpState() == WarmUpState.DONE);
+        assertEquals(2, versionOfANewJob("after"));
+    }
+
+    @Test
+    void failedWarmUpLeavesTheVersionReady() {
+        SolverVersion version = new SolverVersion(1, "fingerprint", TimetableFixtures.incrementalSolverFactory(),
+                null, Set.of(), key -> null);
+        assertEquals(WarmUpState.DISABLED, version.warmUpState());
+        version.markWarmUpPending();
+        assertFalse(version.warmUpState().isReady());
+
+        version.warmUp(() -> {
+            throw new IllegalStateException("No warm-up problem");
+        }, WARM_UP_SPENT_LIMIT);
+
+        assertEquals(WarmUpState.FAILED, version.warmUpState());
+        assertTrue(version.warmUpState().isReady());
+        assertNotNull(version.warmUpDuration());
+    }
+
+    @Test
+    void warmUpProblemHasOneLessonPerSectionAndPeriodOfItsShift() {
+        TimeFoldTimetable problem = WarmUpProblem.generate();
+
+        // Two shifts of 5 days of 7 periods, with 3 sections each
+        assertEquals(70, problem.getTimeslots().size());
+        assertEquals(210, problem.getLessons().size());
+        for (TimeFoldLesson lesson : problem.getLessons()) {
+            List<TimeFoldTimeslot> range = lesson.getTimeslotRange();
+            assertEquals(35, range.size());
+            assertTrue(range.stream().allMatch(timeslot -> timeslot.getTiming() == lesson.getSection().getSchoolTimings()));
+            assertNull(lesson.getTimeslot());
+        }
+        // The same problem every time
+        assertEquals(problem.getLessons().stream().map(lesson -> lesson.getSubject().getId()).toList(),
+                WarmUpProblem.generate().getLessons().stream().map(lesson -> lesson.getSubject().getId()).toList());
+    }
+
+    /**
+     * Version the next job runs on, terminated right away.
+     */
+    private int versionOfANewJob(String jobId) throws InterruptedException {
+        solverService.solve(jobId, SolverServiceTest.problem(), FAST, solution -> {
+        });
+        int number = solverService.getSolverVersion(jobId).orElseThrow();
+        solverService.terminateEarly(jobId);
+        await(() -> solverService.getActiveSolverJobCount() == 0);
+        return number;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+}